@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmarks.domain.User;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts through a BATCH executor. Every invocation inserts {@link #BATCH_SIZE} rows and rolls them back,
+ * the score is per row.
+ */
+/**
+ * 用BATCH执行器插入，每次调用插入BATCH_SIZE行然后回滚，结果按行算
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private User[] users;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.create();
+    users = new User[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      User user = new User();
+      user.setId(i);
+      user.setName("user" + i);
+      user.setEmail("user" + i + "@example.com");
+      user.setStatus(i % 3);
+      users[i] = user;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<BatchResult> batchInsert() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      for (User user : users) {
+        sqlSession.insert(BenchmarkDatabase.NAMESPACE + ".insertUser", user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      sqlSession.rollback(true);
+      return results;
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+/**
+ * Builds the SqlSessionFactory shared by the benchmarks and fills the in-memory HSQLDB database.
+ */
+/**
+ * 建基准测试用的SqlSessionFactory，并往内存HSQLDB里灌数据
+ */
+public final class BenchmarkDatabase {
+
+  public static final String NAMESPACE = "org.apache.ibatis.benchmarks.BenchmarkMapper";
+  public static final String CACHED_NAMESPACE = "org.apache.ibatis.benchmarks.CachedMapper";
+
+  public static final int USERS = 1000;
+  public static final int WIDE_ROWS = 100;
+  public static final int BLOGS = 10;
+  public static final int POSTS_PER_BLOG = 10;
+
+  private BenchmarkDatabase() {
+    // Prevent Instantiation
+  }
+
+  public static SqlSessionFactory create() throws IOException, SQLException {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmarks/mybatis-config.xml");
+    SqlSessionFactory sqlSessionFactory;
+    try {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    } finally {
+      reader.close();
+    }
+    DataSource dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    Connection conn = dataSource.getConnection();
+    try {
+      runScript(conn);
+      insertData(conn);
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+    return sqlSessionFactory;
+  }
+
+  private static void runScript(Connection conn) throws IOException {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmarks/CreateDB.sql");
+    try {
+      ScriptRunner runner = new ScriptRunner(conn);
+      runner.setLogWriter(null);
+      runner.runScript(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static void insertData(Connection conn) throws SQLException {
+    PreparedStatement ps = conn.prepareStatement("insert into bench_users (id, name, email, status) values (?, ?, ?, ?)");
+    try {
+      for (int i = 1; i <= USERS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "user" + i);
+        ps.setString(3, "user" + i + "@example.com");
+        ps.setInt(4, i % 3);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+
+    StringBuilder sql = new StringBuilder("insert into bench_wide values (?");
+    for (int c = 0; c < 25; c++) {
+      sql.append(", ?");
+    }
+    sql.append(')');
+    ps = conn.prepareStatement(sql.toString());
+    try {
+      for (int i = 1; i <= WIDE_ROWS; i++) {
+        int column = 1;
+        ps.setInt(column++, i);
+        for (int c = 1; c <= 10; c++) {
+          ps.setString(column++, "value " + i + "-" + c);
+        }
+        for (int c = 1; c <= 10; c++) {
+          ps.setInt(column++, i * c);
+        }
+        for (int c = 1; c <= 4; c++) {
+          ps.setBigDecimal(column++, new BigDecimal(i * c).movePointLeft(2));
+        }
+        ps.setTimestamp(column, new Timestamp(1400000000000L + i * 1000L));
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+
+    ps = conn.prepareStatement("insert into bench_authors (id, username, email) values (?, ?, ?)");
+    try {
+      for (int i = 1; i <= BLOGS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "author" + i);
+        ps.setString(3, "author" + i + "@example.com");
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+
+    ps = conn.prepareStatement("insert into bench_blogs (id, title, author_id) values (?, ?, ?)");
+    try {
+      for (int i = 1; i <= BLOGS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "blog " + i);
+        ps.setInt(3, i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+
+    ps = conn.prepareStatement("insert into bench_posts (id, blog_id, subject, body) values (?, ?, ?, ?)");
+    try {
+      int id = 1;
+      for (int i = 1; i <= BLOGS; i++) {
+        for (int p = 1; p <= POSTS_PER_BLOG; p++) {
+          ps.setInt(1, id);
+          ps.setInt(2, i);
+          ps.setString(3, "post " + id);
+          ps.setString(4, "body of post " + id);
+          ps.addBatch();
+          id++;
+        }
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmarks.domain.User;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Second level cache hits and the CacheKey every cached query builds.
+ */
+/**
+ * 二级缓存命中，以及每次查缓存都要建的CacheKey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+  private static final int CACHED_USERS = 100;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private int nextId;
+
+  private Executor executor;
+  private MappedStatement mappedStatement;
+  private BoundSql boundSql;
+  private CacheKey cacheKey;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.create();
+    //先查一遍，提交以后结果才会进二级缓存
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      for (int id = 1; id <= CACHED_USERS; id++) {
+        sqlSession.selectOne(BenchmarkDatabase.CACHED_NAMESPACE + ".selectUser", id);
+      }
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    executor = new SimpleExecutor(configuration,
+        new JdbcTransaction(configuration.getEnvironment().getDataSource(), null, false));
+    mappedStatement = configuration.getMappedStatement(BenchmarkDatabase.CACHED_NAMESPACE + ".selectUser");
+    boundSql = mappedStatement.getBoundSql(1);
+    cacheKey = executor.createCacheKey(mappedStatement, 1, RowBounds.DEFAULT, boundSql);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.close(false);
+  }
+
+  @Benchmark
+  public User secondLevelCacheHit() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      nextId = nextId % CACHED_USERS + 1;
+      return sqlSession.selectOne(BenchmarkDatabase.CACHED_NAMESPACE + ".selectUser", nextId);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Benchmark
+  public CacheKey createCacheKey() {
+    return executor.createCacheKey(mappedStatement, 1, RowBounds.DEFAULT, boundSql);
+  }
+
+  @Benchmark
+  public boolean cacheKeyEquals() {
+    CacheKey other = executor.createCacheKey(mappedStatement, 1, RowBounds.DEFAULT, boundSql);
+    return cacheKey.hashCode() == other.hashCode() && cacheKey.equals(other);
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders a dynamic statement (DynamicSqlSource) without executing it.
+ */
+/**
+ * 只生成动态SQL(DynamicSqlSource)，不执行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicSqlBenchmark {
+
+  //foreach里的元素个数
+  @Param({ "1", "10", "100" })
+  private int ids;
+
+  private MappedStatement mappedStatement;
+  private Map<String, Object> parameter;
+
+  @Setup
+  public void setup() throws Exception {
+    mappedStatement = BenchmarkDatabase.create().getConfiguration()
+        .getMappedStatement(BenchmarkDatabase.NAMESPACE + ".findUsers");
+    List<Integer> idList = new ArrayList<Integer>();
+    for (int i = 1; i <= ids; i++) {
+      idList.add(i);
+    }
+    parameter = new HashMap<String, Object>();
+    parameter.put("name", "user%");
+    parameter.put("status", 1);
+    parameter.put("ids", idList);
+  }
+
+  @Benchmark
+  public BoundSql renderDynamicSql() {
+    return mappedStatement.getBoundSql(parameter);
+  }
+
+}
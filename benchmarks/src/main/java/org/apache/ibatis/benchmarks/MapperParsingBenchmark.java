@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup cost of mapper XML files: parsing, validating and building generated mappers
+ * (result maps, fragments, includes and dynamic statements) into a new Configuration.
+ * Run it with -prof gc to see the allocations.
+ */
+/**
+ * 启动时加载映射器XML的开销：把生成的映射器(结果映射、sql片段、include、动态语句)解析、校验并加到一个新的Configuration里
+ * 加上-prof gc可以看到分配了多少内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperParsingBenchmark {
+
+  private static final int STATEMENTS_PER_MAPPER = 20;
+
+  @Param({ "10", "100" })
+  private int mappers;
+
+  private byte[][] documents;
+
+  @Setup
+  public void setup() throws Exception {
+    documents = new byte[mappers][];
+    for (int i = 0; i < mappers; i++) {
+      documents[i] = createMapper("org.apache.ibatis.benchmarks.Generated" + i).getBytes("UTF-8");
+    }
+  }
+
+  @Benchmark
+  public Configuration buildMappers() {
+    Configuration configuration = new Configuration();
+    for (int i = 0; i < documents.length; i++) {
+      String resource = "Generated" + i + ".xml";
+      XMLMapperBuilder builder = new XMLMapperBuilder(new ByteArrayInputStream(documents[i]), configuration, resource,
+          configuration.getSqlFragments());
+      builder.parse();
+    }
+    return configuration;
+  }
+
+  private static String createMapper(String namespace) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+    xml.append("<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n");
+    xml.append("<mapper namespace=\"").append(namespace).append("\">\n");
+    xml.append("  <sql id=\"userColumns\">id, name, email, status</sql>\n");
+    xml.append("  <resultMap id=\"userResult\" type=\"org.apache.ibatis.benchmarks.domain.User\">\n");
+    xml.append("    <id property=\"id\" column=\"id\" />\n");
+    xml.append("    <result property=\"name\" column=\"name\" />\n");
+    xml.append("    <result property=\"email\" column=\"email\" />\n");
+    xml.append("    <result property=\"status\" column=\"status\" />\n");
+    xml.append("  </resultMap>\n");
+    for (int s = 0; s < STATEMENTS_PER_MAPPER; s++) {
+      xml.append("  <select id=\"find").append(s).append("\" resultMap=\"userResult\">\n");
+      xml.append("    select <include refid=\"userColumns\" /> from bench_users\n");
+      xml.append("    <where>\n");
+      xml.append("      <if test=\"name != null\">and name = #{name}</if>\n");
+      xml.append("      <if test=\"ids != null\">and id in\n");
+      xml.append("        <foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>\n");
+      xml.append("      </if>\n");
+      xml.append("    </where>\n");
+      xml.append("  </select>\n");
+      xml.append("  <update id=\"update").append(s).append("\">\n");
+      xml.append("    update bench_users set name = #{name}, email = #{email} where id = #{id}\n");
+      xml.append("  </update>\n");
+    }
+    xml.append("</mapper>\n");
+    return xml.toString();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.benchmarks.domain.Blog;
+import org.apache.ibatis.benchmarks.domain.User;
+import org.apache.ibatis.benchmarks.domain.WideRow;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries through a SqlSession: DefaultParameterHandler, DefaultResultSetHandler and PooledDataSource.
+ * Every invocation opens and closes its own session, so the local cache is never hit.
+ */
+/**
+ * 通过SqlSession查询，覆盖参数处理、结果映射和连接池
+ * 每次调用都开一个新的SqlSession，不会命中一级缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private int nextId;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.create();
+  }
+
+  @Benchmark
+  public User simpleSelect() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      nextId = nextId % BenchmarkDatabase.USERS + 1;
+      return sqlSession.selectOne(BenchmarkDatabase.NAMESPACE + ".selectUser", nextId);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Benchmark
+  public List<WideRow> wideRowAutoMapping() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.selectList(BenchmarkDatabase.NAMESPACE + ".selectWideRows");
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Benchmark
+  public List<Blog> nestedResultMap() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.selectList(BenchmarkDatabase.NAMESPACE + ".selectBlogs");
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
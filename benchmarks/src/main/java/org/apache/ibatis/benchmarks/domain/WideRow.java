@@ -0,0 +1,267 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * A row of bench_wide, every column is auto-mapped.
+ */
+/**
+ * bench_wide表的一行，所有列都是自动映射的
+ */
+public class WideRow implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Integer id;
+  private String s01;
+  private String s02;
+  private String s03;
+  private String s04;
+  private String s05;
+  private String s06;
+  private String s07;
+  private String s08;
+  private String s09;
+  private String s10;
+  private Integer n01;
+  private Integer n02;
+  private Integer n03;
+  private Integer n04;
+  private Integer n05;
+  private Integer n06;
+  private Integer n07;
+  private Integer n08;
+  private Integer n09;
+  private Integer n10;
+  private BigDecimal d01;
+  private BigDecimal d02;
+  private BigDecimal d03;
+  private BigDecimal d04;
+  private Date t01;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public String getS01() {
+    return s01;
+  }
+
+  public void setS01(String s01) {
+    this.s01 = s01;
+  }
+
+  public String getS02() {
+    return s02;
+  }
+
+  public void setS02(String s02) {
+    this.s02 = s02;
+  }
+
+  public String getS03() {
+    return s03;
+  }
+
+  public void setS03(String s03) {
+    this.s03 = s03;
+  }
+
+  public String getS04() {
+    return s04;
+  }
+
+  public void setS04(String s04) {
+    this.s04 = s04;
+  }
+
+  public String getS05() {
+    return s05;
+  }
+
+  public void setS05(String s05) {
+    this.s05 = s05;
+  }
+
+  public String getS06() {
+    return s06;
+  }
+
+  public void setS06(String s06) {
+    this.s06 = s06;
+  }
+
+  public String getS07() {
+    return s07;
+  }
+
+  public void setS07(String s07) {
+    this.s07 = s07;
+  }
+
+  public String getS08() {
+    return s08;
+  }
+
+  public void setS08(String s08) {
+    this.s08 = s08;
+  }
+
+  public String getS09() {
+    return s09;
+  }
+
+  public void setS09(String s09) {
+    this.s09 = s09;
+  }
+
+  public String getS10() {
+    return s10;
+  }
+
+  public void setS10(String s10) {
+    this.s10 = s10;
+  }
+
+  public Integer getN01() {
+    return n01;
+  }
+
+  public void setN01(Integer n01) {
+    this.n01 = n01;
+  }
+
+  public Integer getN02() {
+    return n02;
+  }
+
+  public void setN02(Integer n02) {
+    this.n02 = n02;
+  }
+
+  public Integer getN03() {
+    return n03;
+  }
+
+  public void setN03(Integer n03) {
+    this.n03 = n03;
+  }
+
+  public Integer getN04() {
+    return n04;
+  }
+
+  public void setN04(Integer n04) {
+    this.n04 = n04;
+  }
+
+  public Integer getN05() {
+    return n05;
+  }
+
+  public void setN05(Integer n05) {
+    this.n05 = n05;
+  }
+
+  public Integer getN06() {
+    return n06;
+  }
+
+  public void setN06(Integer n06) {
+    this.n06 = n06;
+  }
+
+  public Integer getN07() {
+    return n07;
+  }
+
+  public void setN07(Integer n07) {
+    this.n07 = n07;
+  }
+
+  public Integer getN08() {
+    return n08;
+  }
+
+  public void setN08(Integer n08) {
+    this.n08 = n08;
+  }
+
+  public Integer getN09() {
+    return n09;
+  }
+
+  public void setN09(Integer n09) {
+    this.n09 = n09;
+  }
+
+  public Integer getN10() {
+    return n10;
+  }
+
+  public void setN10(Integer n10) {
+    this.n10 = n10;
+  }
+
+  public BigDecimal getD01() {
+    return d01;
+  }
+
+  public void setD01(BigDecimal d01) {
+    this.d01 = d01;
+  }
+
+  public BigDecimal getD02() {
+    return d02;
+  }
+
+  public void setD02(BigDecimal d02) {
+    this.d02 = d02;
+  }
+
+  public BigDecimal getD03() {
+    return d03;
+  }
+
+  public void setD03(BigDecimal d03) {
+    this.d03 = d03;
+  }
+
+  public BigDecimal getD04() {
+    return d04;
+  }
+
+  public void setD04(BigDecimal d04) {
+    this.d04 = d04;
+  }
+
+  public Date getT01() {
+    return t01;
+  }
+
+  public void setT01(Date t01) {
+    this.t01 = t01;
+  }
+
+}
@@ -0,0 +1,84 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table bench_users if exists;
+drop table bench_inserts if exists;
+drop table bench_wide if exists;
+drop table bench_posts if exists;
+drop table bench_blogs if exists;
+drop table bench_authors if exists;
+
+create table bench_users (
+  id int primary key,
+  name varchar(32),
+  email varchar(64),
+  status int
+);
+
+create table bench_inserts (
+  id int,
+  name varchar(32),
+  email varchar(64),
+  status int
+);
+
+create table bench_wide (
+  id int primary key,
+  s01 varchar(32),
+  s02 varchar(32),
+  s03 varchar(32),
+  s04 varchar(32),
+  s05 varchar(32),
+  s06 varchar(32),
+  s07 varchar(32),
+  s08 varchar(32),
+  s09 varchar(32),
+  s10 varchar(32),
+  n01 int,
+  n02 int,
+  n03 int,
+  n04 int,
+  n05 int,
+  n06 int,
+  n07 int,
+  n08 int,
+  n09 int,
+  n10 int,
+  d01 decimal(12,2),
+  d02 decimal(12,2),
+  d03 decimal(12,2),
+  d04 decimal(12,2),
+  t01 timestamp
+);
+
+create table bench_authors (
+  id int primary key,
+  username varchar(32),
+  email varchar(64)
+);
+
+create table bench_blogs (
+  id int primary key,
+  title varchar(64),
+  author_id int
+);
+
+create table bench_posts (
+  id int primary key,
+  blog_id int,
+  subject varchar(64),
+  body varchar(256)
+);
@@ -22,6 +22,8 @@ import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 
 /**
  * @author Clinton Begin
@@ -35,10 +37,18 @@ public @interface CacheNamespace {
 
   long flushInterval() default 0;
 
+  long timeToLive() default 0;
+
+  boolean refreshAhead() default false;
+
   int size() default 1024;
 
   boolean readWrite() default true;
   
   boolean blocking() default false;
+
+  Class<? extends CacheSerializer> serializer() default JavaSerializer.class;
+
+  boolean compress() default false;
   
 }
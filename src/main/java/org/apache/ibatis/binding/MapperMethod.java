@@ -17,6 +17,7 @@ package org.apache.ibatis.binding;
 
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.reflection.MetaObject;
@@ -72,6 +73,9 @@ public class MapperMethod {
       } else if (method.returnsMap()) {
         //如果结果是map
         result = executeForMap(sqlSession, args);
+      } else if (method.returnsCursor()) {
+        //如果结果是游标
+        result = executeForCursor(sqlSession, args);
       } else {
         //否则就是一条记录
         Object param = method.convertArgsToSqlCommandParam(args);
@@ -146,6 +150,19 @@ public class MapperMethod {
     return result;
   }
 
+  //游标
+  private <T> Cursor<T> executeForCursor(SqlSession sqlSession, Object[] args) {
+    Cursor<T> result;
+    Object param = method.convertArgsToSqlCommandParam(args);
+    if (method.hasRowBounds()) {
+      RowBounds rowBounds = method.extractRowBounds(args);
+      result = sqlSession.<T>selectCursor(command.getName(), param, rowBounds);
+    } else {
+      result = sqlSession.<T>selectCursor(command.getName(), param);
+    }
+    return result;
+  }
+
   private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
     Object collection = config.getObjectFactory().create(method.getReturnType());
     MetaObject metaObject = config.newMetaObject(collection);
@@ -230,6 +247,7 @@ public class MapperMethod {
     private final boolean returnsMany;
     private final boolean returnsMap;
     private final boolean returnsVoid;
+    private final boolean returnsCursor;
     private final Class<?> returnType;
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -240,6 +258,7 @@ public class MapperMethod {
     public MethodSignature(Configuration configuration, Method method) {
       this.returnType = method.getReturnType();
       this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsMany = (configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray());
       this.mapKey = getMapKey(method);
       this.returnsMap = (this.mapKey != null);
@@ -318,6 +337,10 @@ public class MapperMethod {
       return returnsVoid;
     }
 
+    public boolean returnsCursor() {
+      return returnsCursor;
+    }
+
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
       final Class<?>[] argTypes = method.getParameterTypes();
@@ -28,6 +28,7 @@ import java.util.StringTokenizer;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.mapping.CacheBuilder;
@@ -137,6 +138,20 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, null, false, size, readWrite, blocking, null, false, props);
+  }
+
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Long timeToLive,
+      boolean refreshAhead,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      Class<? extends CacheSerializer> serializerClass,
+      boolean compress,
+      Properties props) {
 
       //这里面又判断了一下是否为null就用默认值，有点和XMLMapperBuilder.cacheElement逻辑重复了
     typeClass = valueOrDefault(typeClass, PerpetualCache.class);
@@ -146,9 +161,14 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .implementation(typeClass)
         .addDecorator(evictionClass)
         .clearInterval(flushInterval)
+        .timeToLive(timeToLive)
+        .refreshAhead(refreshAhead)
+        .ticker(configuration.getCacheTicker())
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
+        .serializer(serializerClass)
+        .compress(compress)
         .properties(props)
         .build();
     //加入缓存
@@ -288,6 +308,35 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String databaseId,
       LanguageDriver lang,
       String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      String cacheTags) {
     
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -310,6 +359,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
     statementBuilder.lang(lang);
     statementBuilder.resultOrdered(resultOrdered);
     statementBuilder.resulSets(resultSets);
+    statementBuilder.cacheTags(cacheTags);
     setStatementTimeout(timeout, statementBuilder);
 
     //1.参数映射
@@ -320,6 +370,10 @@ public class MapperBuilderAssistant extends BaseBuilder {
     //mark 设置二级缓存currentCache是xxMap.xml里面 解析<cache 标签而来的
 
     MappedStatement statement = statementBuilder.build();
+    if (!isSelect && statement.getCacheTags() != null && statement.getCache() != null && statement.isFlushCacheRequired()) {
+      //这个缓存里不带标签的条目从此也要跟着带标签的增删改失效
+      configuration.getCacheTagRegistry().addTaggedWriter(statement.getCache());
+    }
     //建造好调用configuration.addMappedStatement
     configuration.addMappedStatement(statement);
     return statement;
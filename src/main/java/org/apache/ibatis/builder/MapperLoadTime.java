@@ -0,0 +1,72 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+/**
+ * How long loading one &lt;mapper&gt; or &lt;package&gt; element of the configuration took:
+ * reading and validating the XML document, and building its statements into the Configuration.
+ * Times are in nanoseconds; with parallel mapper parsing the parse times overlap.
+ * Mappers restored from the mapper snapshot are not read nor validated.
+ */
+/**
+ * 加载一个映射器(配置文件里的一个mapper或package元素)花的时间
+ * parseTime是读XML、校验、建DOM的时间，buildTime是把里面的语句、结果映射等加到Configuration里的时间，单位纳秒
+ * 注解映射器没有单独的解析时间，都算在buildTime里
+ * 从快照里还原的映射器，parseTime只是还原DOM的时间
+ */
+public class MapperLoadTime {
+
+  private final String mapper;
+  private final long parseTime;
+  private final long buildTime;
+  private final boolean fromSnapshot;
+
+  public MapperLoadTime(String mapper, long parseTime, long buildTime) {
+    this(mapper, parseTime, buildTime, false);
+  }
+
+  public MapperLoadTime(String mapper, long parseTime, long buildTime, boolean fromSnapshot) {
+    this.mapper = mapper;
+    this.parseTime = parseTime;
+    this.buildTime = buildTime;
+    this.fromSnapshot = fromSnapshot;
+  }
+
+  /*
+   * @return the resource, url, class name or package name of the mapper element
+   */
+  public String getMapper() {
+    return mapper;
+  }
+
+  public long getParseTime() {
+    return parseTime;
+  }
+
+  public long getBuildTime() {
+    return buildTime;
+  }
+
+  public boolean isFromSnapshot() {
+    return fromSnapshot;
+  }
+
+  @Override
+  public String toString() {
+    return mapper + ": " + (fromSnapshot ? "restored from snapshot" : "parsed") + " in " + parseTime / 1000000 + " ms, built in " + buildTime / 1000000 + " ms";
+  }
+
+}
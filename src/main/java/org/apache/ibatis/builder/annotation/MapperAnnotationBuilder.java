@@ -36,6 +36,7 @@ import java.util.Set;
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.CacheNamespaceRef;
+import org.apache.ibatis.annotations.CacheTags;
 import org.apache.ibatis.annotations.Case;
 import org.apache.ibatis.annotations.ConstructorArgs;
 import org.apache.ibatis.annotations.Delete;
@@ -61,6 +62,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -177,7 +179,8 @@ public class MapperAnnotationBuilder {
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), null);
+      Long timeToLive = cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive();
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, timeToLive, cacheDomain.refreshAhead(), size, cacheDomain.readWrite(), cacheDomain.blocking(), cacheDomain.serializer(), cacheDomain.compress(), null);
     }
   }
 
@@ -297,6 +300,19 @@ public class MapperAnnotationBuilder {
         resultSetType = options.resultSetType();
       }
 
+      String cacheTags = null;
+      CacheTags cacheTagsAnnotation = method.getAnnotation(CacheTags.class);
+      if (cacheTagsAnnotation != null) {
+        StringBuilder sb = new StringBuilder();
+        for (String cacheTag : cacheTagsAnnotation.value()) {
+          if (sb.length() > 0) {
+            sb.append(",");
+          }
+          sb.append(cacheTag);
+        }
+        cacheTags = sb.toString();
+      }
+
       String resultMapId = null;
       ResultMap resultMapAnnotation = method.getAnnotation(ResultMap.class);
       if (resultMapAnnotation != null) {
@@ -337,7 +353,8 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          null);
+          null,
+          cacheTags);
     }
   }
   
@@ -374,7 +391,7 @@ public class MapperAnnotationBuilder {
       if (rt != null) {
         returnType = rt.value();
       } 
-    } else if (Collection.class.isAssignableFrom(returnType)) {
+    } else if (Collection.class.isAssignableFrom(returnType) || Cursor.class.equals(returnType)) {
       Type returnTypeParameter = method.getGenericReturnType();
       if (returnTypeParameter instanceof ParameterizedType) {
         Type[] actualTypeArguments = ((ParameterizedType) returnTypeParameter).getActualTypeArguments();
@@ -15,18 +15,32 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.MapperLoadTime;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.parsing.XNode;
@@ -41,6 +55,7 @@ import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
+import org.w3c.dom.Document;
 
 /**
  * @author Clinton Begin
@@ -356,6 +371,21 @@ public class XMLConfigBuilder extends BaseBuilder {
       configuration.setLogImpl(resolveClass(props.getProperty("logImpl")));
       //配置工厂
       configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
+      //每个动态SQL缓存多少种#{}解析结果
+      configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 0));
+      //BATCH执行器自动flush的条数和字节数
+      configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+      configuration.setBatchFlushBytes(integerValueOf(props.getProperty("batchFlushBytes"), 0));
+      //BATCH执行器是否留着参数对象
+      configuration.setBatchRetainParameterObjects(booleanValueOf(props.getProperty("batchRetainParameterObjects"), true));
+      //REUSE执行器每个物理连接缓存的语句个数
+      configuration.setReuseStatementCacheSize(integerValueOf(props.getProperty("reuseStatementCacheSize"), 0));
+      //缓存统计注册到JMX
+      configuration.setCacheStatisticsJmxEnabled(booleanValueOf(props.getProperty("cacheStatisticsJmxEnabled"), false));
+      //并行解析映射器XML的线程数
+      configuration.setMapperParsingThreads(integerValueOf(props.getProperty("mapperParsingThreads"), 0));
+      //映射器XML快照文件
+      configuration.setMapperSnapshot(props.getProperty("mapperSnapshot"));
     }
   }
   
@@ -530,43 +560,177 @@ public class XMLConfigBuilder extends BaseBuilder {
 //	</mappers>
   private void mapperElement(XNode parent) throws Exception {
     if (parent != null) {
-      for (XNode child : parent.getChildren()) {
-        if ("package".equals(child.getName())) {
-          //10.4自动扫描包下所有映射器
-          String mapperPackage = child.getStringAttribute("name");
-          configuration.addMappers(mapperPackage);
-        } else {
-          String resource = child.getStringAttribute("resource");
-          String url = child.getStringAttribute("url");
-          String mapperClass = child.getStringAttribute("class");
-          if (resource != null && url == null && mapperClass == null) {
-            //10.1使用类路径
-            ErrorContext.instance().resource(resource);
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            //映射器比较复杂，调用XMLMapperBuilder
-            //注意在for循环里每个mapper都重新new一个XMLMapperBuilder，来解析
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
-            mapperParser.parse();
-          } else if (resource == null && url != null && mapperClass == null) {
-            //10.2使用绝对url路径
-            ErrorContext.instance().resource(url);
-            InputStream inputStream = Resources.getUrlAsStream(url);
-            //映射器比较复杂，调用XMLMapperBuilder
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
-            mapperParser.parse();
-          } else if (resource == null && url == null && mapperClass != null) {
-            //10.3使用java类名
-            Class<?> mapperInterface = Resources.classForName(mapperClass);
-            //直接把这个映射加入配置
-            configuration.addMapper(mapperInterface);
+      List<XNode> children = parent.getChildren();
+      //并行解析时，先在线程池里把所有XML映射文件解析成DOM(最慢的就是这一步)
+      //加到Configuration里还是在当前线程按配置文件里的顺序一个一个来，所以结果和顺序解析一样
+      ExecutorService executor = createMapperParsingExecutor(children);
+      //配置了快照的话，没改过的映射文件直接从快照里还原DOM
+      XMLMapperSnapshot snapshot = configuration.getMapperSnapshot() == null ? null : XMLMapperSnapshot.open(configuration.getMapperSnapshot());
+      try {
+        List<Future<ParsedMapper>> parsedMappers = executor == null ? null : parseMappers(executor, children, snapshot);
+        for (int i = 0; i < children.size(); i++) {
+          XNode child = children.get(i);
+          long start = System.nanoTime();
+          if ("package".equals(child.getName())) {
+            //10.4自动扫描包下所有映射器
+            String mapperPackage = child.getStringAttribute("name");
+            configuration.addMappers(mapperPackage);
+            configuration.addMapperLoadTime(new MapperLoadTime(mapperPackage, 0, System.nanoTime() - start));
           } else {
-            throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+            String resource = child.getStringAttribute("resource");
+            String url = child.getStringAttribute("url");
+            String mapperClass = child.getStringAttribute("class");
+            if (resource != null && url == null && mapperClass == null) {
+              //10.1使用类路径
+              ErrorContext.instance().resource(resource);
+              //映射器比较复杂，调用XMLMapperBuilder
+              //注意在for循环里每个mapper都重新new一个XMLMapperBuilder，来解析
+              ParsedMapper parsed = parsedMappers == null ? parseMapper(resource, null, snapshot) : getParsedMapper(parsedMappers.get(i));
+              buildMapper(resource, parsed);
+            } else if (resource == null && url != null && mapperClass == null) {
+              //10.2使用绝对url路径
+              ErrorContext.instance().resource(url);
+              //映射器比较复杂，调用XMLMapperBuilder
+              ParsedMapper parsed = parsedMappers == null ? parseMapper(null, url, snapshot) : getParsedMapper(parsedMappers.get(i));
+              buildMapper(url, parsed);
+            } else if (resource == null && url == null && mapperClass != null) {
+              //10.3使用java类名
+              Class<?> mapperInterface = Resources.classForName(mapperClass);
+              //直接把这个映射加入配置
+              configuration.addMapper(mapperInterface);
+              configuration.addMapperLoadTime(new MapperLoadTime(mapperClass, 0, System.nanoTime() - start));
+            } else {
+              throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+            }
           }
         }
+        if (snapshot != null) {
+          snapshot.save();
+        }
+      } finally {
+        if (executor != null) {
+          //出错时还没解析完的也不用解析了
+          executor.shutdownNow();
+        }
+      }
+      logMapperLoadTimes();
+    }
+  }
+
+  private ExecutorService createMapperParsingExecutor(List<XNode> children) {
+    int threads = Math.min(configuration.getMapperParsingThreads(), children.size());
+    if (threads <= 1) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(threads, new MapperParsingThreadFactory());
+  }
+
+  //只有单独指定resource或url的才是XML映射文件，其他的位置放null
+  private List<Future<ParsedMapper>> parseMappers(ExecutorService executor, List<XNode> children, final XMLMapperSnapshot snapshot) {
+    List<Future<ParsedMapper>> parsedMappers = new ArrayList<Future<ParsedMapper>>(children.size());
+    for (XNode child : children) {
+      Future<ParsedMapper> parsed = null;
+      if (!"package".equals(child.getName())) {
+        final String resource = child.getStringAttribute("resource");
+        final String url = child.getStringAttribute("url");
+        String mapperClass = child.getStringAttribute("class");
+        if (mapperClass == null && (resource == null) != (url == null)) {
+          parsed = executor.submit(new Callable<ParsedMapper>() {
+            @Override
+            public ParsedMapper call() throws Exception {
+              return parseMapper(resource, url, snapshot);
+            }
+          });
+        }
       }
+      parsedMappers.add(parsed);
     }
+    return parsedMappers;
   }
 
+  /*
+   * Reads and validates a mapper document. Does not touch the configuration, so it can run on any thread.
+   */
+  private ParsedMapper parseMapper(String resource, String url, XMLMapperSnapshot snapshot) throws IOException {
+    long start = System.nanoTime();
+    InputStream inputStream = resource != null ? Resources.getResourceAsStream(resource) : Resources.getUrlAsStream(url);
+    if (snapshot == null) {
+      XPathParser mapperParser = new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver());
+      return new ParsedMapper(mapperParser, System.nanoTime() - start, false);
+    }
+    String location = resource != null ? resource : url;
+    byte[] bytes = XMLMapperSnapshot.readFully(inputStream);
+    long checksum = XMLMapperSnapshot.checksum(bytes);
+    Document document = snapshot.getDocument(location, checksum);
+    if (document != null) {
+      XPathParser mapperParser = new XPathParser(document, false, configuration.getVariables(), new XMLMapperEntityResolver());
+      return new ParsedMapper(mapperParser, System.nanoTime() - start, true);
+    }
+    XPathParser mapperParser = new XPathParser(new ByteArrayInputStream(bytes), true, configuration.getVariables(), new XMLMapperEntityResolver());
+    //要在build之前放进快照，build时<include>会改DOM
+    snapshot.putDocument(location, checksum, mapperParser.evalNode("/mapper").getNode().getOwnerDocument());
+    return new ParsedMapper(mapperParser, System.nanoTime() - start, false);
+  }
+
+  private ParsedMapper getParsedMapper(Future<ParsedMapper> parsed) throws Exception {
+    try {
+      return parsed.get();
+    } catch (ExecutionException e) {
+      //把解析线程里的异常原样抛出来，和顺序解析时一样
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private void buildMapper(String resource, ParsedMapper parsed) {
+    long start = System.nanoTime();
+    XMLMapperBuilder mapperBuilder = new XMLMapperBuilder(parsed.parser, configuration, resource, configuration.getSqlFragments());
+    mapperBuilder.parse();
+    configuration.addMapperLoadTime(new MapperLoadTime(resource, parsed.parseTime, System.nanoTime() - start, parsed.fromSnapshot));
+  }
+
+  private void logMapperLoadTimes() {
+    Log log = LogFactory.getLog(XMLConfigBuilder.class);
+    if (log.isDebugEnabled()) {
+      for (MapperLoadTime mapperLoadTime : configuration.getMapperLoadTimes()) {
+        log.debug("Loaded mapper " + mapperLoadTime);
+      }
+    }
+  }
+
+  //解析好的映射文件，和解析花的时间
+  private static class ParsedMapper {
+
+    private final XPathParser parser;
+    private final long parseTime;
+    private final boolean fromSnapshot;
+
+    ParsedMapper(XPathParser parser, long parseTime, boolean fromSnapshot) {
+      this.parser = parser;
+      this.parseTime = parseTime;
+      this.fromSnapshot = fromSnapshot;
+    }
+  }
+
+  private static class MapperParsingThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "mybatis-mapper-parser-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+
 	//比较id和environment是否相等
   private boolean isSpecifiedEnvironment(String id) {
     if (environment == null) {
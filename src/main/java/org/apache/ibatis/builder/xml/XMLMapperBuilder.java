@@ -33,6 +33,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -85,7 +86,10 @@ public class XMLMapperBuilder extends BaseBuilder {
         configuration, resource, sqlFragments);
   }
 
-  private XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+  /*
+   * Builds a mapper from an already parsed document, e.g. one parsed on another thread.
+   */
+  public XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
     super(configuration);
     this.builderAssistant = new MapperBuilderAssistant(configuration, resource);
     this.parser = parser;
@@ -251,16 +255,22 @@ public class XMLMapperBuilder extends BaseBuilder {
     String eviction = context.getStringAttribute("eviction", "LRU");
     Class<? extends Cache> evictionClass = typeAliasRegistry.resolveAlias(eviction);
     Long flushInterval = context.getLongAttribute("flushInterval");
+    //每个条目的存活时间，refreshAhead=true时快过期的条目会在后台重新加载
+    Long timeToLive = context.getLongAttribute("timeToLive");
+    boolean refreshAhead = context.getBooleanAttribute("refreshAhead", false);
     Integer size = context.getIntAttribute("size");
     boolean readWrite = !context.getBooleanAttribute("readOnly", false);
     boolean blocking = context.getBooleanAttribute("blocking", false);
+    //可读写的缓存怎么复制对象：JAVA(默认)、COMPACT，或者自己实现的CacheSerializer
+    Class<? extends CacheSerializer> serializerClass = typeAliasRegistry.resolveAlias(context.getStringAttribute("serializer"));
+    boolean compress = context.getBooleanAttribute("compress", false);
     //读入额外的配置信息，易于第三方的缓存扩展,例:
 //    <cache type="com.domain.something.MyCustomCache">
 //      <property name="cacheFile" value="/tmp/my-custom-cache.tmp"/>
 //    </cache>
     Properties props = context.getChildrenAsProperties();
     //调用builderAssistant.useNewCache
-    builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+    builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, timeToLive, refreshAhead, size, readWrite, blocking, serializerClass, compress, props);
 
 
   }
@@ -0,0 +1,312 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A file holding the already validated documents of the mapper XML files, in a compact binary form.
+ * Loading a mapper from the snapshot skips reading the XML, DTD validation and entity resolution.
+ * Every document is stored with the checksum of the mapper file it was parsed from, so a changed
+ * mapper is parsed again and the snapshot is rewritten.
+ */
+/**
+ * 映射器XML的快照
+ * 把解析、校验过的映射器DOM以紧凑的二进制格式存到一个文件里，下次启动时直接还原成DOM，不用再解析XML、校验DTD
+ * 每个文档都存了原文件的CRC32，文件变了就重新解析，解析完以后重写快照
+ * 只缓存DOM，语句、结果映射等还是每次启动时建，所以插件、代码里注册的TypeHandler等都和不用快照时一样
+ */
+final class XMLMapperSnapshot {
+
+  private static final Log log = LogFactory.getLog(XMLMapperSnapshot.class);
+
+  //文件头"MBSS"
+  private static final int MAGIC = 0x4D425353;
+  //格式改了就加1，旧的快照会被忽略
+  private static final int VERSION = 1;
+
+  private static final byte END = 0;
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte CDATA = 3;
+
+  private final File file;
+  //从文件里读出来的
+  private final Map<String, Entry> entries;
+  //这次启动用到的，重写快照时只写这些
+  private final ConcurrentMap<String, Entry> usedEntries = new ConcurrentHashMap<String, Entry>();
+  private volatile boolean changed;
+
+  private XMLMapperSnapshot(File file, Map<String, Entry> entries) {
+    this.file = file;
+    this.entries = entries;
+  }
+
+  /*
+   * Reads the snapshot. A missing, unreadable or outdated snapshot is treated as empty.
+   */
+  static XMLMapperSnapshot open(String path) {
+    File file = new File(path);
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    if (file.isFile()) {
+      try {
+        entries = read(file);
+      } catch (IOException e) {
+        log.warn("Ignoring mapper snapshot " + file + ". Cause: " + e);
+      }
+    }
+    return new XMLMapperSnapshot(file, entries);
+  }
+
+  static long checksum(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  static byte[] readFully(InputStream inputStream) throws IOException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = inputStream.read(buffer)) >= 0) {
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /*
+   * @return the document of the mapper, or null if it is not in the snapshot or the mapper has changed
+   */
+  Document getDocument(String location, long checksum) {
+    Entry entry = entries.get(location);
+    if (entry == null || entry.checksum != checksum) {
+      return null;
+    }
+    try {
+      Document document = decode(entry.data);
+      usedEntries.put(location, entry);
+      return document;
+    } catch (IOException e) {
+      log.warn("Ignoring snapshot of mapper " + location + ". Cause: " + e);
+      return null;
+    }
+  }
+
+  /*
+   * Adds a freshly parsed document. Must be called before the document is built, since building it modifies it.
+   */
+  void putDocument(String location, long checksum, Document document) {
+    try {
+      usedEntries.put(location, new Entry(checksum, encode(document)));
+      changed = true;
+    } catch (IOException e) {
+      log.warn("Could not add mapper " + location + " to the snapshot. Cause: " + e);
+    }
+  }
+
+  /*
+   * Rewrites the snapshot if a mapper was added, changed or removed. Failures are only logged.
+   */
+  void save() {
+    if (!changed && usedEntries.size() == entries.size()) {
+      return;
+    }
+    File tempFile = new File(file.getPath() + ".tmp");
+    try {
+      write(tempFile, usedEntries);
+      //先写临时文件再改名，别的进程不会读到写了一半的快照
+      if (!tempFile.renameTo(file)) {
+        file.delete();
+        if (!tempFile.renameTo(file)) {
+          throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+      }
+    } catch (IOException e) {
+      tempFile.delete();
+      log.warn("Could not write mapper snapshot " + file + ". Cause: " + e);
+    }
+  }
+
+  private static Map<String, Entry> read(File file) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a mapper snapshot");
+      }
+      if (in.readInt() != VERSION) {
+        throw new IOException("Unsupported snapshot version");
+      }
+      int size = in.readInt();
+      Map<String, Entry> entries = new HashMap<String, Entry>(size * 2);
+      for (int i = 0; i < size; i++) {
+        String location = in.readUTF();
+        long checksum = in.readLong();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        entries.put(location, new Entry(checksum, data));
+      }
+      return entries;
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void write(File file, Map<String, Entry> entries) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue().checksum);
+        out.writeInt(entry.getValue().data.length);
+        out.write(entry.getValue().data);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  //只存元素、属性、文本和CDATA，注释之类的XMLMapperBuilder本来也用不到
+  private static byte[] encode(Document document) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    encodeElement(document.getDocumentElement(), out);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static void encodeElement(Element element, DataOutputStream out) throws IOException {
+    out.writeByte(ELEMENT);
+    out.writeUTF(element.getTagName());
+    NamedNodeMap attributes = element.getAttributes();
+    out.writeShort(attributes.getLength());
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Node attribute = attributes.item(i);
+      out.writeUTF(attribute.getNodeName());
+      writeString(attribute.getNodeValue(), out);
+    }
+    NodeList children = element.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        encodeElement((Element) child, out);
+      } else if (child.getNodeType() == Node.CDATA_SECTION_NODE) {
+        out.writeByte(CDATA);
+        writeString(child.getNodeValue(), out);
+      } else if (child.getNodeType() == Node.TEXT_NODE) {
+        out.writeByte(TEXT);
+        writeString(child.getNodeValue(), out);
+      }
+    }
+    out.writeByte(END);
+  }
+
+  private static Document decode(byte[] data) throws IOException {
+    Document document;
+    try {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    if (in.readByte() != ELEMENT) {
+      throw new IOException("Corrupted mapper snapshot");
+    }
+    document.appendChild(decodeElement(document, in));
+    return document;
+  }
+
+  private static Element decodeElement(Document document, DataInputStream in) throws IOException {
+    Element element = document.createElement(in.readUTF());
+    int attributes = in.readShort();
+    for (int i = 0; i < attributes; i++) {
+      element.setAttribute(in.readUTF(), readString(in));
+    }
+    byte type;
+    while ((type = in.readByte()) != END) {
+      if (type == ELEMENT) {
+        element.appendChild(decodeElement(document, in));
+      } else if (type == TEXT) {
+        element.appendChild(document.createTextNode(readString(in)));
+      } else if (type == CDATA) {
+        element.appendChild(document.createCDATASection(readString(in)));
+      } else {
+        throw new IOException("Corrupted mapper snapshot");
+      }
+    }
+    return element;
+  }
+
+  //writeUTF最多只能写64K，SQL文本可能更长
+  private static void writeString(String value, DataOutputStream out) throws IOException {
+    byte[] bytes = value.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  private static class Entry {
+
+    private final long checksum;
+    private final byte[] data;
+
+    Entry(long checksum, byte[] data) {
+      this.checksum = checksum;
+      this.data = data;
+    }
+  }
+
+}
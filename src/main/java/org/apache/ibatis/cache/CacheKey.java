@@ -17,8 +17,7 @@ package org.apache.ibatis.cache;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * @author Clinton Begin
@@ -27,27 +26,29 @@ import java.util.List;
  * 缓存key
  * 一般缓存框架的数据结构基本上都是 Key-Value 方式存储，
  * MyBatis 对于其 Key 的生成采取规则为：[mappedStementId + offset + limit + SQL + queryParams + environment]生成一个哈希码
+ * 元素放在预先分配好大小的数组里(不再用ArrayList)，hash是64位的，比较时先比数量和hash，再逐个比元素(先比引用)
+ * 同一个语句的前缀(id、offset、limit)可以先算好，再用 CacheKey(CacheKey, int) 复制出来接着update
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1649376327485310153L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long DEFAULT_HASH = 17L;
+  //黄金分割数，乘上去能把低位的差别扩散到高位
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+  private static final Object[] EMPTY = new Object[0];
 
-  private int multiplier;
-  private int hashcode;
-  private long checksum;
+  private long hash;
   private int count;
-  private List<Object> updateList;
+  private Object[] updateList;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this.hash = DEFAULT_HASH;
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.updateList = EMPTY;
   }
 
   //传入一个Object数组，更新hashcode和效验码
@@ -56,8 +57,19 @@ public class CacheKey implements Cloneable, Serializable {
     updateAll(objects);
   }
 
+  /*
+   * Copies the elements already added to the prefix and leaves room for expectedUpdates more,
+   * so that a key built in one go never has to grow.
+   */
+  //复制一个前缀，再预留expectedUpdates个位置
+  public CacheKey(CacheKey prefix, int expectedUpdates) {
+    this.hash = prefix.hash;
+    this.count = prefix.count;
+    this.updateList = Arrays.copyOf(prefix.updateList, prefix.count + Math.max(expectedUpdates, 0));
+  }
+
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
@@ -75,17 +87,16 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   private void doUpdate(Object object) {
-    //计算hash值，校验码
+    //计算hash值，和位置有关，所以同样的元素换个顺序hash就不一样了
     int baseHashCode = object == null ? 1 : object.hashCode();
+    long h = (hash ^ baseHashCode) * MULTIPLIER + count;
+    hash = h ^ (h >>> 29);
 
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    //同时将对象加入列表，这样万一两个CacheKey的hash码碰巧一样，再根据对象严格equals来区分
-    updateList.add(object);
+    //同时将对象加入数组，这样万一两个CacheKey的hash码碰巧一样，再根据对象严格equals来区分
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, Math.max(DEFAULT_CAPACITY, count << 1));
+    }
+    updateList[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -105,30 +116,24 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    //先比hashcode，checksum，count，理论上可以快速比出来
-    if (hashcode != cacheKey.hashcode) {
+    //先比count和64位的hash，理论上可以快速比出来
+    if (count != cacheKey.count) {
       return false;
     }
-    if (checksum != cacheKey.checksum) {
-      return false;
-    }
-    if (count != cacheKey.count) {
+    if (hash != cacheKey.hash) {
       return false;
     }
 
     //万一两个CacheKey的hash码碰巧一样，再根据对象严格equals来区分
-    //这里两个list的size没比是否相等，其实前面count相等就已经保证了
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (thisObject == null) {
-        if (thatObject != null) {
-          return false;
-        }
-      } else {
-        if (!thisObject.equals(thatObject)) {
-          return false;
-        }
+    //语句id、静态SQL(以及缓存了形状的动态SQL)都是同一个String实例，先比引用就不用逐字符比较了
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject == thatObject) {
+        continue;
+      }
+      if (thisObject == null || !thisObject.equals(thatObject)) {
+        return false;
       }
     }
     return true;
@@ -136,14 +141,14 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (int i = 0; i < updateList.size(); i++) {
-      returnValue.append(':').append(updateList.get(i));
+    StringBuilder returnValue = new StringBuilder().append(hashCode()).append(':').append(hash);
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(updateList[i]);
     }
 
     return returnValue.toString();
@@ -152,7 +157,7 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    clonedCacheKey.updateList = Arrays.copyOf(updateList, updateList.length);
     return clonedCacheKey;
   }
 
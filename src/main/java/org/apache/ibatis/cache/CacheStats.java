@@ -0,0 +1,118 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * A snapshot of the statistics of a cache. Times are in nanoseconds, -1 means unknown.
+ */
+/**
+ * 缓存统计的快照(不可变)
+ */
+public final class CacheStats {
+
+  private final String id;
+  private final long hitCount;
+  private final long missCount;
+  private final long putCount;
+  private final long evictionCount;
+  private final long loadCount;
+  private final long totalLoadTime;
+  private final int size;
+  private final long estimatedBytes;
+
+  public CacheStats(String id, long hitCount, long missCount, long putCount, long evictionCount, long loadCount,
+      long totalLoadTime, int size, long estimatedBytes) {
+    this.id = id;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.putCount = putCount;
+    this.evictionCount = evictionCount;
+    this.loadCount = loadCount;
+    this.totalLoadTime = totalLoadTime;
+    this.size = size;
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  /*
+   * @return the statistics of a cache built by MyBatis, null if the cache does not record any
+   */
+  public static CacheStats of(Cache cache) {
+    if (cache instanceof StatsCounterProvider) {
+      StatsCounter counter = ((StatsCounterProvider) cache).getStatsCounter();
+      if (counter != null) {
+        return counter.snapshot(cache.getId(), cache.getSize());
+      }
+    }
+    return null;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  public double getHitRatio() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 0 : (double) hitCount / (double) requestCount;
+  }
+
+  public long getPutCount() {
+    return putCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getLoadCount() {
+    return loadCount;
+  }
+
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  public double getAverageLoadPenalty() {
+    return loadCount == 0 ? 0 : (double) totalLoadTime / (double) loadCount;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats[" + id + "]: hits=" + hitCount + ", misses=" + missCount + ", hitRatio=" + getHitRatio()
+        + ", puts=" + putCount + ", evictions=" + evictionCount + ", loads=" + loadCount
+        + ", totalLoadTime=" + totalLoadTime + "ns, size=" + size + ", estimatedBytes=" + estimatedBytes;
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.MBeanRegistration;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The MBean only holds weak references to the cache and its counter, so that registering it does not keep
+ * a discarded Configuration and its caches reachable from the MBeanServer. MBeans whose cache has been
+ * collected are unregistered by {@link #unregisterCollected()} and when they are read.
+ *
+ * @see CacheStatsMXBean
+ */
+/**
+ * 缓存统计的JMX实现，每次读属性都重新取一次快照
+ * MBeanServer是全局的，这里只弱引用缓存和计数器，否则Configuration丢掉以后缓存(和里面的数据)永远回收不了
+ * 缓存被回收了的MBean，在读属性或者注册新MBean(unregisterCollected)时注销掉
+ */
+public class CacheStatsMBean implements CacheStatsMXBean, MBeanRegistration {
+
+  //已经注册的，用来找出缓存已经被回收了的
+  private static final Set<CacheStatsMBean> registered = new HashSet<CacheStatsMBean>();
+
+  private final String id;
+  private final WeakReference<StatsCounter> counter;
+  //一级缓存没有对应的Cache对象，这时为null，大小未知
+  private final WeakReference<Cache> cache;
+  private MBeanServer server;
+  private ObjectName name;
+
+  public CacheStatsMBean(Cache cache, StatsCounter counter) {
+    this(cache.getId(), cache, counter);
+  }
+
+  public CacheStatsMBean(String id, StatsCounter counter) {
+    this(id, null, counter);
+  }
+
+  private CacheStatsMBean(String id, Cache cache, StatsCounter counter) {
+    this.id = id;
+    this.cache = cache == null ? null : new WeakReference<Cache>(cache);
+    this.counter = new WeakReference<StatsCounter>(counter);
+  }
+
+  /*
+   * Unregisters the MBeans whose cache or counter has been garbage collected.
+   */
+  public static void unregisterCollected() {
+    List<CacheStatsMBean> collected = new ArrayList<CacheStatsMBean>();
+    synchronized (registered) {
+      for (CacheStatsMBean mbean : registered) {
+        if (mbean.isCollected()) {
+          collected.add(mbean);
+        }
+      }
+    }
+    for (CacheStatsMBean mbean : collected) {
+      mbean.unregister();
+    }
+  }
+
+  public CacheStats getStats() {
+    StatsCounter statsCounter = counter.get();
+    Cache statsCache = cache == null ? null : cache.get();
+    if (statsCounter == null || (cache != null && statsCache == null)) {
+      unregister();
+      return new StatsCounter().snapshot(id, 0);
+    }
+    return statsCounter.snapshot(id, statsCache == null ? -1 : statsCache.getSize());
+  }
+
+  private boolean isCollected() {
+    return counter.get() == null || (cache != null && cache.get() == null);
+  }
+
+  private void unregister() {
+    MBeanServer mbeanServer;
+    ObjectName mbeanName;
+    synchronized (this) {
+      mbeanServer = server;
+      mbeanName = name;
+    }
+    if (mbeanServer != null) {
+      try {
+        mbeanServer.unregisterMBean(mbeanName);
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+  }
+
+  @Override
+  public synchronized ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+    this.server = server;
+    this.name = name;
+    return name;
+  }
+
+  @Override
+  public void postRegister(Boolean registrationDone) {
+    if (Boolean.TRUE.equals(registrationDone)) {
+      synchronized (registered) {
+        registered.add(this);
+      }
+    }
+  }
+
+  @Override
+  public void preDeregister() throws Exception {
+    // nothing to do
+  }
+
+  @Override
+  public void postDeregister() {
+    synchronized (registered) {
+      registered.remove(this);
+    }
+    synchronized (this) {
+      server = null;
+      name = null;
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getHitCount() {
+    return getStats().getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return getStats().getMissCount();
+  }
+
+  @Override
+  public double getHitRatio() {
+    return getStats().getHitRatio();
+  }
+
+  @Override
+  public long getPutCount() {
+    return getStats().getPutCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return getStats().getEvictionCount();
+  }
+
+  @Override
+  public long getLoadCount() {
+    return getStats().getLoadCount();
+  }
+
+  @Override
+  public long getTotalLoadTime() {
+    return getStats().getTotalLoadTime();
+  }
+
+  @Override
+  public double getAverageLoadPenalty() {
+    return getStats().getAverageLoadPenalty();
+  }
+
+  @Override
+  public int getSize() {
+    return getStats().getSize();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return getStats().getEstimatedBytes();
+  }
+
+  @Override
+  public void resetStatistics() {
+    StatsCounter statsCounter = counter.get();
+    if (statsCounter != null) {
+      statsCounter.reset();
+    }
+  }
+
+}
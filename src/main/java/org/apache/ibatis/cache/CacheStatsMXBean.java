@@ -0,0 +1,50 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * JMX view of the statistics of a cache, registered when the <code>cacheStatisticsJmxEnabled</code> setting is on.
+ */
+/**
+ * 缓存统计的JMX接口，打开cacheStatisticsJmxEnabled以后每个缓存注册一个
+ */
+public interface CacheStatsMXBean {
+
+  String getId();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRatio();
+
+  long getPutCount();
+
+  long getEvictionCount();
+
+  long getLoadCount();
+
+  long getTotalLoadTime();
+
+  double getAverageLoadPenalty();
+
+  int getSize();
+
+  long getEstimatedBytes();
+
+  void resetStatistics();
+
+}
@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the cache tags (usually table names) declared by the statements with the cacheTags attribute.
+ * An entry cached by a tagged select remembers the versions of its tags when it was read, a tagged
+ * insert/update/delete increments the versions of its tags on commit, so only the entries carrying one
+ * of those tags, in any namespace, become stale. The untagged entries of a cache that has tagged writers carry
+ * a tag of their own, which those writers invalidate as well, so they still see the writes of their namespace.
+ */
+/**
+ * 缓存标签的版本号，每个Configuration一个
+ * 带cacheTags的select放进二级缓存的值会带上查询前各个标签的版本号，
+ * 带cacheTags的增删改提交时把自己的标签版本号加一，这样只有带这些标签的条目(不管在哪个namespace)失效，不用清空整个namespace
+ * 有带标签的增删改的缓存里，不带标签的select放进去的条目挂在这个缓存自己的标签上，这些增删改也让它失效
+ * 版本号只在本JVM里，分布式缓存的其他节点看不到
+ */
+public class CacheTagRegistry {
+
+  private static final String UNTAGGED_ENTRIES_SUFFIX = "#untagged";
+
+  private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+  //缓存id -> 这个缓存里不带标签的条目用的标签
+  private final ConcurrentMap<String, String[]> untaggedEntryTags = new ConcurrentHashMap<String, String[]>();
+
+  /*
+   * Records that a tagged insert/update/delete writes to the cache, from now on the untagged entries of the cache
+   * are tagged with getUntaggedEntryTags.
+   */
+  public void addTaggedWriter(Cache cache) {
+    String[] tags = new String[] { cache.getId() + UNTAGGED_ENTRIES_SUFFIX };
+    if (untaggedEntryTags.putIfAbsent(cache.getId(), tags) == null) {
+      //之前放进去的条目没带标签，失效不了，直接清掉
+      cache.clear();
+    }
+  }
+
+  /*
+   * @return the tag of the untagged entries of the cache, or null if no tagged insert/update/delete writes to it
+   */
+  public String[] getUntaggedEntryTags(Cache cache) {
+    return untaggedEntryTags.get(cache.getId());
+  }
+
+  public long[] getVersions(String[] tags) {
+    long[] result = new long[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      result[i] = getVersion(tags[i]).get();
+    }
+    return result;
+  }
+
+  public void invalidate(Collection<String> tags) {
+    for (String tag : tags) {
+      getVersion(tag).incrementAndGet();
+    }
+  }
+
+  /*
+   * Wraps a value to be cached with the versions its tags had before it was read.
+   */
+  public Object tag(String[] tags, long[] tagVersions, Object value) {
+    return value == null ? null : new TaggedValue(tags, tagVersions, value);
+  }
+
+  /*
+   * @return the value, or null if one of its tags has been invalidated since it was read
+   */
+  public Object untag(Object cached) {
+    if (!(cached instanceof TaggedValue)) {
+      return cached;
+    }
+    TaggedValue taggedValue = (TaggedValue) cached;
+    for (int i = 0; i < taggedValue.tags.length; i++) {
+      if (getVersion(taggedValue.tags[i]).get() != taggedValue.versions[i]) {
+        return null;
+      }
+    }
+    return taggedValue.value;
+  }
+
+  private AtomicLong getVersion(String tag) {
+    AtomicLong version = versions.get(tag);
+    if (version == null) {
+      AtomicLong newVersion = new AtomicLong();
+      version = versions.putIfAbsent(tag, newVersion);
+      if (version == null) {
+        version = newVersion;
+      }
+    }
+    return version;
+  }
+
+  private static class TaggedValue implements Serializable {
+
+    private static final long serialVersionUID = 5816297830127405613L;
+
+    private final String[] tags;
+    private final long[] versions;
+    private final Object value;
+
+    TaggedValue(String[] tags, long[] versions, Object value) {
+      this.tags = tags;
+      this.versions = versions;
+      this.value = value;
+    }
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * A cache that can tell its caller that an entry is about to expire and should be reloaded in the background.
+ * Decorators forward the call to the cache they wrap.
+ */
+/**
+ * 支持提前刷新的缓存
+ * 快过期(但还没过期)的条目照样返回给调用者，同时让第一个读到它的调用者去后台重新加载一次，
+ * 这样条目过期时已经换成新值了，不会一到点大家一起查数据库
+ */
+public interface RefreshAheadCache extends Cache {
+
+  /*
+   * Returns true, at most once per entry, when the entry cached under the key should be reloaded now.
+   * The caller that gets true is expected to reload the value and putObject it; if it doesn't, the entry
+   * simply expires at the end of its time to live.
+   */
+  //只有第一个调用者返回true，它负责重新加载并putObject
+  boolean claimRefresh(Object key);
+
+}
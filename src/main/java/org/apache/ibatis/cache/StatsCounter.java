@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the statistics of a cache without locking.
+ * <p>
+ * Every metric is striped over several counters, each thread adds to the stripe picked by its id and the
+ * stripes are summed when a snapshot is taken. Stripes are padded so that threads updating different stripes
+ * do not share a cache line.
+ */
+/**
+ * 缓存统计计数器
+ * 原来LoggingCache用两个不加锁的int计数，多线程下会少算；全加锁或者一个AtomicLong，所有线程又会抢同一个缓存行
+ * 这里每个指标按线程分成几段(stripe)，各线程加各自那段，取快照的时候再加起来
+ */
+public class StatsCounter {
+
+  private static final int HITS = 0;
+  private static final int MISSES = 1;
+  private static final int PUTS = 2;
+  private static final int EVICTIONS = 3;
+  private static final int LOAD_TIME = 4;
+  private static final int LOADS = 5;
+  private static final int VALUE_BYTES = 6;
+  private static final int VALUES = 7;
+  //每段16个long(128字节)，前8个是指标，后面是填充，保证不同段不在同一个缓存行
+  private static final int STRIPE_WIDTH = 16;
+  private static final int STRIPES = stripes();
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+  public void recordHit() {
+    add(HITS, 1);
+  }
+
+  public void recordMiss() {
+    add(MISSES, 1);
+  }
+
+  public void recordPut() {
+    add(PUTS, 1);
+  }
+
+  public void recordEviction() {
+    add(EVICTIONS, 1);
+  }
+
+  public void recordEvictions(int count) {
+    add(EVICTIONS, count);
+  }
+
+  /*
+   * Time spent loading a missing value, usually the query that is run on a cache miss.
+   */
+  public void recordLoad(long nanos) {
+    add(LOADS, 1);
+    add(LOAD_TIME, nanos);
+  }
+
+  /*
+   * Size of a stored value, recorded by caches that store serialized values. Used to estimate the bytes held.
+   */
+  public void recordValueBytes(int bytes) {
+    add(VALUES, 1);
+    add(VALUE_BYTES, bytes);
+  }
+
+  public void reset() {
+    for (int i = 0; i < cells.length(); i++) {
+      cells.set(i, 0);
+    }
+  }
+
+  /*
+   * @param size the current number of entries, or -1 if it is not known
+   */
+  public CacheStats snapshot(String id, int size) {
+    long values = sum(VALUES);
+    //按平均每个值的字节数估算，没有序列化的缓存不知道大小
+    long estimatedBytes = values == 0 || size < 0 ? -1 : sum(VALUE_BYTES) / values * size;
+    return new CacheStats(id, sum(HITS), sum(MISSES), sum(PUTS), sum(EVICTIONS), sum(LOADS), sum(LOAD_TIME), size, estimatedBytes);
+  }
+
+  private void add(int metric, long value) {
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    cells.getAndAdd(stripe * STRIPE_WIDTH + metric, value);
+  }
+
+  private long sum(int metric) {
+    long sum = 0;
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      sum += cells.get(stripe * STRIPE_WIDTH + metric);
+    }
+    return sum;
+  }
+
+  //不少于CPU个数的2的幂，最多64段
+  private static int stripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int stripes = 1;
+    while (stripes < processors && stripes < 64) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+
+}
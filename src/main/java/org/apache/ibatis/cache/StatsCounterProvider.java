@@ -0,0 +1,32 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Implemented by the caches that record statistics, and by the decorators that wrap them, so the statistics
+ * can be reached from the outermost cache returned by {@link org.apache.ibatis.session.Configuration#getCaches()}.
+ *
+ * @see CacheStats#of(Cache)
+ */
+/**
+ * 能拿到统计计数器的缓存
+ * 二级缓存外面套了好几层装饰者，最外面那层也得能把计数器交出来
+ */
+public interface StatsCounterProvider {
+
+  StatsCounter getStatsCounter();
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * The source of the current time for the caches that expire entries.
+ * Tests replace it to move time forward without sleeping.
+ */
+/**
+ * 缓存用的时钟
+ * ScheduledCache判断过期、提前刷新都问它要当前时间，默认就是System.currentTimeMillis()
+ */
+public interface Ticker {
+
+  Ticker SYSTEM = new Ticker() {
+    @Override
+    public long currentTimeMillis() {
+      return System.currentTimeMillis();
+    }
+  };
+
+  long currentTimeMillis();
+
+}
@@ -16,7 +16,9 @@
 package org.apache.ibatis.cache;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
 
@@ -31,11 +33,34 @@ public class TransactionalCacheManager {
 
   //管理了许多TransactionalCache
   private Map<Cache, TransactionalCache> transactionalCaches = new HashMap<Cache, TransactionalCache>();
+  //commit时要失效的缓存标签
+  private Set<String> tagsToInvalidateOnCommit = new HashSet<String>();
+  private CacheTagRegistry tagRegistry;
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
   }
 
+  //带cacheTags的增删改不清空namespace，只在commit时让这些标签失效
+  public void invalidate(CacheTagRegistry tagRegistry, String[] tags) {
+    this.tagRegistry = tagRegistry;
+    for (String tag : tags) {
+      tagsToInvalidateOnCommit.add(tag);
+    }
+  }
+
+  //本事务里已经改过这些标签了，缓存里的值对本事务来说是旧的
+  public boolean isInvalidated(String[] tags) {
+    if (!tagsToInvalidateOnCommit.isEmpty()) {
+      for (String tag : tags) {
+        if (tagsToInvalidateOnCommit.contains(tag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   //得到某个TransactionalCache的值
   public Object getObject(Cache cache, CacheKey key) {
     return getTransactionalCache(cache).getObject(key);
@@ -47,6 +72,11 @@ public class TransactionalCacheManager {
 
   //提交时全部提交
   public void commit() {
+    //先让标签失效，本事务里查出来放进缓存的条目带的是旧版本号，也跟着失效
+    if (!tagsToInvalidateOnCommit.isEmpty()) {
+      tagRegistry.invalidate(tagsToInvalidateOnCommit);
+      tagsToInvalidateOnCommit.clear();
+    }
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
     }
@@ -54,6 +84,7 @@ public class TransactionalCacheManager {
 
   //回滚时全部回滚
   public void rollback() {
+    tagsToInvalidateOnCommit.clear();
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
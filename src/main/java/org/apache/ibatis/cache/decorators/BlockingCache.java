@@ -22,6 +22,9 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.StatsCounterProvider;
 import org.apache.ibatis.cache.CacheException;
 
 /**
@@ -34,7 +37,7 @@ import org.apache.ibatis.cache.CacheException;
  * @author Eduardo Macarron
  *
  */
-public class BlockingCache implements Cache {
+public class BlockingCache implements RefreshAheadCache, StatsCounterProvider {
 
   private long timeout;
   private final Cache delegate;
@@ -55,6 +58,16 @@ public class BlockingCache implements Cache {
     return delegate.getSize();
   }
 
+  @Override
+  public boolean claimRefresh(Object key) {
+    return delegate instanceof RefreshAheadCache && ((RefreshAheadCache) delegate).claimRefresh(key);
+  }
+
+  @Override
+  public StatsCounter getStatsCounter() {
+    return delegate instanceof StatsCounterProvider ? ((StatsCounterProvider) delegate).getStatsCounter() : null;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     try {
@@ -113,7 +126,8 @@ public class BlockingCache implements Cache {
   
   private void releaseLock(Object key) {
     ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
+    //提前刷新时是后台线程直接putObject的，它没有拿过锁
+    if (lock != null && lock.isHeldByCurrentThread()) {
       lock.unlock();
     }
   }
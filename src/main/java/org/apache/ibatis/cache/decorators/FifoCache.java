@@ -20,6 +20,7 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.StatsCounter;
 
 /**
  * FIFO (first in, first out) cache decorator
@@ -35,6 +36,7 @@ public class FifoCache implements Cache {
   private final Cache delegate;
   private Deque<Object> keyList;
   private int size;
+  private StatsCounter statsCounter;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
@@ -52,6 +54,10 @@ public class FifoCache implements Cache {
     return delegate.getSize();
   }
 
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
   public void setSize(int size) {
     this.size = size;
   }
@@ -89,6 +95,9 @@ public class FifoCache implements Cache {
     if (keyList.size() > size) {
       Object oldestKey = keyList.removeFirst();
       delegate.removeObject(oldestKey);
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
     }
   }
 
@@ -18,28 +18,42 @@ package org.apache.ibatis.cache.decorators;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.logging.Log;
-import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.StatsCounterProvider;
 
 /**
+ * Records hits, misses and puts in a {@link StatsCounter}. The hit ratio is no longer logged on every
+ * access, read it with {@link org.apache.ibatis.cache.CacheStats#of(Cache)} or through JMX instead.
+ * The protected <code>requests</code> and <code>hits</code> fields have been replaced by the counter,
+ * subclasses should use {@link #getStatsCounter()}.
+ *
  * @author Clinton Begin
  */
 /**
  * 日志缓存
- * 添加功能：取缓存时打印命中率
+ * 添加功能：统计命中、未命中、put的次数(StatsCounter，多线程下不会少算)
+ * 以前每次取缓存都在debug级别打印命中率，现在不打了，要看命中率用CacheStats或者JMX
+ * 原来的protected字段requests、hits没有了，子类改用getStatsCounter()
  *
  */
-public class LoggingCache implements Cache {
+public class LoggingCache implements RefreshAheadCache, StatsCounterProvider {
 
-  //用的mybatis自己的抽象Log
-  private Log log;  
   private Cache delegate;
-  protected int requests = 0;
-  protected int hits = 0;
+  private StatsCounter statsCounter = new StatsCounter();
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
-    this.log = LogFactory.getLog(getId());
+  }
+
+  //CacheBuilder让同一个缓存的各层装饰者共用一个计数器(淘汰次数是淘汰策略那层记的)
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  @Override
+  public StatsCounter getStatsCounter() {
+    return statsCounter;
   }
 
   @Override
@@ -52,24 +66,24 @@ public class LoggingCache implements Cache {
     return delegate.getSize();
   }
 
+  @Override
+  public boolean claimRefresh(Object key) {
+    return delegate instanceof RefreshAheadCache && ((RefreshAheadCache) delegate).claimRefresh(key);
+  }
+
   @Override
   public void putObject(Object key, Object object) {
     delegate.putObject(key, object);
+    statsCounter.recordPut();
   }
 
-  //目的就是getObject时，打印命中率
   @Override
   public Object getObject(Object key) {
-      //访问一次requests加一
-    requests++;
     final Object value = delegate.getObject(key);
-    //命中了则hits加一
     if (value != null) {
-      hits++;
-    }
-    if (log.isDebugEnabled()) {
-        //就是打印命中率 hits/requests
-      log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
+      statsCounter.recordHit();
+    } else {
+      statsCounter.recordMiss();
     }
     return value;
   }
@@ -99,8 +113,4 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private double getHitRatio() {
-    return (double) hits / (double) requests;
-  }
-
 }
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.StatsCounter;
 
 /**
  * Lru (first in, first out) cache decorator
@@ -36,6 +37,8 @@ public class LruCache implements Cache {
   //额外用了一个map才做lru，但是委托的Cache里面其实也是一个map，这样等于用2倍的内存实现lru功能
   private Map<Object, Object> keyMap;
   private Object eldestKey;
+  //记录淘汰次数，CacheBuilder设置，单独使用时为null
+  private StatsCounter statsCounter;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -52,6 +55,10 @@ public class LruCache implements Cache {
     return delegate.getSize();
   }
 
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
   public void setSize(final int size) {
     keyMap = new LinkedHashMap<Object, Object>(size, .75F, true) {
       private static final long serialVersionUID = 4267176411845948333L;
@@ -108,6 +115,9 @@ public class LruCache implements Cache {
     if (eldestKey != null) {
       delegate.removeObject(eldestKey);
       eldestKey = null;
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
     }
   }
 
@@ -15,9 +15,14 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.io.Serializable;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.Ticker;
 
 /**
  * @author Clinton Begin
@@ -25,25 +30,62 @@ import org.apache.ibatis.cache.Cache;
 /**
  * 定时调度缓存
  * 目的是每一小时清空一下缓存
- *
+ * 也可以给每个条目单独设置存活时间(timeToLive)，每个条目的存活时间上下浮动jitterRatio，免得同一时刻放进去的条目同时过期
+ * 打开refreshAhead后，条目活过refreshAheadRatio的时间就算快过期了，照样返回，同时让一个调用者去后台重新加载(见claimRefresh)
  */
-public class ScheduledCache implements Cache {
+public class ScheduledCache implements RefreshAheadCache {
+
+  private static final Random JITTER = new Random();
 
   private Cache delegate;
+  private Ticker ticker = Ticker.SYSTEM;
   protected long clearInterval;
   protected long lastClear;
+  protected long timeToLive;
+  protected boolean refreshAhead;
+  protected double refreshAheadRatio = 0.75;
+  protected double jitterRatio = 0.1;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
     //1小时清空一次缓存
     this.clearInterval = 60 * 60 * 1000; // 1 hour
-    this.lastClear = System.currentTimeMillis();
+    this.lastClear = ticker.currentTimeMillis();
+  }
+
+  //换时钟要重新从现在算下次整体清空的时间
+  public void setTicker(Ticker ticker) {
+    this.ticker = ticker;
+    this.lastClear = ticker.currentTimeMillis();
   }
 
   public void setClearInterval(long clearInterval) {
     this.clearInterval = clearInterval;
   }
 
+  //每个条目的存活时间(毫秒)，0表示不按条目过期
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public void setRefreshAhead(boolean refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public void setRefreshAheadRatio(double refreshAheadRatio) {
+    if (refreshAheadRatio <= 0 || refreshAheadRatio >= 1) {
+      throw new IllegalArgumentException("refreshAheadRatio must be between 0 and 1 (exclusive) but was " + refreshAheadRatio);
+    }
+    this.refreshAheadRatio = refreshAheadRatio;
+  }
+
+  public void setJitterRatio(double jitterRatio) {
+    if (jitterRatio < 0 || jitterRatio >= 1) {
+      throw new IllegalArgumentException("jitterRatio must be at least 0 and less than 1 but was " + jitterRatio);
+    }
+    this.jitterRatio = jitterRatio;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -58,23 +100,56 @@ public class ScheduledCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     clearWhenStale();
-    delegate.putObject(key, object);
+    if (timeToLive > 0) {
+      delegate.putObject(key, newEntry(object));
+    } else {
+      delegate.putObject(key, object);
+    }
   }
 
   @Override
   public Object getObject(Object key) {
-    return clearWhenStale() ? null : delegate.getObject(key);
+    if (clearWhenStale()) {
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (value instanceof Entry) {
+      Entry entry = (Entry) value;
+      //过期了就删掉，当作没命中
+      if (ticker.currentTimeMillis() >= entry.expiresAt) {
+        delegate.removeObject(key);
+        return null;
+      }
+      return entry.value;
+    }
+    return value;
+  }
+
+  @Override
+  public boolean claimRefresh(Object key) {
+    if (!refreshAhead || timeToLive <= 0) {
+      return false;
+    }
+    Object value = delegate.getObject(key);
+    if (!(value instanceof Entry)) {
+      return false;
+    }
+    Entry entry = (Entry) value;
+    long now = ticker.currentTimeMillis();
+    //快过期了，只让第一个来的去刷新
+    return now >= entry.refreshAt && now < entry.expiresAt && entry.refreshing.compareAndSet(false, true);
   }
 
   @Override
   public Object removeObject(Object key) {
     clearWhenStale();
-    return delegate.removeObject(key);
+    Object value = delegate.removeObject(key);
+    return value instanceof Entry ? ((Entry) value).value : value;
   }
 
   @Override
   public void clear() {
-    lastClear = System.currentTimeMillis();
+    lastClear = ticker.currentTimeMillis();
     delegate.clear();
   }
 
@@ -95,11 +170,36 @@ public class ScheduledCache implements Cache {
 
   private boolean clearWhenStale() {
     //如果到时间了，清空一下缓存
-    if (System.currentTimeMillis() - lastClear > clearInterval) {
+    if (ticker.currentTimeMillis() - lastClear > clearInterval) {
       clear();
       return true;
     }
     return false;
   }
 
+  //存活时间在 timeToLive*(1-jitterRatio) 到 timeToLive*(1+jitterRatio) 之间随机
+  private Entry newEntry(Object value) {
+    long now = ticker.currentTimeMillis();
+    double jitter = jitterRatio == 0 ? 1 : 1 - jitterRatio + 2 * jitterRatio * JITTER.nextDouble();
+    long ttl = Math.max(1, (long) (timeToLive * jitter));
+    long refreshAt = refreshAhead ? now + (long) (ttl * refreshAheadRatio) : Long.MAX_VALUE;
+    return new Entry(value, now + ttl, refreshAt);
+  }
+
+  private static class Entry implements Serializable {
+
+    private static final long serialVersionUID = -3157096215472963624L;
+
+    private final Object value;
+    private final long expiresAt;
+    private final long refreshAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Entry(Object value, long expiresAt, long refreshAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.refreshAt = refreshAt;
+    }
+  }
+
 }
@@ -15,18 +15,19 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 import org.apache.ibatis.io.Resources;
 
 /**
@@ -36,14 +37,31 @@ import org.apache.ibatis.io.Resources;
  * 序列化缓存
  * 用途是先将对象序列化成2进制，再缓存,好处是将对象压缩了，省内存
  * 坏处是速度慢了
+ * 怎么序列化由CacheSerializer决定，默认是Java序列化
  * 
  */
-public class SerializedCache implements Cache {
+public class SerializedCache implements RefreshAheadCache {
 
   private Cache delegate;
+  private final CacheSerializer serializer;
+  //记录序列化以后的大小，用来估算缓存占的字节数
+  private StatsCounter statsCounter;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JavaSerializer());
+  }
+
+  public SerializedCache(Cache delegate, CacheSerializer serializer) {
     this.delegate = delegate;
+    this.serializer = serializer;
+  }
+
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
   }
 
   @Override
@@ -56,11 +74,20 @@ public class SerializedCache implements Cache {
     return delegate.getSize();
   }
 
+  @Override
+  public boolean claimRefresh(Object key) {
+    return delegate instanceof RefreshAheadCache && ((RefreshAheadCache) delegate).claimRefresh(key);
+  }
+
   @Override
   public void putObject(Object key, Object object) {
     if (object == null || object instanceof Serializable) {
         //先序列化，再委托被包装者putObject
-      delegate.putObject(key, serialize((Serializable) object));
+      byte[] bytes = serialize((Serializable) object);
+      if (statsCounter != null) {
+        statsCounter.recordValueBytes(bytes.length);
+      }
+      delegate.putObject(key, bytes);
     } else {
       throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
     }
@@ -99,31 +126,11 @@ public class SerializedCache implements Cache {
   }
 
   private byte[] serialize(Serializable value) {
-    try {
-        //序列化核心就是ByteArrayOutputStream
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      ObjectOutputStream oos = new ObjectOutputStream(bos);
-      oos.writeObject(value);
-      oos.flush();
-      oos.close();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
-    }
+    return serializer.serialize(value);
   }
 
   private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try {
-        //反序列化核心就是ByteArrayInputStream
-      ByteArrayInputStream bis = new ByteArrayInputStream(value);
-      ObjectInputStream ois = new CustomObjectInputStream(bis);
-      result = (Serializable) ois.readObject();
-      ois.close();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
+    return (Serializable) serializer.deserialize(value);
   }
 
   //这个Custom不明白何意
@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.StatsCounter;
 
 /**
  * Soft Reference cache decorator
@@ -37,6 +38,7 @@ public class SoftCache implements Cache {
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  private StatsCounter statsCounter;
 
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
@@ -57,6 +59,10 @@ public class SoftCache implements Cache {
     return delegate.getSize();
   }
 
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
 
   public void setSize(int size) {
     this.numberOfHardLinks = size;
@@ -118,6 +124,9 @@ public class SoftCache implements Cache {
     //查看被垃圾回收的引用队列,然后调用removeObject移除他们
     while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
       delegate.removeObject(sv.key);
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
     }
   }
 
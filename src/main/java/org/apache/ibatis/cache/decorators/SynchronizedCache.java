@@ -18,6 +18,9 @@ package org.apache.ibatis.cache.decorators;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.StatsCounterProvider;
 
 /**
  * @author Clinton Begin
@@ -33,7 +36,7 @@ import org.apache.ibatis.cache.Cache;
  * bug见https://github.com/mybatis/mybatis-3/issues/159
  *
  */
-public class SynchronizedCache implements Cache {
+public class SynchronizedCache implements RefreshAheadCache, StatsCounterProvider {
 
   private Cache delegate;
   
@@ -51,6 +54,16 @@ public class SynchronizedCache implements Cache {
     return delegate.getSize();
   }
 
+  @Override
+  public synchronized boolean claimRefresh(Object key) {
+    return delegate instanceof RefreshAheadCache && ((RefreshAheadCache) delegate).claimRefresh(key);
+  }
+
+  @Override
+  public StatsCounter getStatsCounter() {
+    return delegate instanceof StatsCounterProvider ? ((StatsCounterProvider) delegate).getStatsCounter() : null;
+  }
+
   @Override
   public synchronized void putObject(Object key, Object object) {
     delegate.putObject(key, object);
@@ -0,0 +1,351 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.StatsCounter;
+
+/**
+ * Window TinyLFU cache decorator.
+ * <p>
+ * New entries go to a small LRU window; entries leaving the window are only admitted into the main
+ * segmented LRU (probation + protected) when they were requested more often than the entry they would
+ * replace. Frequencies are kept in a count-min sketch that ages by halving.
+ * <p>
+ * Reads do not lock: they are recorded in a lossy ring buffer that is replayed under the eviction lock
+ * by whoever gets it first. Writes take the eviction lock. The delegate has to be thread-safe.
+ */
+/**
+ * W-TinyLFU缓存
+ * LruCache是基于LinkedHashMap(accessOrder)的，get也会改链表，所以外面必须套SynchronizedCache，所有读都串行化了；
+ * 而且一次大范围的扫描就能把热点数据全挤出去
+ * 这里：
+ * 1.新数据先进一个很小的LRU窗口(1%)，被挤出窗口的数据要和主区(分段LRU，受保护区80%+试用区)里最该淘汰的那个比访问频率，高的才能留下
+ * 2.访问频率用count-min sketch统计(4bit计数器)，加到一定次数后所有计数减半，老的热点会慢慢冷下来
+ * 3.读不加锁，只把key记到一个有损的环形缓冲里，拿到锁的线程顺便回放；写要加锁
+ * 被装饰的Cache自己要是线程安全的(PerpetualCache是)
+ */
+public class TinyLfuCache implements Cache {
+
+  //环形缓冲的大小，必须是2的幂
+  private static final int READ_BUFFER_SIZE = 128;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  //每记录这么多次读就尝试回放一次
+  private static final int DRAIN_THRESHOLD_MASK = READ_BUFFER_SIZE / 4 - 1;
+  //缓冲里的null表示空位，null key用这个代替
+  private static final Object NULL_KEY = new Object();
+
+  private final Cache delegate;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<Object>(READ_BUFFER_SIZE);
+  private final AtomicLong readCount = new AtomicLong();
+
+  //以下字段只在evictionLock里访问
+  private final Map<Object, Object> window = new LinkedHashMap<Object, Object>(16, .75F, true);
+  private final Map<Object, Object> probation = new LinkedHashMap<Object, Object>(16, .75F, true);
+  private final Map<Object, Object> protectedSegment = new LinkedHashMap<Object, Object>(16, .75F, true);
+  private final FrequencySketch sketch = new FrequencySketch();
+  private int windowMaximum;
+  private int mainMaximum;
+  private int protectedMaximum;
+  private StatsCounter statsCounter;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  public void setSize(int size) {
+    evictionLock.lock();
+    try {
+      //窗口1%，剩下的是主区，主区里80%是受保护区
+      windowMaximum = Math.max(1, size / 100);
+      mainMaximum = Math.max(0, size - windowMaximum);
+      protectedMaximum = (int) (mainMaximum * 0.8);
+      sketch.ensureCapacity(size);
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      //put也放在锁里，否则和removeObject交错时delegate里可能留下一个没人管的key
+      delegate.putObject(key, value);
+      drainReadBuffer();
+      Object k = maskKey(key);
+      sketch.increment(k);
+      if (!touch(k)) {
+        window.put(k, k);
+        evict();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    recordRead(maskKey(key));
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      Object k = maskKey(key);
+      if (window.remove(k) == null && probation.remove(k) == null) {
+        protectedSegment.remove(k);
+      }
+      return delegate.removeObject(key);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      delegate.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        readBuffer.lazySet(i, null);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void recordRead(Object key) {
+    long count = readCount.incrementAndGet();
+    //有损的：缓冲满了就覆盖旧的记录，少记几次访问对频率统计影响不大
+    readBuffer.lazySet((int) (count & READ_BUFFER_MASK), key);
+    //锁被别人拿着就算了，不等
+    if ((count & DRAIN_THRESHOLD_MASK) == 0 && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffer() {
+    for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+      Object key = readBuffer.getAndSet(i, null);
+      if (key != null) {
+        //没命中的key也要计数，TinyLFU就是靠这个判断新数据值不值得留下
+        sketch.increment(key);
+        touch(key);
+      }
+    }
+  }
+
+  //key已经在缓存里就调整它的位置，返回false表示不在缓存里
+  private boolean touch(Object key) {
+    if (window.get(key) != null || protectedSegment.get(key) != null) {
+      return true;
+    }
+    if (probation.remove(key) != null) {
+      //试用区里的再次被访问，升到受保护区，受保护区满了就把最老的降回试用区
+      protectedSegment.put(key, key);
+      while (protectedSegment.size() > protectedMaximum) {
+        Object demoted = removeEldest(protectedSegment);
+        probation.put(demoted, demoted);
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private void evict() {
+    while (window.size() > windowMaximum) {
+      admit(removeEldest(window));
+    }
+    while (probation.size() + protectedSegment.size() > mainMaximum) {
+      delegate.removeObject(unmaskKey(removeEldest(probation.isEmpty() ? protectedSegment : probation)));
+      recordEviction();
+    }
+  }
+
+  //被挤出窗口的候选者：主区没满直接进试用区；满了就和主区最该淘汰的比频率，淘汰低的那个
+  private void admit(Object candidate) {
+    if (probation.size() + protectedSegment.size() < mainMaximum) {
+      probation.put(candidate, candidate);
+      return;
+    }
+    Map<Object, Object> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+    if (victimSegment.isEmpty()) {
+      delegate.removeObject(unmaskKey(candidate));
+      recordEviction();
+      return;
+    }
+    Object victim = victimSegment.keySet().iterator().next();
+    //频率相等时留下老的，防止一次扫描把主区冲掉
+    if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+      victimSegment.remove(victim);
+      delegate.removeObject(unmaskKey(victim));
+      probation.put(candidate, candidate);
+    } else {
+      delegate.removeObject(unmaskKey(candidate));
+    }
+    recordEviction();
+  }
+
+  private void recordEviction() {
+    if (statsCounter != null) {
+      statsCounter.recordEviction();
+    }
+  }
+
+  private static Object removeEldest(Map<Object, Object> segment) {
+    Iterator<Object> iterator = segment.keySet().iterator();
+    Object eldest = iterator.next();
+    iterator.remove();
+    return eldest;
+  }
+
+  private static Object maskKey(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  private static Object unmaskKey(Object key) {
+    return key == NULL_KEY ? null : key;
+  }
+
+  /*
+   * Count-min sketch of 4-bit counters, 16 counters per long, 4 counters per key.
+   * All counters are halved once the number of increments reaches ten times the maximum size.
+   */
+  private static final class FrequencySketch {
+
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int additions;
+
+    void ensureCapacity(int maximumSize) {
+      int length = 16;
+      while (length < maximumSize && length < (1 << 30)) {
+        length <<= 1;
+      }
+      if (table != null && table.length == length) {
+        return;
+      }
+      table = new long[length];
+      tableMask = length - 1;
+      sampleSize = (int) Math.min(10L * Math.max(maximumSize, 1), Integer.MAX_VALUE);
+      additions = 0;
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      //4个计数器分别在long里的哪一段，由hash的低2位决定
+      int start = (hash & 3) << 2;
+      int frequency = 15;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    //所有计数器减半(老化)，减半时丢掉的奇数部分也从additions里扣掉
+    private void reset() {
+      int odd = 0;
+      for (int i = 0; i < table.length; i++) {
+        odd += Long.bitCount(table[i] & 0x1111111111111111L);
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int spread(int hash) {
+      hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+      hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+      return (hash >>> 16) ^ hash;
+    }
+  }
+
+}
@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.StatsCounter;
 
 /**
  * Weak Reference cache decorator.
@@ -35,6 +36,7 @@ public class WeakCache implements Cache {
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  private StatsCounter statsCounter;
 
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
@@ -54,6 +56,10 @@ public class WeakCache implements Cache {
     return delegate.getSize();
   }
 
+  public void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
   public void setSize(int size) {
     this.numberOfHardLinks = size;
   }
@@ -105,6 +111,9 @@ public class WeakCache implements Cache {
     WeakEntry sv;
     while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
       delegate.removeObject(sv.key);
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
     }
   }
 
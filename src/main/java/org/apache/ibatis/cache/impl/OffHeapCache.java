@@ -0,0 +1,297 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Cache that keeps the values serialized in direct (off-heap) memory, within a budget of bytes.
+ * <p>
+ * Values are appended to fixed size slabs of direct memory. When the budget is used up the oldest slab
+ * is recycled and every entry stored in it is evicted. Only the keys and a small index stay on the heap,
+ * so large amounts of cached results do not add to the garbage collector's work.
+ * <p>
+ * As values are copied in and out, it has the semantics of a read-write cache. Being a custom cache
+ * implementation it gets no decorators but logging, so it takes care of its own synchronization.
+ * Example:
+ * <pre>
+ * &lt;cache type="org.apache.ibatis.cache.impl.OffHeapCache"&gt;
+ *   &lt;property name="maxBytes" value="1073741824"/&gt;
+ *   &lt;property name="slabSize" value="4194304"/&gt;
+ *   &lt;property name="serializer" value="org.apache.ibatis.cache.serializer.CompactSerializer"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ */
+/**
+ * 堆外缓存
+ * 值序列化以后放在直接内存(DirectByteBuffer)里，总大小不超过maxBytes，堆上只有key和索引，
+ * 缓存几个G的查询结果也不会让老年代变大、GC停顿变长
+ * 内存按slab分配，每个slab顺序写入，满了就开新的；总量超了就回收最老的slab，里面的条目全部淘汰(类似FIFO)
+ */
+public class OffHeapCache implements Cache {
+
+  private final String id;
+  //总共最多用多少字节的直接内存，默认64M
+  private long maxBytes = 64L * 1024 * 1024;
+  //每个slab的大小，默认1M，比它大的值不缓存
+  private int slabSize = 1024 * 1024;
+  private volatile CacheSerializer serializer = new JavaSerializer();
+  private StatsCounter statsCounter;
+
+  private final Map<Object, Entry> index = new HashMap<Object, Entry>();
+  //正在用的slab，最老的在前面
+  private final LinkedList<Slab> slabs = new LinkedList<Slab>();
+  //clear以后留着复用的直接内存
+  private final List<ByteBuffer> freeBuffers = new ArrayList<ByteBuffer>();
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to make a copy of a non-serializable object: " + value);
+    }
+    //序列化在锁外面做，记下用的是哪个序列化器
+    CacheSerializer usedSerializer = serializer;
+    byte[] bytes = usedSerializer.serialize(value);
+    synchronized (this) {
+      index.remove(key);
+      //序列化期间换了序列化器，新的读不了这些字节，不存
+      if (usedSerializer != serializer || bytes.length > slabSize) {
+        return;
+      }
+      Slab slab = slabs.isEmpty() ? null : slabs.getLast();
+      if (slab == null || slab.buffer.remaining() < bytes.length) {
+        slab = newSlab();
+      }
+      Entry entry = new Entry(slab, slab.buffer.position(), bytes.length);
+      slab.buffer.put(bytes);
+      slab.keys.add(key);
+      index.put(key, entry);
+      if (statsCounter != null) {
+        statsCounter.recordValueBytes(bytes.length);
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] bytes;
+    CacheSerializer usedSerializer;
+    synchronized (this) {
+      Entry entry = index.get(key);
+      if (entry == null) {
+        return null;
+      }
+      bytes = new byte[entry.length];
+      ByteBuffer buffer = entry.slab.buffer.duplicate();
+      buffer.position(entry.offset);
+      buffer.get(bytes);
+      //和写入时是同一个序列化器
+      usedSerializer = serializer;
+    }
+    return usedSerializer.deserialize(bytes);
+  }
+
+  /*
+   * Drops the entry without decoding it, so it always returns null. Its bytes are reclaimed with the slab.
+   */
+  @Override
+  public synchronized Object removeObject(Object key) {
+    index.remove(key);
+    return null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    index.clear();
+    for (Slab slab : slabs) {
+      freeBuffers.add(slab.buffer);
+    }
+    slabs.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    while (!slabs.isEmpty() && (long) slabs.size() * slabSize > maxBytes) {
+      evictOldestSlab();
+    }
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /*
+   * Changing the slab size drops the cached entries.
+   */
+  public synchronized void setSlabSize(int slabSize) {
+    if (slabSize != this.slabSize) {
+      index.clear();
+      slabs.clear();
+      freeBuffers.clear();
+      this.slabSize = slabSize;
+    }
+  }
+
+  public synchronized void setStatsCounter(StatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  /*
+   * Changing the serializer drops the cached entries.
+   */
+  public void setSerializer(String className) {
+    CacheSerializer newSerializer;
+    try {
+      newSerializer = (CacheSerializer) Resources.classForName(className).newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error creating cache serializer " + className + ".  Cause: " + e, e);
+    }
+    newSerializer.setProperties(new Properties());
+    synchronized (this) {
+      clear();
+      serializer = newSerializer;
+    }
+  }
+
+  /*
+   * @return the direct memory held by the cache, in bytes
+   */
+  public synchronized long getAllocatedBytes() {
+    return (long) (slabs.size() + freeBuffers.size()) * slabSize;
+  }
+
+  private Slab newSlab() {
+    ByteBuffer buffer;
+    if ((long) (slabs.size() + 1) * slabSize > maxBytes && !slabs.isEmpty()) {
+      //预算用完了，回收最老的slab
+      buffer = evictOldestSlab();
+    } else if (!freeBuffers.isEmpty()) {
+      buffer = freeBuffers.remove(freeBuffers.size() - 1);
+    } else {
+      buffer = ByteBuffer.allocateDirect(slabSize);
+    }
+    buffer.clear();
+    Slab slab = new Slab(buffer);
+    slabs.addLast(slab);
+    return slab;
+  }
+
+  private ByteBuffer evictOldestSlab() {
+    Slab oldest = slabs.removeFirst();
+    int evicted = 0;
+    for (Object key : oldest.keys) {
+      Entry entry = index.get(key);
+      //同一个key后来可能又写到了别的slab里
+      if (entry != null && entry.slab == oldest) {
+        index.remove(key);
+        evicted++;
+      }
+    }
+    if (statsCounter != null) {
+      statsCounter.recordEvictions(evicted);
+    }
+    return oldest.buffer;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static class Slab {
+    private final ByteBuffer buffer;
+    //写进这个slab的key，回收时用
+    private final List<Object> keys = new ArrayList<Object>();
+
+    Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private static class Entry {
+    private final Slab slab;
+    private final int offset;
+    private final int length;
+
+    Entry(Slab slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+}
@@ -15,8 +15,8 @@
  */
 package org.apache.ibatis.cache.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -35,8 +35,11 @@ public class PerpetualCache implements Cache {
     //每个永久缓存有一个ID来识别
   private String id;
 
-  //mark 存储缓存数据 就是一个HashMap,所有方法基本就是直接调用HashMap的方法,不支持多线程？
-  private Map<Object, Object> cache = new HashMap<Object, Object>();
+  //ConcurrentHashMap不允许null的key和value，用这个对象代替(TransactionalCache会放null值进来)
+  private static final Object NULL = new Object();
+
+  //存储缓存数据,用ConcurrentHashMap,这样TinyLfuCache之类自己处理并发的装饰者外面就不用再套SynchronizedCache了
+  private ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<Object, Object>();
 
   public PerpetualCache(String id) {
     this.id = id;
@@ -54,17 +57,17 @@ public class PerpetualCache implements Cache {
 
   @Override
   public void putObject(Object key, Object value) {
-    cache.put(key, value);
+    cache.put(mask(key), mask(value));
   }
 
   @Override
   public Object getObject(Object key) {
-    return cache.get(key);
+    return unmask(cache.get(mask(key)));
   }
 
   @Override
   public Object removeObject(Object key) {
-    return cache.remove(key);
+    return unmask(cache.remove(mask(key)));
   }
 
   @Override
@@ -77,6 +80,14 @@ public class PerpetualCache implements Cache {
     return null;
   }
 
+  private static Object mask(Object object) {
+    return object == null ? NULL : object;
+  }
+
+  private static Object unmask(Object object) {
+    return object == NULL ? null : object;
+  }
+
   @Override
   public boolean equals(Object o) {
     //只要id相等就认为两个cache相同
@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.util.Properties;
+
+/**
+ * Turns cached values into bytes and back. Read-write caches store the bytes, so every hit returns a new copy.
+ * <p>
+ * Implementations must be thread-safe and have a public no-arg constructor. They receive the properties of
+ * the &lt;cache&gt; element they are configured in.
+ */
+/**
+ * 缓存序列化器
+ * 可读写的缓存(readOnly=false)存的是序列化以后的字节，每次命中都反序列化出一个新的对象，这样调用者改了也不影响缓存
+ * 默认用Java序列化(JavaSerializer)，可以在&lt;cache serializer="COMPACT"&gt;里换成别的
+ */
+public interface CacheSerializer {
+
+  void setProperties(Properties properties);
+
+  byte[] serialize(Object value);
+
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,732 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Compact binary serializer for the values MyBatis usually caches: lists and maps of beans, strings,
+ * numbers and dates.
+ * <p>
+ * Beans are written field by field, without any class metadata but the class name, which is written once
+ * per value. Classes listed in the <code>registeredClasses</code> property (comma separated) are written as
+ * a small number instead. Shared references and cycles are preserved.
+ * <p>
+ * A bean is written this way when it is Serializable, has a no-arg constructor and does not customize
+ * its serialization (writeObject, readObject, writeReplace, readResolve, Externalizable). Anything else,
+ * like lazy loading proxies, is embedded using Java serialization. Unlike Java serialization the no-arg
+ * constructor is run, so transient fields get their initial values.
+ */
+/**
+ * 紧凑的二进制序列化器
+ * Java序列化每个值都要写完整的类描述(类名、serialVersionUID、所有字段名和类型)，读的时候还要反射一遍，又慢又大
+ * 缓存的值一般就是List+JavaBean+String/数字/日期，这里：
+ * 1.常用类型(String、包装类、BigDecimal、日期、byte[]、常用集合)用1个字节的标签+值
+ * 2.JavaBean只写一次类名(注册过的类只写一个编号)，然后按固定顺序写字段的值，不写字段名
+ * 3.同一个对象出现多次只写一个引用编号，所以环(双向关联)也没问题
+ * 不满足条件的对象(延迟加载的代理、自定义了writeObject的类等)还是用Java序列化嵌进来
+ */
+public class CompactSerializer implements CacheSerializer {
+
+  private static final int NULL = 0;
+  private static final int REFERENCE = 1;
+  private static final int STRING = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int SHORT = 5;
+  private static final int BYTE = 6;
+  private static final int TRUE = 7;
+  private static final int FALSE = 8;
+  private static final int CHARACTER = 9;
+  private static final int DOUBLE = 10;
+  private static final int FLOAT = 11;
+  private static final int BIG_DECIMAL = 12;
+  private static final int BIG_INTEGER = 13;
+  private static final int DATE = 14;
+  private static final int SQL_DATE = 15;
+  private static final int SQL_TIME = 16;
+  private static final int TIMESTAMP = 17;
+  private static final int BYTE_ARRAY = 18;
+  private static final int COLLECTION = 19;
+  private static final int MAP = 20;
+  private static final int ARRAY = 21;
+  private static final int ENUM = 22;
+  private static final int OBJECT = 23;
+  private static final int JAVA = 24;
+
+  //可以直接new出来再一个个add/put的集合(只认这几个，子类可能有别的状态)
+  private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+      ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class));
+  private static final Set<Class<?>> MAP_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+      HashMap.class, LinkedHashMap.class, TreeMap.class));
+  //定制了序列化过程的类，只能交给Java序列化
+  private static final Set<String> SERIALIZATION_METHODS = new HashSet<String>(Arrays.asList(
+      "writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve"));
+
+  private final JavaSerializer javaSerializer = new JavaSerializer();
+  private final ConcurrentMap<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<Class<?>, ClassInfo>();
+  //注册过的类按注册顺序编号，读写两边都预先放进类表里
+  private volatile List<Class<?>> registeredClasses = Collections.emptyList();
+  private volatile Map<Class<?>, Integer> registeredIds = Collections.emptyMap();
+
+  @Override
+  public void setProperties(Properties properties) {
+    String value = properties == null ? null : properties.getProperty("registeredClasses");
+    if (value != null) {
+      for (String className : value.split(",")) {
+        className = className.trim();
+        if (className.length() > 0) {
+          try {
+            registerClass(Resources.classForName(className));
+          } catch (ClassNotFoundException e) {
+            throw new CacheException("Could not register class " + className + " with the cache serializer.  Cause: " + e, e);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * Registered classes are identified by their registration order, so register them before anything is cached.
+   */
+  public synchronized void registerClass(Class<?> type) {
+    if (registeredIds.containsKey(type)) {
+      return;
+    }
+    List<Class<?>> classes = new ArrayList<Class<?>>(registeredClasses);
+    Map<Class<?>, Integer> ids = new HashMap<Class<?>, Integer>(registeredIds);
+    ids.put(type, classes.size());
+    classes.add(type);
+    registeredClasses = classes;
+    registeredIds = ids;
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    try {
+      Writer writer = new Writer();
+      writer.writeObject(value);
+      return writer.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(bytes).readObject();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private ClassInfo getClassInfo(Class<?> type) {
+    ClassInfo info = classInfos.get(type);
+    if (info == null) {
+      info = new ClassInfo(type);
+      classInfos.putIfAbsent(type, info);
+    }
+    return info;
+  }
+
+  private final class Writer {
+
+    private byte[] buffer = new byte[256];
+    private int position;
+    private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+    private final Map<Class<?>, Integer> registeredIds = CompactSerializer.this.registeredIds;
+    private final Map<Class<?>, Integer> classIds = new HashMap<Class<?>, Integer>();
+    private int nextClassId = registeredIds.size();
+
+    void writeObject(Object value) throws Exception {
+      if (value == null) {
+        writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      //不可变的值，不用管引用
+      if (type == String.class) {
+        writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeByte(INTEGER);
+        writeVarInt(zigZag((Integer) value));
+      } else if (type == Long.class) {
+        writeByte(LONG);
+        writeVarLong(zigZag((Long) value));
+      } else if (type == Boolean.class) {
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Short.class) {
+        writeByte(SHORT);
+        writeVarInt(zigZag((Short) value));
+      } else if (type == Byte.class) {
+        writeByte(BYTE);
+        writeByte((Byte) value);
+      } else if (type == Character.class) {
+        writeByte(CHARACTER);
+        writeVarInt((Character) value);
+      } else if (type == Double.class) {
+        writeByte(DOUBLE);
+        writeLong(Double.doubleToRawLongBits((Double) value));
+      } else if (type == Float.class) {
+        writeByte(FLOAT);
+        writeInt(Float.floatToRawIntBits((Float) value));
+      } else if (type == BigDecimal.class) {
+        writeByte(BIG_DECIMAL);
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        writeVarInt(zigZag(((BigDecimal) value).scale()));
+      } else if (type == BigInteger.class) {
+        writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (value instanceof Enum) {
+        writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else {
+        writeMutableObject(value, type);
+      }
+    }
+
+    private void writeMutableObject(Object value, Class<?> type) throws Exception {
+      Integer handle = handles.get(value);
+      if (handle != null) {
+        writeByte(REFERENCE);
+        writeVarInt(handle);
+        return;
+      }
+      ClassInfo info = type == Date.class || type == java.sql.Date.class || type == java.sql.Time.class
+          || type == java.sql.Timestamp.class || type == byte[].class ? null : getClassInfo(type);
+      if (info != null && (info.kind == ClassInfo.JAVA || hasComparator(value))) {
+        //Java序列化出来的对象和这里的引用编号不通用，不登记
+        writeByte(JAVA);
+        writeBytes(javaSerializer.serialize(value));
+        return;
+      }
+      //和Reader创建对象的顺序一致：先登记，再写里面的东西
+      handles.put(value, handles.size());
+      if (info == null) {
+        if (type == byte[].class) {
+          writeByte(BYTE_ARRAY);
+          writeBytes((byte[]) value);
+        } else if (type == java.sql.Timestamp.class) {
+          writeByte(TIMESTAMP);
+          writeVarLong(zigZag(((Date) value).getTime()));
+          writeVarInt(((java.sql.Timestamp) value).getNanos());
+        } else {
+          writeByte(type == Date.class ? DATE : type == java.sql.Date.class ? SQL_DATE : SQL_TIME);
+          writeVarLong(zigZag(((Date) value).getTime()));
+        }
+      } else if (info.kind == ClassInfo.COLLECTION) {
+        Collection<?> collection = (Collection<?>) value;
+        writeByte(COLLECTION);
+        writeClass(type);
+        writeVarInt(collection.size());
+        for (Object element : collection) {
+          writeObject(element);
+        }
+      } else if (info.kind == ClassInfo.MAP) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        writeByte(MAP);
+        writeClass(type);
+        writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeObject(entry.getKey());
+          writeObject(entry.getValue());
+        }
+      } else if (info.kind == ClassInfo.ARRAY) {
+        Object[] array = (Object[]) value;
+        writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        writeVarInt(array.length);
+        for (Object element : array) {
+          writeObject(element);
+        }
+      } else {
+        writeByte(OBJECT);
+        writeClass(type);
+        for (Field field : info.fields) {
+          writeField(field, value);
+        }
+      }
+    }
+
+    //TreeSet/TreeMap的Comparator没法这样写出来
+    private boolean hasComparator(Object value) {
+      if (value instanceof TreeSet) {
+        return ((TreeSet<?>) value).comparator() != null;
+      }
+      if (value instanceof TreeMap) {
+        return ((TreeMap<?, ?>) value).comparator() != null;
+      }
+      return false;
+    }
+
+    private void writeField(Field field, Object target) throws Exception {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        writeObject(field.get(target));
+      } else if (type == int.class) {
+        writeVarInt(zigZag(field.getInt(target)));
+      } else if (type == long.class) {
+        writeVarLong(zigZag(field.getLong(target)));
+      } else if (type == boolean.class) {
+        writeByte(field.getBoolean(target) ? 1 : 0);
+      } else if (type == double.class) {
+        writeLong(Double.doubleToRawLongBits(field.getDouble(target)));
+      } else if (type == float.class) {
+        writeInt(Float.floatToRawIntBits(field.getFloat(target)));
+      } else if (type == short.class) {
+        writeVarInt(zigZag(field.getShort(target)));
+      } else if (type == byte.class) {
+        writeByte(field.getByte(target));
+      } else {
+        writeVarInt(field.getChar(target));
+      }
+    }
+
+    //类描述：0+类名(第一次出现)，或者 编号+1
+    private void writeClass(Class<?> type) {
+      Integer id = registeredIds.get(type);
+      if (id == null) {
+        id = classIds.get(type);
+      }
+      if (id != null) {
+        writeVarInt(id + 1);
+      } else {
+        writeVarInt(0);
+        writeString(type.getName());
+        classIds.put(type, nextClassId++);
+      }
+    }
+
+    //一个字符一个varint，ASCII字符就是1个字节
+    private void writeString(String value) {
+      int length = value.length();
+      writeVarInt(length);
+      ensureCapacity(length);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else {
+          writeVarInt(c);
+          ensureCapacity(length - i);
+        }
+      }
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarInt(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7f) != 0) {
+        buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7fL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+      ensureCapacity(4);
+      buffer[position++] = (byte) (value >>> 24);
+      buffer[position++] = (byte) (value >>> 16);
+      buffer[position++] = (byte) (value >>> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    private void ensureCapacity(int count) {
+      if (position + count > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + count));
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  private final class Reader {
+
+    private final byte[] buffer;
+    private int position;
+    private final List<Object> handles = new ArrayList<Object>();
+    private final List<Class<?>> classes = new ArrayList<Class<?>>(CompactSerializer.this.registeredClasses);
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object readObject() throws Exception {
+      int tag = readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return handles.get(readVarInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return zagZig(readVarInt());
+        case LONG:
+          return zagZig(readVarLong());
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case SHORT:
+          return (short) zagZig(readVarInt());
+        case BYTE:
+          return readByte();
+        case CHARACTER:
+          return (char) readVarInt();
+        case DOUBLE:
+          return Double.longBitsToDouble(readLong());
+        case FLOAT:
+          return Float.intBitsToFloat(readInt());
+        case BIG_DECIMAL:
+          BigInteger unscaled = new BigInteger(readBytes());
+          return new BigDecimal(unscaled, zagZig(readVarInt()));
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case ENUM:
+          Class enumType = readClass();
+          return Enum.valueOf(enumType, readString());
+        case DATE:
+          return register(new Date(zagZig(readVarLong())));
+        case SQL_DATE:
+          return register(new java.sql.Date(zagZig(readVarLong())));
+        case SQL_TIME:
+          return register(new java.sql.Time(zagZig(readVarLong())));
+        case TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(zagZig(readVarLong()));
+          timestamp.setNanos(readVarInt());
+          return register(timestamp);
+        case BYTE_ARRAY:
+          return register(readBytes());
+        case COLLECTION:
+          Collection<Object> collection = (Collection<Object>) register(newInstance(readClass(), ClassInfo.COLLECTION));
+          for (int i = readVarInt(); i > 0; i--) {
+            collection.add(readObject());
+          }
+          return collection;
+        case MAP:
+          Map<Object, Object> map = (Map<Object, Object>) register(newInstance(readClass(), ClassInfo.MAP));
+          for (int i = readVarInt(); i > 0; i--) {
+            Object key = readObject();
+            map.put(key, readObject());
+          }
+          return map;
+        case ARRAY:
+          Class<?> componentType = readClass();
+          Object[] array = (Object[]) register(Array.newInstance(componentType, readVarInt()));
+          for (int i = 0; i < array.length; i++) {
+            array[i] = readObject();
+          }
+          return array;
+        case OBJECT:
+          Class<?> type = readClass();
+          Object object = register(newInstance(type, ClassInfo.OBJECT));
+          for (Field field : getClassInfo(type).fields) {
+            readField(field, object);
+          }
+          return object;
+        case JAVA:
+          return javaSerializer.deserialize(readBytes());
+        default:
+          throw new CacheException("Error deserializing object.  Unknown tag " + tag + " at position " + (position - 1));
+      }
+    }
+
+    private Object register(Object object) {
+      handles.add(object);
+      return object;
+    }
+
+    private Object newInstance(Class<?> type, int kind) throws Exception {
+      ClassInfo info = getClassInfo(type);
+      if (info.kind != kind) {
+        throw new CacheException("Error deserializing object.  " + type + " cannot be read by the compact serializer.");
+      }
+      return info.constructor.newInstance();
+    }
+
+    private void readField(Field field, Object target) throws Exception {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        field.set(target, readObject());
+      } else if (type == int.class) {
+        field.setInt(target, zagZig(readVarInt()));
+      } else if (type == long.class) {
+        field.setLong(target, zagZig(readVarLong()));
+      } else if (type == boolean.class) {
+        field.setBoolean(target, readByte() != 0);
+      } else if (type == double.class) {
+        field.setDouble(target, Double.longBitsToDouble(readLong()));
+      } else if (type == float.class) {
+        field.setFloat(target, Float.intBitsToFloat(readInt()));
+      } else if (type == short.class) {
+        field.setShort(target, (short) zagZig(readVarInt()));
+      } else if (type == byte.class) {
+        field.setByte(target, readByte());
+      } else {
+        field.setChar(target, (char) readVarInt());
+      }
+    }
+
+    private Class<?> readClass() throws ClassNotFoundException {
+      int id = readVarInt();
+      if (id > 0) {
+        return classes.get(id - 1);
+      }
+      Class<?> type = Resources.classForName(readString());
+      classes.add(type);
+      return type;
+    }
+
+    private String readString() {
+      int length = readVarInt();
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        byte b = buffer[position];
+        if (b >= 0) {
+          chars[i] = (char) b;
+          position++;
+        } else {
+          chars[i] = (char) readVarInt();
+        }
+      }
+      return new String(chars);
+    }
+
+    private byte[] readBytes() {
+      int length = readVarInt();
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    private byte readByte() {
+      return buffer[position++];
+    }
+
+    private int readVarInt() {
+      int result = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = buffer[position++];
+        result |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return result;
+        }
+      }
+    }
+
+    private long readVarLong() {
+      long result = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = buffer[position++];
+        result |= (long) (b & 0x7f) << shift;
+        if (b >= 0) {
+          return result;
+        }
+      }
+    }
+
+    private int readInt() {
+      return ((buffer[position++] & 0xff) << 24) | ((buffer[position++] & 0xff) << 16)
+          | ((buffer[position++] & 0xff) << 8) | (buffer[position++] & 0xff);
+    }
+
+    private long readLong() {
+      return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+    }
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int zagZig(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static long zagZig(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /*
+   * How instances of a class are written, resolved once per class.
+   */
+  private static final class ClassInfo {
+
+    static final int JAVA = 0;
+    static final int COLLECTION = 1;
+    static final int MAP = 2;
+    static final int ARRAY = 3;
+    static final int OBJECT = 4;
+
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+      @Override
+      public int compare(Field f1, Field f2) {
+        return f1.getName().compareTo(f2.getName());
+      }
+    };
+
+    final int kind;
+    final Constructor<?> constructor;
+    final Field[] fields;
+
+    ClassInfo(Class<?> type) {
+      int kind = JAVA;
+      Constructor<?> constructor = null;
+      Field[] fields = null;
+      if (type.isArray()) {
+        kind = type.getComponentType().isPrimitive() ? JAVA : ARRAY;
+      } else if (COLLECTION_TYPES.contains(type) || MAP_TYPES.contains(type)) {
+        kind = COLLECTION_TYPES.contains(type) ? COLLECTION : MAP;
+        constructor = findConstructor(type);
+      } else if (isPlainSerializable(type)) {
+        constructor = findConstructor(type);
+        if (constructor != null) {
+          kind = OBJECT;
+          fields = findFields(type);
+        }
+      }
+      this.kind = constructor == null && kind != ARRAY ? JAVA : kind;
+      this.constructor = constructor;
+      this.fields = fields;
+    }
+
+    //JDK的类内部实现各版本不一样，不按字段去写
+    private static boolean isPlainSerializable(Class<?> type) {
+      if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+          || type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+        return false;
+      }
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Method method : c.getDeclaredMethods()) {
+          if (SERIALIZATION_METHODS.contains(method.getName())) {
+            return false;
+          }
+        }
+        try {
+          c.getDeclaredField("serialPersistentFields");
+          return false;
+        } catch (NoSuchFieldException e) {
+          // ok
+        }
+      }
+      return true;
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type) {
+      try {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor;
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    //和Java序列化一样，只写Serializable的那几层父类里非static、非transient的字段，父类的在前
+    private static Field[] findFields(Class<?> type) {
+      List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+      for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+        hierarchy.add(0, c);
+      }
+      List<Field> fields = new ArrayList<Field>();
+      for (Class<?> c : hierarchy) {
+        List<Field> declared = new ArrayList<Field>();
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+            field.setAccessible(true);
+            declared.add(field);
+          }
+        }
+        Collections.sort(declared, FIELD_ORDER);
+        fields.addAll(declared);
+      }
+      return fields.toArray(new Field[fields.size()]);
+    }
+  }
+
+}
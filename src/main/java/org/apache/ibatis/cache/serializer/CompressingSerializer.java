@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Deflates the output of another serializer when it is larger than a threshold (512 bytes by default).
+ */
+/**
+ * 压缩序列化器，包装别的序列化器
+ * 序列化结果超过threshold字节才压缩，小的压了也省不了多少，还白花CPU
+ * 格式：1个字节的标志(0没压缩，1压缩了)，压缩了的话再跟4个字节的原始长度
+ */
+public class CompressingSerializer implements CacheSerializer {
+
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+
+  private final CacheSerializer delegate;
+  private int threshold = 512;
+
+  public CompressingSerializer(CacheSerializer delegate) {
+    this.delegate = delegate;
+  }
+
+  public CacheSerializer getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    String value = properties == null ? null : properties.getProperty("compressThreshold");
+    if (value != null) {
+      threshold = Integer.parseInt(value);
+    }
+    delegate.setProperties(properties);
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    byte[] bytes = delegate.serialize(value);
+    if (bytes.length < threshold) {
+      byte[] result = new byte[bytes.length + 1];
+      result[0] = RAW;
+      System.arraycopy(bytes, 0, result, 1, bytes.length);
+      return result;
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 2 + 16);
+      bos.write(DEFLATED);
+      bos.write(bytes.length >>> 24);
+      bos.write(bytes.length >>> 16);
+      bos.write(bytes.length >>> 8);
+      bos.write(bytes.length);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        bos.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return bos.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes[0] == RAW) {
+      byte[] raw = new byte[bytes.length - 1];
+      System.arraycopy(bytes, 1, raw, 0, raw.length);
+      return delegate.deserialize(raw);
+    }
+    int length = ((bytes[1] & 0xff) << 24) | ((bytes[2] & 0xff) << 16) | ((bytes[3] & 0xff) << 8) | (bytes[4] & 0xff);
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, 5, bytes.length - 5);
+      byte[] raw = new byte[length];
+      int offset = 0;
+      while (offset < length && !inflater.finished()) {
+        int count = inflater.inflate(raw, offset, length - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += count;
+      }
+      if (offset != length) {
+        throw new CacheException("Error inflating cached object: expected " + length + " bytes but got " + offset);
+      }
+      return delegate.deserialize(raw);
+    } catch (DataFormatException e) {
+      throw new CacheException("Error inflating cached object.  Cause: " + e, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+
+/**
+ * Standard Java serialization. Classes are resolved with {@link org.apache.ibatis.io.Resources}.
+ */
+/**
+ * Java序列化(默认)
+ * 什么Serializable的对象都能处理，但是慢，字节也多(每个对象都带类描述)
+ */
+public class JavaSerializer implements CacheSerializer {
+
+  @Override
+  public void setProperties(Properties properties) {
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    try {
+      //序列化核心就是ByteArrayOutputStream
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(value);
+      oos.flush();
+      oos.close();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      //反序列化核心就是ByteArrayInputStream
+      ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(bytes));
+      Object result = ois.readObject();
+      ois.close();
+      return result;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+}
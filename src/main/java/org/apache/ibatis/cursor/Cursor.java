@@ -0,0 +1,54 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.io.Closeable;
+
+/**
+ * Cursor contract to handle fetching items lazily using an Iterator.
+ * Cursors are a perfect fit to handle millions of items queries that would not normally fit in memory.
+ * Cursor SQL queries must be ordered (resultOrdered="true") when nested result maps are used.
+ *
+ * @param <T> the type of the mapped objects
+ */
+/**
+ * 游标
+ * selectList会把所有记录都放进List里，数据量大的时候内存吃不消
+ * 游标在遍历时才从ResultSet里一行一行地取，同一时刻内存里只有一条记录
+ * 用完一定要close(关闭SqlSession时也会关闭)，否则ResultSet和Statement不会释放
+ */
+public interface Cursor<T> extends Closeable, Iterable<T> {
+
+  /**
+   * @return true if the cursor has started to fetch items from database.
+   */
+  boolean isOpen();
+
+  /**
+   * @return true if the cursor is fully consumed and has returned all elements matching the query.
+   */
+  boolean isConsumed();
+
+  /**
+   * Get the current item index. The first item has the index 0.
+   * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
+   */
+  int getCurrentIndex();
+
+  @Override
+  void close();
+
+}
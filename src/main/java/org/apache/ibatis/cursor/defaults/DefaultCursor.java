@@ -0,0 +1,230 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * This is the default implementation of a MyBatis Cursor.
+ * This implementation is not thread safe.
+ * <p>
+ * The cursor owns the statement it reads from: closing the cursor closes both the result set and the statement.
+ *
+ * @param <T> the type of the mapped objects
+ */
+/**
+ * 默认的游标
+ * 每次next都调用DefaultResultSetHandler.handleRowValues，传入一个拿到一个对象就stop的ResultHandler，
+ * 这样每次只从ResultSet里映射出一个对象
+ * RowBounds在这里处理(跳过offset个、最多取limit个)，不交给handleRowValues，因为它每次调用都会重新skipRows
+ */
+public class DefaultCursor<T> implements Cursor<T> {
+
+  // ResultSetHandler stuff
+  private final DefaultResultSetHandler resultSetHandler;
+  private final ResultMap resultMap;
+  private final ResultSetWrapper rsw;
+  private final RowBounds rowBounds;
+  private final ObjectWrapperResultHandler<T> objectWrapperResultHandler = new ObjectWrapperResultHandler<T>();
+
+  private final CursorIterator cursorIterator = new CursorIterator();
+  private boolean iteratorRetrieved;
+
+  private CursorStatus status = CursorStatus.CREATED;
+  private int indexWithRowBound = -1;
+
+  private enum CursorStatus {
+
+    //刚创建，还没开始取数据
+    CREATED,
+    //已经开始取数据了
+    OPEN,
+    //被调用者关闭了(可能还没取完)
+    CLOSED,
+    //数据全部取完了，资源也已经释放
+    CONSUMED
+  }
+
+  public DefaultCursor(DefaultResultSetHandler resultSetHandler, ResultMap resultMap, ResultSetWrapper rsw, RowBounds rowBounds) {
+    this.resultSetHandler = resultSetHandler;
+    this.resultMap = resultMap;
+    this.rsw = rsw;
+    this.rowBounds = rowBounds;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return status == CursorStatus.OPEN;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return status == CursorStatus.CONSUMED;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return rowBounds.getOffset() + cursorIterator.iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    //只能遍历一次，ResultSet是只进的
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    iteratorRetrieved = true;
+    return cursorIterator;
+  }
+
+  @Override
+  public void close() {
+    if (isClosed()) {
+      return;
+    }
+
+    ResultSet rs = rsw == null ? null : rsw.getResultSet();
+    try {
+      if (rs != null) {
+        Statement statement = rs.getStatement();
+        rs.close();
+        if (statement != null) {
+          statement.close();
+        }
+      }
+      status = CursorStatus.CLOSED;
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  protected T fetchNextUsingRowBound() {
+    T result = fetchNextObjectFromDatabase();
+    //先跳过offset之前的记录
+    while (result != null && indexWithRowBound < rowBounds.getOffset()) {
+      result = fetchNextObjectFromDatabase();
+    }
+    return result;
+  }
+
+  protected T fetchNextObjectFromDatabase() {
+    if (isClosed()) {
+      return null;
+    }
+    if (rsw == null) {
+      status = CursorStatus.CONSUMED;
+      return null;
+    }
+
+    try {
+      status = CursorStatus.OPEN;
+      resultSetHandler.handleRowValues(rsw, resultMap, objectWrapperResultHandler, RowBounds.DEFAULT, null);
+    } catch (SQLException e) {
+      throw ExceptionFactory.wrapException("Error fetching the next row of the cursor.  Cause: " + e, e);
+    }
+
+    T next = objectWrapperResultHandler.result;
+    if (next != null) {
+      indexWithRowBound++;
+    }
+    // No more object or limit reached
+    if (next == null || getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) {
+      close();
+      status = CursorStatus.CONSUMED;
+    }
+    objectWrapperResultHandler.result = null;
+
+    return next;
+  }
+
+  private boolean isClosed() {
+    return status == CursorStatus.CLOSED || status == CursorStatus.CONSUMED;
+  }
+
+  private int getReadItemsCount() {
+    return indexWithRowBound + 1;
+  }
+
+  private static class ObjectWrapperResultHandler<T> implements ResultHandler {
+
+    private T result;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void handleResult(ResultContext context) {
+      this.result = (T) context.getResultObject();
+      //拿到一个就停
+      context.stop();
+    }
+  }
+
+  private class CursorIterator implements Iterator<T> {
+
+    /**
+     * Holder for the next object to be returned
+     */
+    private T object;
+
+    /**
+     * Index of objects returned using next(), and as such, visible to users.
+     */
+    private int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (object == null) {
+        object = fetchNextUsingRowBound();
+      }
+      return object != null;
+    }
+
+    @Override
+    public T next() {
+      // Fill next with object fetched from hasNext()
+      T next = object;
+
+      if (next == null) {
+        next = fetchNextUsingRowBound();
+      }
+
+      if (next != null) {
+        object = null;
+        iteratorIndex++;
+        return next;
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool state of the {@link ConcurrentPooledDataSource}.
+ */
+/**
+ * 无锁连接池的池状态
+ * 连接放在ConnectionBag里，统计信息都换成了原子计数器，读取统计信息不再需要加锁
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  //所有的连接(空闲的+活动的)
+  protected final ConnectionBag bag = new ConnectionBag();
+  //借出去的连接，检查超时连接时要用
+  protected final ConcurrentMap<PooledConnection, ConnectionBag.Entry> checkedOutConnections = new ConcurrentHashMap<PooledConnection, ConnectionBag.Entry>();
+  //连接总数，用来保证不超过poolMaximumActiveConnections
+  protected final AtomicInteger totalConnections = new AtomicInteger();
+
+  //----------以下是一些统计信息----------
+  protected final AtomicLong requests = new AtomicLong();
+  protected final AtomicLong accumulatedRequestTimes = new AtomicLong();
+  protected final AtomicLong accumulatedCheckoutTimes = new AtomicLong();
+  protected final AtomicLong claimedOverdueConnections = new AtomicLong();
+  protected final AtomicLong accumulatedCheckoutTimesOfOverdueConnections = new AtomicLong();
+  protected final AtomicLong accumulatedWaitTimes = new AtomicLong();
+  protected final AtomicLong hadToWaits = new AtomicLong();
+  protected final AtomicLong badConnections = new AtomicLong();
+
+  public ConcurrentPoolState(PooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requestCount = requests.get();
+    return requestCount == 0 ? 0 : accumulatedRequestTimes.get() / requestCount;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long hadToWaitCount = hadToWaits.get();
+    return hadToWaitCount == 0 ? 0 : accumulatedWaitTimes.get() / hadToWaitCount;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaits.get();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnections.get();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnections.get();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimedOverdueConnectionCount = claimedOverdueConnections.get();
+    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimesOfOverdueConnections.get() / claimedOverdueConnectionCount;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requestCount = requests.get();
+    return requestCount == 0 ? 0 : accumulatedCheckoutTimes.get() / requestCount;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return bag.getCount(ConnectionBag.STATE_NOT_IN_USE);
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return checkedOutConnections.size();
+  }
+
+}
@@ -0,0 +1,344 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A thread-safe database connection pool that does not serialize checkouts on a single monitor.
+ * It keeps the same configuration, PooledConnection proxies and statistics as {@link PooledDataSource}.
+ */
+/**
+ * 无锁的连接池
+ * PooledDataSource每次取连接、还连接都要synchronized(state)，线程多了以后这把锁竞争很厉害
+ * 这个实现把连接放在ConnectionBag里，取连接、还连接都是CAS操作，等待连接的线程按先来后到拿到归还的连接
+ * 配置项、代理连接(PooledConnection)、统计信息(PoolState)和PooledDataSource一样
+ * 可以用PooledDataSourceFactory的poolType=CONCURRENT属性来选择
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentPoolState state = (ConcurrentPoolState) getPoolState();
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  @Override
+  protected PoolState createPoolState() {
+    return new ConcurrentPoolState(this);
+  }
+
+  /*
+   * Closes all active and idle connections in the pool
+   */
+  @Override
+  protected void closeAllConnections() {
+    //父类构造时还没有state
+    if (state != null) {
+      connectionGeneration.incrementAndGet();
+      int closed = 0;
+      for (ConnectionBag.Entry entry : state.bag.clear()) {
+        closed++;
+        PooledConnection conn = entry.getPooledConnection();
+        if (conn != null) {
+          conn.invalidate();
+        }
+        try {
+          Connection realConn = entry.getRealConnection();
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+          realConn.close();
+        } catch (Exception e) {
+          // ignore
+        }
+      }
+      state.checkedOutConnections.clear();
+      //只减去关掉的，正在创建中的连接还要算在总数里
+      state.totalConnections.addAndGet(-closed);
+    }
+    super.closeAllConnections();
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    ConnectionBag.Entry entry = state.checkedOutConnections.get(conn);
+    //已经被当作超时连接收回了，或者已经被强制关闭了
+    if (entry == null || entry.getPooledConnection() != conn || !state.checkedOutConnections.remove(conn, entry)) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnections.incrementAndGet();
+      return;
+    }
+
+    if (conn.isValid()) {
+      state.accumulatedCheckoutTimes.addAndGet(conn.getCheckoutTime());
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      entry.setPooledConnection(null);
+      conn.invalidate();
+      //有线程在等，或者空闲的连接太少，放回池中
+      if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn)
+          && (state.bag.getWaitingThreadCount() > 0 || state.getIdleConnectionCount() < poolMaximumIdleConnections)) {
+        state.bag.requite(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        //否则，即空闲的连接已经足够了，那就将connection关闭就可以了
+        closeEntry(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnections.incrementAndGet();
+      closeEntry(entry);
+    }
+  }
+
+  @Override
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      ConnectionBag.Entry entry;
+      try {
+        //1.有空闲的连接就直接拿
+        entry = state.bag.borrow(0, TimeUnit.MILLISECONDS);
+        //2.连接数还没满，new一个
+        if (entry == null) {
+          entry = createEntry();
+        }
+        //3.收回checkout时间过长的连接
+        if (entry == null) {
+          entry = claimOverdueEntry();
+        }
+        //4.只能等别人归还了
+        if (entry == null) {
+          if (!countedWait) {
+            state.hadToWaits.incrementAndGet();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          entry = state.bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+          state.accumulatedWaitTimes.addAndGet(System.currentTimeMillis() - wt);
+        }
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      if (entry != null) {
+        conn = new PooledConnection(entry.getRealConnection(), this);
+        conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+        conn.setAttributes(entry.getAttributes());
+        conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          //记录checkout时间
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          entry.setPooledConnection(conn);
+          state.checkedOutConnections.put(conn, entry);
+          state.requests.incrementAndGet();
+          state.accumulatedRequestTimes.addAndGet(System.currentTimeMillis() - t);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          state.badConnections.incrementAndGet();
+          localBadConnectionCount++;
+          closeEntry(entry);
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+  /*
+   * Run by the housekeeping task: idle connections are reserved one at a time, so checkouts
+   * never wait for a connection being validated.
+   */
+  @Override
+  protected void housekeep() {
+    for (ConnectionBag.Entry entry : state.bag.values(ConnectionBag.STATE_NOT_IN_USE)) {
+      //被别的线程抢先借走了，跳过
+      if (!state.bag.reserve(entry)) {
+        continue;
+      }
+      PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+      conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+      conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+      if (!isExpired(conn) && validateIdleConnection(conn)) {
+        entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        state.bag.unreserve(entry);
+      } else {
+        closeEntry(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Closed idle connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    }
+
+    //补足最少的空闲连接
+    while (state.getIdleConnectionCount() < poolMinimumIdleConnections) {
+      int generation = connectionGeneration.get();
+      ConnectionBag.Entry entry;
+      try {
+        entry = createEntry();
+      } catch (SQLException e) {
+        log.warn("Could not create idle connection. Cause: " + e);
+        break;
+      }
+      if (entry == null) {
+        break;
+      }
+      //开连接的时候配置改了，可能是用旧的url、用户名开的
+      if (generation != connectionGeneration.get()) {
+        closeEntry(entry);
+        break;
+      }
+      state.bag.requite(entry);
+    }
+  }
+
+  //连接总数没到上限的话，new一个新的连接
+  private ConnectionBag.Entry createEntry() throws SQLException {
+    int total;
+    do {
+      total = state.totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+    } while (!state.totalConnections.compareAndSet(total, total + 1));
+
+    boolean created = false;
+    try {
+      ConnectionBag.Entry entry = new ConnectionBag.Entry(dataSource.getConnection(), ConnectionBag.STATE_IN_USE);
+      state.bag.add(entry);
+      created = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+      }
+      return entry;
+    } finally {
+      if (!created) {
+        state.totalConnections.decrementAndGet();
+      }
+    }
+  }
+
+  //取得checkout时间最长的连接，如果超时了就收回来
+  private ConnectionBag.Entry claimOverdueEntry() throws SQLException {
+    PooledConnection oldestActiveConnection = null;
+    ConnectionBag.Entry oldestEntry = null;
+    for (Map.Entry<PooledConnection, ConnectionBag.Entry> checkedOut : state.checkedOutConnections.entrySet()) {
+      PooledConnection candidate = checkedOut.getKey();
+      if (oldestActiveConnection == null || candidate.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp()) {
+        oldestActiveConnection = candidate;
+        oldestEntry = checkedOut.getValue();
+      }
+    }
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    //别的线程可能同时在收回同一个连接，remove成功的才算数
+    if (longestCheckoutTime > poolMaximumCheckoutTime && state.checkedOutConnections.remove(oldestActiveConnection, oldestEntry)) {
+      state.claimedOverdueConnections.incrementAndGet();
+      state.accumulatedCheckoutTimesOfOverdueConnections.addAndGet(longestCheckoutTime);
+      state.accumulatedCheckoutTimes.addAndGet(longestCheckoutTime);
+      oldestActiveConnection.invalidate();
+      oldestEntry.setPooledConnection(null);
+      if (!oldestEntry.getRealConnection().getAutoCommit()) {
+        oldestEntry.getRealConnection().rollback();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Claimed overdue connection " + oldestActiveConnection.getRealHashCode() + ".");
+      }
+      return oldestEntry;
+    }
+    return null;
+  }
+
+  //从池中删掉并关闭真正的连接
+  private void closeEntry(ConnectionBag.Entry entry) {
+    if (state.bag.remove(entry)) {
+      state.totalConnections.decrementAndGet();
+    }
+    try {
+      entry.getRealConnection().close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
@@ -0,0 +1,275 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free container of pooled connections.
+ */
+/**
+ * 无锁的连接容器，给ConcurrentPooledDataSource用
+ * 1.每个线程先在自己最近归还过的连接里找(ThreadLocal)，找到就CAS占用，基本不会和别的线程冲突
+ * 2.找不到再扫描共享列表，依然是CAS占用
+ * 3.还找不到就排队等待，归还连接的线程通过公平的SynchronousQueue直接交给等待最久的线程
+ */
+class ConnectionBag {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+  static final int STATE_RESERVED = -2;
+
+  //每个线程最多记住多少个自己归还过的连接
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<Entry>();
+  private final ThreadLocal<List<WeakReference<Entry>>> threadList = new ThreadLocal<List<WeakReference<Entry>>>() {
+    @Override
+    protected List<WeakReference<Entry>> initialValue() {
+      return new ArrayList<WeakReference<Entry>>(MAX_THREAD_LOCAL_ENTRIES);
+    }
+  };
+  //公平模式，先来的线程先拿到连接
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<Entry>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /*
+   * Borrows an idle entry, waiting up to the given timeout when none is available.
+   * A timeout of zero or less does not wait at all.
+   *
+   * @return the entry (already marked as in use) or null if the timeout elapsed
+   */
+  public Entry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    //先看本线程最近归还过的连接
+    List<WeakReference<Entry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+
+    if (timeout <= 0) {
+      return scanSharedList();
+    }
+
+    //先登记成等待者再扫描，这样扫描之后才归还的连接一定会被handoff过来
+    waiters.incrementAndGet();
+    try {
+      Entry entry = scanSharedList();
+      if (entry != null) {
+        return entry;
+      }
+      long nanos = unit.toNanos(timeout);
+      while (nanos > 0) {
+        long start = System.nanoTime();
+        entry = handoffQueue.poll(nanos, TimeUnit.NANOSECONDS);
+        if (entry == null || entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return entry;
+        }
+        nanos -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /*
+   * Returns a borrowed entry to the bag, handing it directly to a waiting thread if there is one.
+   */
+  public void requite(Entry entry) {
+    entry.setState(STATE_NOT_IN_USE);
+
+    for (int i = 0; waiters.get() > 0; i++) {
+      //被别人拿走了，或者成功交给了等待的线程
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+
+    List<WeakReference<Entry>> list = threadList.get();
+    if (list.size() >= MAX_THREAD_LOCAL_ENTRIES) {
+      list.remove(0);
+    }
+    list.add(new WeakReference<Entry>(entry));
+  }
+
+  /*
+   * Adds a new entry. The entry keeps the state it was created with.
+   */
+  public void add(Entry entry) {
+    sharedList.add(entry);
+  }
+
+  /*
+   * Removes an entry that is in use or reserved by the calling thread.
+   *
+   * @return true if the entry was removed by this call
+   */
+  public boolean remove(Entry entry) {
+    if (!entry.compareAndSet(STATE_IN_USE, STATE_REMOVED) && !entry.compareAndSet(STATE_RESERVED, STATE_REMOVED)) {
+      return false;
+    }
+    return sharedList.remove(entry);
+  }
+
+  /*
+   * Takes an idle entry out of circulation (for validation or eviction) without borrowing it.
+   */
+  public boolean reserve(Entry entry) {
+    return entry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED);
+  }
+
+  /*
+   * Puts a reserved entry back into circulation.
+   */
+  public void unreserve(Entry entry) {
+    if (entry.compareAndSet(STATE_RESERVED, STATE_IN_USE)) {
+      requite(entry);
+    }
+  }
+
+  /*
+   * Marks every entry as removed and empties the bag.
+   *
+   * @return the entries that were in the bag
+   */
+  public List<Entry> clear() {
+    List<Entry> entries = new ArrayList<Entry>(sharedList);
+    for (Entry entry : entries) {
+      entry.setState(STATE_REMOVED);
+    }
+    sharedList.removeAll(entries);
+    return entries;
+  }
+
+  public List<Entry> values(int state) {
+    List<Entry> entries = new ArrayList<Entry>();
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  public int getCount(int state) {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int size() {
+    return sharedList.size();
+  }
+
+  public int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  private Entry scanSharedList() {
+    for (Entry entry : sharedList) {
+      if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * A physical connection living in the bag. A new PooledConnection is handed out for every checkout,
+   * exactly like the synchronized pool does, so stale proxies stay invalid.
+   */
+  static class Entry {
+
+    private final AtomicInteger state;
+    private final Connection realConnection;
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    //当前借出去的代理连接
+    private volatile PooledConnection pooledConnection;
+    //跟着真实连接走的属性，见PooledConnection.getAttributes
+    private final ConcurrentMap<Object, Object> attributes = new ConcurrentHashMap<Object, Object>();
+
+    Entry(Connection realConnection, int initialState) {
+      this.realConnection = realConnection;
+      this.state = new AtomicInteger(initialState);
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    void setState(int newState) {
+      state.set(newState);
+    }
+
+    boolean compareAndSet(int expectedState, int newState) {
+      return state.compareAndSet(expectedState, newState);
+    }
+
+    Connection getRealConnection() {
+      return realConnection;
+    }
+
+    ConcurrentMap<Object, Object> getAttributes() {
+      return attributes;
+    }
+
+    long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+    PooledConnection getPooledConnection() {
+      return pooledConnection;
+    }
+
+    void setPooledConnection(PooledConnection pooledConnection) {
+      this.pooledConnection = pooledConnection;
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Background task that periodically calls {@link PooledDataSource#housekeep()}.
+ */
+/**
+ * 连接池的后台维护线程
+ * 定期检查空闲连接、关掉过期的连接、补足最少的空闲连接
+ * 只持有数据源的弱引用，数据源被回收以后线程自己就停了
+ */
+class PoolHousekeeper implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+
+  //停止时最多等正在进行的维护这么久
+  private static final long SHUTDOWN_TIMEOUT = 10000;
+
+  private final WeakReference<PooledDataSource> dataSourceRef;
+  private final ScheduledExecutorService executor;
+
+  PoolHousekeeper(PooledDataSource dataSource, long interval) {
+    this.dataSourceRef = new WeakReference<PooledDataSource>(dataSource);
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.executor.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource dataSource = dataSourceRef.get();
+    if (dataSource == null) {
+      shutdown();
+      return;
+    }
+    try {
+      dataSource.housekeep();
+    } catch (Exception e) {
+      //异常不能抛出去，否则以后就不会再调度了
+      log.warn("Pool housekeeping failed. Cause: " + e);
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /*
+   * Stops the task and waits for a running housekeeping to finish, so that it cannot put
+   * connections back into the pool afterwards.
+   */
+  public void shutdownAndWait() {
+    shutdown();
+    try {
+      executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -109,6 +109,9 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaxLifetime                ").append(dataSource.poolMaximumLifetime);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -20,6 +20,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -45,6 +47,8 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  //跟着真实连接走的属性，同一个真实连接换了新的PooledConnection也要传下去
+  private ConcurrentMap<Object, Object> attributes;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -141,6 +145,27 @@ class PooledConnection implements InvocationHandler {
     this.createdTimestamp = createdTimestamp;
   }
 
+  /*
+   * Attributes that live as long as the real connection, shared by every checkout of it
+   *
+   * @return The attributes
+   */
+  public ConcurrentMap<Object, Object> getAttributes() {
+    if (attributes == null) {
+      attributes = new ConcurrentHashMap<Object, Object>();
+    }
+    return attributes;
+  }
+
+  /*
+   * Setter for the attributes, used when the real connection gets a new PooledConnection
+   *
+   * @param attributes - the attributes of the real connection
+   */
+  public void setAttributes(ConcurrentMap<Object, Object> attributes) {
+    this.attributes = attributes;
+  }
+
   /*
    * Getter for the time that the connection was last used
    *
@@ -23,7 +23,12 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -49,10 +54,10 @@ public class PooledDataSource implements DataSource {
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
   //有一个池状态
-  private final PoolState state = new PoolState(this);
+  private final PoolState state = createPoolState();
 
   //里面有一个UnpooledDataSource
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   //正在使用连接的数量
@@ -69,8 +74,18 @@ public class PooledDataSource implements DataSource {
   protected boolean poolPingEnabled = false;
   //用来配置 poolPingQuery 多次时间被用一次
   protected int poolPingConnectionsNotUsedFor = 0;
+  //后台维护线程的运行间隔，0表示不启用。启用后侦测查询由后台线程去做，取连接时不再访问数据库
+  protected int poolHousekeepingInterval = 0;
+  //后台维护线程至少保持这么多空闲连接
+  protected int poolMinimumIdleConnections = 0;
+  //连接最多能用多久，超过就关掉，0表示不限制
+  protected int poolMaximumLifetime = 0;
 
-  private int expectedConnectionTypeCode;
+  private volatile PoolHousekeeper housekeeper;
+  //每次closeAllConnections加一，维护线程据此判断池外的连接是不是关之前拿出去的
+  protected final AtomicInteger connectionGeneration = new AtomicInteger();
+
+  protected volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -98,12 +113,14 @@ public class PooledDataSource implements DataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
+    startHousekeeperIfStopped();
 	  //覆盖了DataSource.getConnection方法，每次都是pop一个Connection，即从池中取出一个来
     return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
+    startHousekeeperIfStopped();
     return popConnection(username, password).getProxyConnection();
   }
 
@@ -129,37 +146,37 @@ public class PooledDataSource implements DataSource {
 
   public void setDriver(String driver) {
     dataSource.setDriver(driver);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setUrl(String url) {
     dataSource.setUrl(url);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setUsername(String username) {
     dataSource.setUsername(username);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setPassword(String password) {
     dataSource.setPassword(password);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setDefaultAutoCommit(boolean defaultAutoCommit) {
     dataSource.setAutoCommit(defaultAutoCommit);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setDefaultTransactionIsolationLevel(Integer defaultTransactionIsolationLevel) {
     dataSource.setDefaultTransactionIsolationLevel(defaultTransactionIsolationLevel);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   public void setDriverProperties(Properties driverProps) {
     dataSource.setDriverProperties(driverProps);
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -169,7 +186,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolMaximumActiveConnections(int poolMaximumActiveConnections) {
     this.poolMaximumActiveConnections = poolMaximumActiveConnections;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -179,7 +196,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolMaximumIdleConnections(int poolMaximumIdleConnections) {
     this.poolMaximumIdleConnections = poolMaximumIdleConnections;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -190,7 +207,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolMaximumCheckoutTime(int poolMaximumCheckoutTime) {
     this.poolMaximumCheckoutTime = poolMaximumCheckoutTime;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -200,7 +217,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolTimeToWait(int poolTimeToWait) {
     this.poolTimeToWait = poolTimeToWait;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -210,7 +227,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolPingQuery(String poolPingQuery) {
     this.poolPingQuery = poolPingQuery;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -220,7 +237,7 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolPingEnabled(boolean poolPingEnabled) {
     this.poolPingEnabled = poolPingEnabled;
-    forceCloseAll();
+    closeAllConnections();
   }
 
   /*
@@ -231,7 +248,43 @@ public class PooledDataSource implements DataSource {
    */
   public void setPoolPingConnectionsNotUsedFor(int milliseconds) {
     this.poolPingConnectionsNotUsedFor = milliseconds;
-    forceCloseAll();
+    closeAllConnections();
+  }
+
+  /*
+   * Milliseconds between two runs of the background housekeeping task, which validates idle
+   * connections, evicts expired ones and keeps the minimum number of idle connections.
+   * When enabled the ping query is no longer run on checkout. Zero disables it.
+   *
+   * @param milliseconds the interval
+   */
+  public synchronized void setPoolHousekeepingInterval(int milliseconds) {
+    stopHousekeeper();
+    this.poolHousekeepingInterval = milliseconds;
+    if (milliseconds > 0) {
+      housekeeper = new PoolHousekeeper(this, milliseconds);
+    }
+    closeAllConnections();
+  }
+
+  /*
+   * The number of idle connections the housekeeping task keeps open
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    closeAllConnections();
+  }
+
+  /*
+   * The maximum time a connection is kept open, zero means forever.
+   *
+   * @param milliseconds the maximum lifetime
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    closeAllConnections();
   }
 
   public String getDriver() {
@@ -290,11 +343,51 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
   /*
-   * Closes all active and idle connections in the pool
+   * Closes all active and idle connections in the pool and stops the housekeeping task,
+   * which starts again with the configured interval on the next getConnection
    */
   public void forceCloseAll() {
+    stopHousekeeper();
+    closeAllConnections();
+  }
+
+  private synchronized void stopHousekeeper() {
+    if (housekeeper != null) {
+      housekeeper.shutdownAndWait();
+      housekeeper = null;
+    }
+  }
+
+  //forceCloseAll停掉的维护线程，下次有人要连接时按配置的间隔重新启动
+  private void startHousekeeperIfStopped() {
+    if (housekeeper == null && poolHousekeepingInterval > 0) {
+      synchronized (this) {
+        if (housekeeper == null && poolHousekeepingInterval > 0) {
+          housekeeper = new PoolHousekeeper(this, poolHousekeepingInterval);
+        }
+      }
+    }
+  }
+
+  /*
+   * Closes all active and idle connections in the pool, called when the configuration changes
+   */
+  protected void closeAllConnections() {
     synchronized (state) {
+      connectionGeneration.incrementAndGet();
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       //关闭所有的activeConnections和idleConnections
       for (int i = state.activeConnections.size(); i > 0; i--) {
@@ -335,7 +428,12 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  //子类可以换成自己的池状态
+  protected PoolState createPoolState() {
+    return new PoolState(this);
+  }
+
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -345,7 +443,7 @@ public class PooledDataSource implements DataSource {
       //先从activeConnections中删除此connection
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn)) {
       	  //如果空闲的连接太少，
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
           if (!conn.getRealConnection().getAutoCommit()) {
@@ -355,6 +453,7 @@ public class PooledDataSource implements DataSource {
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+          newConn.setAttributes(conn.getAttributes());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
           conn.invalidate();
           if (log.isDebugEnabled()) {
@@ -384,7 +483,7 @@ public class PooledDataSource implements DataSource {
     }
   }
 
-  private PooledConnection popConnection(String username, String password) throws SQLException {
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
@@ -429,6 +528,7 @@ public class PooledDataSource implements DataSource {
               }
               //删掉最老的连接，然后再new一个新连接
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn.setAttributes(oldestActiveConnection.getAttributes());
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -517,43 +617,160 @@ public class PooledDataSource implements DataSource {
       result = false;
     }
 
-    if (result) {
+    //启用了后台维护线程的话，侦测查询由后台线程去做
+    if (result && poolHousekeepingInterval <= 0) {
       if (poolPingEnabled) {
         if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-          try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            Statement statement = realConn.createStatement();
-            ResultSet rs = statement.executeQuery(poolPingQuery);
-            rs.close();
-            statement.close();
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
-          }
+          result = executePingQuery(conn);
         }
       }
     }
     return result;
   }
 
+  private boolean executePingQuery(PooledConnection conn) {
+    boolean result;
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+      }
+      Connection realConn = conn.getRealConnection();
+      Statement statement = realConn.createStatement();
+      ResultSet rs = statement.executeQuery(poolPingQuery);
+      rs.close();
+      statement.close();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      result = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      }
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        conn.getRealConnection().close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      result = false;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  /*
+   * Method used by the housekeeping task to check an idle connection,
+   * running the ping query if it has not been used for poolPingConnectionsNotUsedFor.
+   *
+   * @param conn - the connection to check
+   * @return True if the connection is still usable
+   */
+  protected boolean validateIdleConnection(PooledConnection conn) {
+    try {
+      if (conn.getRealConnection().isClosed()) {
+        return false;
+      }
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+    if (poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+      if (!executePingQuery(conn)) {
+        return false;
+      }
+      //检查过了，下次过了poolPingConnectionsNotUsedFor再检查
+      conn.setLastUsedTimestamp(System.currentTimeMillis());
+    }
+    return true;
+  }
+
+  /*
+   * Checks if a connection has been open longer than poolMaximumLifetime
+   */
+  protected boolean isExpired(PooledConnection conn) {
+    return poolMaximumLifetime > 0 && conn.getAge() > poolMaximumLifetime;
+  }
+
+  /*
+   * Run by the housekeeping task: validates idle connections outside of the pool lock,
+   * closes the bad and expired ones and opens new ones up to poolMinimumIdleConnections.
+   */
+  protected void housekeep() {
+    //先把要检查的空闲连接从池中拿出来，检查的时候不用持有锁
+    List<PooledConnection> candidates = new ArrayList<PooledConnection>();
+    int generation;
+    synchronized (state) {
+      generation = connectionGeneration.get();
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isExpired(conn) || (poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
+            && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor)) {
+          it.remove();
+          candidates.add(conn);
+        }
+      }
+    }
+
+    List<PooledConnection> survivors = new ArrayList<PooledConnection>();
+    for (PooledConnection conn : candidates) {
+      if (!isExpired(conn) && validateIdleConnection(conn)) {
+        survivors.add(conn);
+      } else {
+        closeIdleConnection(conn);
+      }
+    }
+
+    int missing;
+    synchronized (state) {
+      missing = Math.min(poolMinimumIdleConnections - state.idleConnections.size() - survivors.size(),
+          poolMaximumActiveConnections - state.activeConnections.size() - state.idleConnections.size() - survivors.size());
+    }
+    for (int i = 0; i < missing; i++) {
+      try {
+        PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+        survivors.add(conn);
+        if (log.isDebugEnabled()) {
+          log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+        }
+      } catch (SQLException e) {
+        log.warn("Could not create idle connection. Cause: " + e);
+        break;
+      }
+    }
+
+    if (!survivors.isEmpty()) {
+      synchronized (state) {
+        //检查的时候配置改了(closeAllConnections)，这些连接可能是用旧的url、用户名开的，不能放回去
+        boolean stale = generation != connectionGeneration.get();
+        for (PooledConnection conn : survivors) {
+          if (!stale && state.idleConnections.size() < poolMaximumIdleConnections) {
+            state.idleConnections.add(conn);
+          } else {
+            closeIdleConnection(conn);
+          }
+        }
+        state.notifyAll();
+      }
+    }
+  }
+
+  private void closeIdleConnection(PooledConnection conn) {
+    conn.invalidate();
+    try {
+      conn.getRealConnection().close();
+    } catch (SQLException e) {
+      // ignore
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Closed idle connection " + conn.getRealHashCode() + ".");
+    }
+  }
+
   /*
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -570,6 +787,23 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /*
+   * Attributes that live as long as the physical connection behind a pooled connection, shared by every
+   * checkout of it and dropped with it when the pool closes it
+   *
+   * @param conn - the pooled connection
+   * @return The attributes, or null if the connection does not come from a pool
+   */
+  public static ConcurrentMap<Object, Object> getConnectionAttributes(Connection conn) {
+    if (Proxy.isProxyClass(conn.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(conn);
+      if (handler instanceof PooledConnection) {
+        return ((PooledConnection) handler).getAttributes();
+      }
+    }
+    return null;
+  }
+
   protected void finalize() throws Throwable {
     forceCloseAll();
     super.finalize();
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.util.Properties;
+
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 
 /**
@@ -26,9 +29,36 @@ import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
  */
 public class PooledDataSourceFactory extends UnpooledDataSourceFactory {
 
+  //选择连接池的实现，SYNCHRONIZED(默认)或CONCURRENT
+  private static final String POOL_TYPE_PROPERTY = "poolType";
+
   //数据源换成了PooledDataSource
   public PooledDataSourceFactory() {
     this.dataSource = new PooledDataSource();
   }
 
+  @Override
+  public void setProperties(Properties properties) {
+    Properties dataSourceProperties = new Properties();
+    dataSourceProperties.putAll(properties);
+    String poolType = (String) dataSourceProperties.remove(POOL_TYPE_PROPERTY);
+    if (poolType != null) {
+      this.dataSource = newPooledDataSource(poolType);
+    }
+    super.setProperties(dataSourceProperties);
+  }
+
+  private PooledDataSource newPooledDataSource(String poolType) {
+    PoolType type;
+    try {
+      type = PoolType.valueOf(poolType.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new DataSourceException("Unknown pool type: " + poolType + ". Valid values are SYNCHRONIZED and CONCURRENT.");
+    }
+    if (type == PoolType.CONCURRENT) {
+      return new ConcurrentPooledDataSource();
+    }
+    return new PooledDataSource();
+  }
+
 }
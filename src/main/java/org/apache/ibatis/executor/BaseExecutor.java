@@ -24,7 +24,9 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.StatsCounter;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.jdbc.ConnectionLogger;
@@ -168,6 +170,9 @@ public abstract class BaseExecutor implements Executor {
       queryStack++;
       //先根据cachekey从localCache去查 mark 一级缓存
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      if (resultHandler == null) {
+        recordLocalCacheRequest(list != null);
+      }
       if (list != null) {
         //若查到localCache缓存，处理localOutputParameterCache
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
@@ -196,6 +201,20 @@ public abstract class BaseExecutor implements Executor {
     return list;
   }
 
+  //SqlSession.selectCursor会调用此方法，游标不走一级缓存
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    ErrorContext.instance().resource(ms.getResource()).activity("executing a query").object(ms.getId());
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    if (queryStack == 0 && ms.isFlushCacheRequired()) {
+      clearLocalCache();
+    }
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    return doQueryCursor(ms, parameter, rowBounds, boundSql);
+  }
+
   //延迟加载，DefaultResultSetHandler.getNestedQueryMappingValue调用.属于嵌套查询，比较高级.
   @Override
   public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
@@ -218,13 +237,11 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     //MyBatis 对于其 Key 的生成采取规则为：[mappedStementId + offset + limit + SQL + queryParams + environment]生成一个哈希码
-    cacheKey.update(ms.getId());
-    cacheKey.update(Integer.valueOf(rowBounds.getOffset()));
-    cacheKey.update(Integer.valueOf(rowBounds.getLimit()));
+    //前三个由MappedStatement事先算好，再预留SQL、参数、environment的位置
+    CacheKey cacheKey = ms.newCacheKey(rowBounds, parameterMappings.size() + 2);
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     //模仿DefaultParameterHandler的逻辑,不再重复，请参考DefaultParameterHandler
@@ -304,6 +321,10 @@ public abstract class BaseExecutor implements Executor {
   protected abstract <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException;
 
+  //游标持有语句，关闭游标时才关闭语句，所以子类不能缓存或者关闭这个语句
+  protected abstract <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql)
+      throws SQLException;
+
   protected void closeStatement(Statement statement) {
     if (statement != null) {
       try {
@@ -332,11 +353,21 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  //一级缓存的统计是整个Configuration汇总的(每个SqlSession一个一级缓存，单独统计没什么意义)
+  private void recordLocalCacheRequest(boolean hit) {
+    if (hit) {
+      configuration.getLocalCacheStatsCounter().recordHit();
+    } else {
+      configuration.getLocalCacheStatsCounter().recordMiss();
+    }
+  }
+
   //从数据库查
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
     //先向缓存中放入占位符？？？
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
+    long start = System.nanoTime();
     try {
       list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
     } finally {
@@ -345,6 +376,9 @@ public abstract class BaseExecutor implements Executor {
     }
     //加入缓存
     localCache.putObject(key, list);
+    StatsCounter statsCounter = configuration.getLocalCacheStatsCounter();
+    statsCounter.recordLoad(System.nanoTime() - start);
+    statsCounter.recordPut();
     //如果是存储过程，OUT参数也加入缓存
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
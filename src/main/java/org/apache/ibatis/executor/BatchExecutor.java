@@ -23,12 +23,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -45,6 +49,11 @@ public class BatchExecutor extends BaseExecutor {
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
   private String currentSql;
   private MappedStatement currentStatement;
+  //自动flush掉的结果，等下次flushStatements时一起返回
+  private final List<BatchResult> flushedResultList = new ArrayList<BatchResult>();
+  //还没执行的批量语句条数和估算的内存占用
+  private int pendingCount;
+  private long pendingBytes;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -57,24 +66,72 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
+    //没有主键生成时，flush用不到参数对象，可以不留着
+    final boolean retainParameterObject = configuration.isBatchRetainParameterObjects()
+        || !NoKeyGenerator.class.equals(ms.getKeyGenerator().getClass());
     if (sql.equals(currentSql) && ms.equals(currentStatement)) {
       int last = statementList.size() - 1;
       stmt = statementList.get(last);
       BatchResult batchResult = batchResultList.get(last);
-      batchResult.addParameterObject(parameterObject);
+      if (retainParameterObject) {
+        batchResult.addParameterObject(parameterObject);
+      }
     } else {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection);
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResultList.add(retainParameterObject ? new BatchResult(ms, sql, parameterObject) : new BatchResult(ms, sql));
     }
     handler.parameterize(stmt);
     handler.batch(stmt);
+    pendingCount++;
+    //只有按内存flush时才估算，估算要把每个参数再取一遍
+    if (configuration.getBatchFlushBytes() > 0) {
+      pendingBytes += estimateSize(configuration, boundSql, parameterObject);
+    }
+    //攒够了就先执行掉，免得几百万条的导入把内存撑爆
+    if ((configuration.getBatchFlushSize() > 0 && pendingCount >= configuration.getBatchFlushSize())
+        || (configuration.getBatchFlushBytes() > 0 && pendingBytes >= configuration.getBatchFlushBytes())) {
+      try {
+        executeBatches(flushedResultList, true);
+      } finally {
+        closeBatches();
+      }
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /*
+   * What is kept of an automatically flushed result until the next flushStatements call: the parameter
+   * objects are only kept for statements with key generation, the others keep only their update counts.
+   */
+  private BatchResult retainedResult(BatchResult batchResult) {
+    MappedStatement ms = batchResult.getMappedStatement();
+    if (!NoKeyGenerator.class.equals(ms.getKeyGenerator().getClass()) || batchResult.getParameterObjects().isEmpty()) {
+      return batchResult;
+    }
+    BatchResult updateCountsOnly = new BatchResult(ms, batchResult.getSql());
+    updateCountsOnly.setUpdateCounts(batchResult.getUpdateCounts());
+    return updateCountsOnly;
+  }
+
+  /*
+   * @return the number of statements added to the batch and not executed yet
+   */
+  public int getPendingCount() {
+    return pendingCount;
+  }
+
+  /*
+   * @return the estimated memory held by the parameters of the pending statements,
+   * always 0 unless batchFlushBytes is set
+   */
+  public long getPendingBytes() {
+    return pendingBytes;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -92,54 +149,132 @@ public class BatchExecutor extends BaseExecutor {
     }
   }
 
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Statement stmt = null;
+    try {
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection);
+      handler.parameterize(stmt);
+      return handler.<E>queryCursor(stmt);
+    } catch (SQLException e) {
+      closeStatement(stmt);
+      throw e;
+    } catch (RuntimeException e) {
+      closeStatement(stmt);
+      throw e;
+    }
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<BatchResult>();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
-          }
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+      List<BatchResult> results = new ArrayList<BatchResult>(flushedResultList);
+      executeBatches(results, false);
+      return results;
+    } finally {
+      flushedResultList.clear();
+      closeBatches();
+    }
+  }
+
+  /*
+   * Executes the pending batches and adds their results to the given list, only the update counts
+   * of those without key generation when the flush is automatic (see retainedResult).
+   */
+  private void executeBatches(List<BatchResult> results, boolean autoFlush) throws SQLException {
+    for (int i = 0, n = statementList.size(); i < n; i++) {
+      Statement stmt = statementList.get(i);
+      BatchResult batchResult = batchResultList.get(i);
+      try {
+        batchResult.setUpdateCounts(stmt.executeBatch());
+        MappedStatement ms = batchResult.getMappedStatement();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+          Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+          jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+        } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+          for (Object parameter : parameterObjects) {
+            keyGenerator.processAfter(this, ms, stmt, parameter);
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
+      } catch (BatchUpdateException e) {
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(i + 1)
+            .append(")")
+            .append(" failed.");
+        if (i > 0) {
+          message.append(" ")
+              .append(i)
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, new ArrayList<BatchResult>(results), batchResult);
       }
-      return results;
-    } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      results.add(autoFlush ? retainedResult(batchResult) : batchResult);
+    }
+  }
+
+  //不管执行成功与否，攒着的语句都关掉，计数清零
+  private void closeBatches() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    pendingCount = 0;
+    pendingBytes = 0;
+  }
+
+  //估算一条语句的参数占多少内存，取值的方式和DefaultParameterHandler一样
+  private long estimateSize(Configuration configuration, BoundSql boundSql, Object parameterObject) {
+    long size = 16;
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null) {
+      return size;
+    }
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      Object value;
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += estimateSize(value);
+    }
+    return size;
+  }
+
+  private long estimateSize(Object value) {
+    if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 16 + 2L * ((char[]) value).length;
     }
+    return 16;
   }
 
 }
@@ -16,17 +16,29 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheTagRegistry;
+import org.apache.ibatis.cache.RefreshAheadCache;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.StatsCounterProvider;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -51,6 +63,9 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class CachingExecutor implements Executor {
 
+  private static final Log log = LogFactory.getLog(CachingExecutor.class);
+  private static final String REFRESH_PARAMETER_PREFIX = "__refresh_";
+
   private Executor delegate;//一般是SimpleExecutor
   private TransactionalCacheManager tcm = new TransactionalCacheManager();
 
@@ -119,11 +134,20 @@ public class CachingExecutor implements Executor {
       flushCacheIfRequired(ms);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, parameterObject, boundSql);
+        String[] cacheTags = entryTags(ms, cache);
+        if (cacheTags != null) {
+          return queryTagged(cache, cacheTags, ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+        }
         @SuppressWarnings("unchecked")
         List<E> list = (List<E>) tcm.getObject(cache, key);//先查CacheKey
         if (list == null) {//查不到再委托给实际的执行器去查
+          long start = System.nanoTime();
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          recordLoad(cache, System.nanoTime() - start);
           tcm.putObject(cache, key, list); // issue #578 and #116//查询结果放入缓存
+        } else if (cache instanceof RefreshAheadCache && ((RefreshAheadCache) cache).claimRefresh(key)) {
+          //命中了但快过期了，先把旧值返回，后台再查一次
+          refreshAhead(cache, ms, parameterObject, rowBounds, key, boundSql);
         }
         return list;
       }
@@ -132,6 +156,109 @@ public class CachingExecutor implements Executor {
     return delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  //带cacheTags的select：缓存里的值带着查询前各个标签的版本号，标签被改过就当没命中
+  private <E> List<E> queryTagged(Cache cache, String[] cacheTags, MappedStatement ms, Object parameterObject, RowBounds rowBounds,
+      ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+    CacheTagRegistry tagRegistry = ms.getConfiguration().getCacheTagRegistry();
+    //版本号要在查数据库之前取，查的过程中别的事务提交了修改，这次的结果也算旧的
+    long[] tagVersions = tagRegistry.getVersions(cacheTags);
+    Object cached = tcm.getObject(cache, key);
+    @SuppressWarnings("unchecked")
+    List<E> list = tcm.isInvalidated(cacheTags) ? null : (List<E>) tagRegistry.untag(cached);
+    if (list == null) {
+      long start = System.nanoTime();
+      list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+      recordLoad(cache, System.nanoTime() - start);
+      tcm.putObject(cache, key, tagRegistry.tag(cacheTags, tagVersions, list));
+    } else if (cache instanceof RefreshAheadCache && ((RefreshAheadCache) cache).claimRefresh(key)) {
+      refreshAhead(cache, ms, parameterObject, rowBounds, key, boundSql);
+    }
+    return list;
+  }
+
+  //带cacheTags的语句用自己的标签，不带的在有带标签的增删改的缓存里用这个缓存自己的标签
+  private static String[] entryTags(MappedStatement ms, Cache cache) {
+    String[] cacheTags = ms.getCacheTags();
+    if (cacheTags == null) {
+      cacheTags = ms.getConfiguration().getCacheTagRegistry().getUntaggedEntryTags(cache);
+    }
+    return cacheTags;
+  }
+
+  //没命中时查数据库花的时间也算进缓存的统计
+  private static void recordLoad(Cache cache, long nanos) {
+    if (cache instanceof StatsCounterProvider) {
+      StatsCounter statsCounter = ((StatsCounterProvider) cache).getStatsCounter();
+      if (statsCounter != null) {
+        statsCounter.recordLoad(nanos);
+      }
+    }
+  }
+
+  private void refreshAhead(Cache cache, MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql) {
+    Configuration configuration = ms.getConfiguration();
+    if (configuration.getEnvironment() == null) {
+      return;
+    }
+    try {
+      //参数值在这里就取好，后台线程跑的时候调用方可能已经改了参数对象
+      BoundSql boundValues = copyBoundValues(configuration, parameterObject, boundSql);
+      configuration.getCacheRefreshExecutor().execute(new RefreshTask(cache, ms, rowBounds, key, boundValues));
+    } catch (RejectedExecutionException e) {
+      //放弃这次刷新，条目到期后由下一个查询重新加载
+      log.debug("Refresh of " + key + " in cache " + cache.getId() + " rejected: " + e);
+    }
+  }
+
+  /*
+   * Copies the values bound to each parameter of the query into a BoundSql that no longer refers to the parameter object.
+   */
+  //和DefaultParameterHandler一样的顺序取值，每个值以额外参数的形式放进新的BoundSql，属性名换成不带.和[]的名字
+  private static BoundSql copyBoundValues(Configuration configuration, Object parameterObject, BoundSql boundSql) {
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    List<ParameterMapping> copiedMappings = new ArrayList<ParameterMapping>(parameterMappings.size());
+    Object[] values = new Object[parameterMappings.size()];
+    boolean self = parameterObject != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
+    MetaObject metaObject = null;
+    for (int i = 0; i < parameterMappings.size(); i++) {
+      ParameterMapping parameterMapping = parameterMappings.get(i);
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        values[i] = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        values[i] = null;
+      } else if (self) {
+        values[i] = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        values[i] = metaObject.getValue(propertyName);
+      }
+      copiedMappings.add(new ParameterMapping.Builder(configuration, REFRESH_PARAMETER_PREFIX + i, parameterMapping.getTypeHandler())
+          .mode(parameterMapping.getMode())
+          .javaType(parameterMapping.getJavaType())
+          .jdbcType(parameterMapping.getJdbcType())
+          .numericScale(parameterMapping.getNumericScale())
+          .resultMapId(parameterMapping.getResultMapId())
+          .jdbcTypeName(parameterMapping.getJdbcTypeName())
+          .expression(parameterMapping.getExpression())
+          .build());
+    }
+    BoundSql copy = new BoundSql(configuration, boundSql.getSql(), copiedMappings, null);
+    for (int i = 0; i < values.length; i++) {
+      copy.setAdditionalParameter(REFRESH_PARAMETER_PREFIX + i, values[i]);
+    }
+    return copy;
+  }
+
+  //游标的结果不进二级缓存
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    flushCacheIfRequired(ms);
+    return delegate.queryCursor(ms, parameter, rowBounds);
+  }
+
   @Override
   public List<BatchResult> flushStatements() throws SQLException {
     return delegate.flushStatements();
@@ -186,7 +313,22 @@ public class CachingExecutor implements Executor {
 
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
-    if (cache != null && ms.isFlushCacheRequired()) {      
+    String[] cacheTags = ms.getCacheTags();
+    if (cacheTags != null && ms.isFlushCacheRequired() && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      //只让带这些标签的条目失效，没有<cache>的namespace也可以让别的namespace的条目失效
+      CacheTagRegistry tagRegistry = ms.getConfiguration().getCacheTagRegistry();
+      tcm.invalidate(tagRegistry, cacheTags);
+      if (cache != null) {
+        //本namespace里不带标签的条目不知道自己读了哪些表，也要失效
+        String[] untaggedEntryTags = tagRegistry.getUntaggedEntryTags(cache);
+        if (untaggedEntryTags != null) {
+          tcm.invalidate(tagRegistry, untaggedEntryTags);
+        } else {
+          //没经过MapperBuilderAssistant登记的语句，只能整个清空
+          tcm.clear(cache);
+        }
+      }
+    } else if (cache != null && ms.isFlushCacheRequired()) {      
       tcm.clear(cache);
     }
   }
@@ -196,4 +338,46 @@ public class CachingExecutor implements Executor {
     throw new UnsupportedOperationException("This method should not be called");
   }
 
+  /*
+   * Reloads a cache entry in its own transaction, with the SQL, the bound values and the cache key of the query that found it stale.
+   */
+  //用一个新的事务、不带二级缓存的SimpleExecutor重新查一次(和当初没命中时委托的查询一样)，查到后直接放进缓存
+  private static class RefreshTask implements Runnable {
+
+    private final Cache cache;
+    private final MappedStatement ms;
+    private final RowBounds rowBounds;
+    private final CacheKey key;
+    private final BoundSql boundSql;
+
+    RefreshTask(Cache cache, MappedStatement ms, RowBounds rowBounds, CacheKey key, BoundSql boundSql) {
+      this.cache = cache;
+      this.ms = ms;
+      this.rowBounds = rowBounds;
+      this.key = key;
+      this.boundSql = boundSql;
+    }
+
+    @Override
+    public void run() {
+      Configuration configuration = ms.getConfiguration();
+      Environment environment = configuration.getEnvironment();
+      Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+      Executor executor = new SimpleExecutor(configuration, tx);
+      try {
+        String[] cacheTags = entryTags(ms, cache);
+        CacheTagRegistry tagRegistry = configuration.getCacheTagRegistry();
+        long[] tagVersions = cacheTags == null ? null : tagRegistry.getVersions(cacheTags);
+        long start = System.nanoTime();
+        List<Object> list = executor.query(ms, null, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+        recordLoad(cache, System.nanoTime() - start);
+        cache.putObject(key, cacheTags == null ? list : tagRegistry.tag(cacheTags, tagVersions, list));
+      } catch (Exception e) {
+        log.warn("Error refreshing " + key + " in cache " + cache.getId() + ". Cause: " + e);
+      } finally {
+        executor.close(false);
+      }
+    }
+  }
+
 }
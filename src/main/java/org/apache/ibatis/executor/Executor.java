@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.util.List;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.MetaObject;
@@ -47,6 +48,9 @@ public interface Executor {
   //查询，带分页
   <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException;
 
+  //查询，返回游标
+  <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException;
+
   //刷新批处理语句
   List<BatchResult> flushStatements() throws SQLException;
 
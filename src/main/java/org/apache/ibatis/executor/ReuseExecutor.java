@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
@@ -42,6 +44,8 @@ public class ReuseExecutor extends BaseExecutor {
 
   //可重用的执行器内部用了一个map，用来缓存SQL语句对应的Statement
   private final Map<String, Statement> statementMap = new HashMap<String, Statement>();
+  //配置了reuseStatementCacheSize时，改用挂在物理连接上的LRU缓存
+  private StatementCache statementCache;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -54,7 +58,7 @@ public class ReuseExecutor extends BaseExecutor {
     //这里看到ResultHandler传入的是null
     StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
     //准备语句
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.update(stmt);
   }
 
@@ -62,12 +66,36 @@ public class ReuseExecutor extends BaseExecutor {
   public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.<E>query(stmt, resultHandler);
   }
 
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    //游标要独占语句，不能放进statementMap里重用
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Statement stmt = null;
+    try {
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection);
+      handler.parameterize(stmt);
+      return handler.<E>queryCursor(stmt);
+    } catch (SQLException e) {
+      closeStatement(stmt);
+      throw e;
+    } catch (RuntimeException e) {
+      closeStatement(stmt);
+      throw e;
+    }
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    //连接池里连接的语句缓存留给下一个SqlSession
+    if (statementCache != null && !statementCache.isShared()) {
+      statementCache.clear();
+    }
     for (Statement stmt : statementMap.values()) {
       closeStatement(stmt);
     }
@@ -75,13 +103,21 @@ public class ReuseExecutor extends BaseExecutor {
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
+    Log statementLog = ms.getStatementLog();
     Statement stmt;
     //得到绑定的SQL语句
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    //如果缓存中已经有了，直接得到Statement
-    if (hasStatementFor(sql)) {
+    if (configuration.getReuseStatementCacheSize() > 0) {
+      StatementCache cache = getStatementCache();
+      stmt = cache.get(ms, sql);
+      if (stmt == null) {
+        stmt = handler.prepare(getConnection(statementLog));
+        cache.put(ms, sql, stmt);
+      }
+    } else if (hasStatementFor(sql)) {
+      //如果缓存中已经有了，直接得到Statement
       stmt = getStatement(sql);
     } else {
       //如果缓存没有找到，则和SimpleExecutor处理完全一样，然后加入缓存
@@ -93,6 +129,24 @@ public class ReuseExecutor extends BaseExecutor {
     return stmt;
   }
 
+  //一个执行器的连接是不会变的，所以只需要在第一次用的时候找一次
+  private StatementCache getStatementCache() throws SQLException {
+    if (statementCache == null) {
+      Map<Object, Object> attributes = PooledDataSource.getConnectionAttributes(transaction.getConnection());
+      if (attributes == null) {
+        statementCache = new StatementCache(configuration.getReuseStatementCacheSize(), false);
+      } else {
+        //每个Configuration各用各的，大小和语句都不和同一个数据源上的其他SqlSessionFactory混用
+        statementCache = (StatementCache) attributes.get(configuration);
+        if (statementCache == null) {
+          statementCache = new StatementCache(configuration.getReuseStatementCacheSize(), true);
+          attributes.put(configuration, statementCache);
+        }
+      }
+    }
+    return statementCache;
+  }
+
   private boolean hasStatementFor(String sql) {
     try {
       return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
@@ -21,6 +21,7 @@ import java.sql.Statement;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
@@ -79,6 +80,25 @@ public class SimpleExecutor extends BaseExecutor {
     }
   }
 
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Statement stmt = null;
+    try {
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection);
+      handler.parameterize(stmt);
+      return handler.<E>queryCursor(stmt);
+    } catch (SQLException e) {
+      closeStatement(stmt);
+      throw e;
+    } catch (RuntimeException e) {
+      closeStatement(stmt);
+      throw e;
+    }
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
 	//doFlushStatements只是给batch用的，所以这里返回空
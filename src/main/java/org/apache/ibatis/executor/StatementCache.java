@@ -0,0 +1,121 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * LRU cache of the statements prepared by a {@link ReuseExecutor} on one physical connection for one Configuration.
+ * <p>
+ * Caches of pooled connections are kept in the connection's attributes: the next session of the same
+ * Configuration that gets the same physical connection out of the pool finds the statements already prepared,
+ * and they go away with the physical connection when the pool closes it.
+ */
+/**
+ * 语句缓存
+ * 按 语句id+SQL 缓存Statement，超过大小就关掉最久没用的
+ * 从连接池拿的连接，每次借出来都是新的PooledConnection，但底下的真实连接是同一个，
+ * 所以挂在真实连接的属性上(每个Configuration一个)，下一个拿到这个连接的SqlSession可以接着用，
+ * 连接池关掉真实连接时语句也跟着关掉、丢掉
+ */
+final class StatementCache {
+
+  private final Map<Key, Statement> statements;
+  private final boolean shared;
+
+  StatementCache(final int size, boolean shared) {
+    this.shared = shared;
+    //和LruCache一样，用LinkedHashMap的accessOrder实现LRU
+    this.statements = new LinkedHashMap<Key, Statement>(size, .75F, true) {
+      private static final long serialVersionUID = -8185468375658727339L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Statement> eldest) {
+        if (size() > size) {
+          close(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  boolean isShared() {
+    return shared;
+  }
+
+  synchronized Statement get(MappedStatement ms, String sql) {
+    return statements.get(new Key(ms.getId(), sql));
+  }
+
+  synchronized void put(MappedStatement ms, String sql, Statement statement) {
+    statements.put(new Key(ms.getId(), sql), statement);
+  }
+
+  synchronized int size() {
+    return statements.size();
+  }
+
+  /*
+   * Closes and forgets every statement.
+   */
+  synchronized void clear() {
+    for (Statement statement : statements.values()) {
+      close(statement);
+    }
+    statements.clear();
+  }
+
+  private static void close(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  //同样的SQL，不同的语句fetchSize、timeout、日志都可能不一样，不能共用一个Statement
+  private static final class Key {
+
+    private final String statementId;
+    private final String sql;
+
+    Key(String statementId, String sql) {
+      this.statementId = statementId;
+      this.sql = sql;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * statementId.hashCode() + sql.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) object;
+      return statementId.equals(other.statementId) && sql.equals(other.sql);
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The resolved auto-mapping of a result set shape onto a result type: for every unmapped column
+ * the column index, the TypeHandler and the setter to call. Instances are immutable.
+ */
+/**
+ * 自动映射计划
+ * 同一个ResultMap、同样的列、同样的前缀、同样的结果类型，自动映射的过程(找属性、找setter、找TypeHandler)每一行都一模一样
+ * 所以算一次存起来，以后每一行只需要 按下标取值+调setter
+ */
+final class AutoMappingPlan {
+
+  //不能用计划处理的(嵌套属性、自定义的ObjectWrapper等)，还是走原来的MetaObject
+  static final int UNSUPPORTED = 0;
+  //普通的bean，直接调setter
+  static final int BEAN = 1;
+  //Map，直接put
+  static final int MAP = 2;
+
+  private final Class<?> type;
+  private final int kind;
+  private final int[] columnIndexes;
+  private final String[] properties;
+  private final TypeHandler<?>[] typeHandlers;
+  private final Invoker[] setters;
+  private final boolean[] primitives;
+
+  AutoMappingPlan(Class<?> type, int kind, int[] columnIndexes, String[] properties, TypeHandler<?>[] typeHandlers,
+      Invoker[] setters, boolean[] primitives) {
+    this.type = type;
+    this.kind = kind;
+    this.columnIndexes = columnIndexes;
+    this.properties = properties;
+    this.typeHandlers = typeHandlers;
+    this.setters = setters;
+    this.primitives = primitives;
+  }
+
+  static AutoMappingPlan unsupported(Class<?> type) {
+    return new AutoMappingPlan(type, UNSUPPORTED, null, null, null, null, null);
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  boolean isSupported() {
+    return kind != UNSUPPORTED;
+  }
+
+  int size() {
+    return columnIndexes == null ? 0 : columnIndexes.length;
+  }
+
+  /*
+   * Same semantics as the MetaObject based auto-mapping, including issue #377 (call setters on nulls).
+   */
+  @SuppressWarnings("unchecked")
+  boolean apply(ResultSet rs, Object resultObject, boolean callSettersOnNulls) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null || callSettersOnNulls) {
+        if (value != null || !primitives[i]) {
+          if (kind == MAP) {
+            ((Map<String, Object>) resultObject).put(properties[i], value);
+          } else {
+            setBeanProperty(i, resultObject, value);
+          }
+        }
+        foundValues = true;
+      }
+    }
+    return foundValues;
+  }
+
+  //异常信息和BeanWrapper.setBeanProperty保持一致
+  private void setBeanProperty(int i, Object resultObject, Object value) {
+    try {
+      try {
+        setters[i].invoke(resultObject, new Object[] { value });
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + resultObject.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.mapping.ResultMap;
+
+/**
+ * Auto-mapping plans shared by all the executions of a {@link org.apache.ibatis.session.Configuration}.
+ */
+/**
+ * 自动映射计划的缓存，每个Configuration一个
+ * key是 ResultMap的id+列前缀+结果类型+结果集的列(名字、JDBC类型、Java类型)
+ * 正常情况下key的个数是有限的(和语句个数差不多)，但为了防止拼SQL之类的用法把内存撑爆，超过上限就不再放新的计划了
+ */
+public class AutoMappingPlanCache {
+
+  private final int maxSize;
+  private final ConcurrentMap<Key, AutoMappingPlan> plans = new ConcurrentHashMap<Key, AutoMappingPlan>();
+
+  public AutoMappingPlanCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  AutoMappingPlan get(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> type) {
+    return plans.get(new Key(resultMap.getId(), columnPrefix, type, rsw.getColumnSignature()));
+  }
+
+  void put(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> type, AutoMappingPlan plan) {
+    if (plans.size() < maxSize) {
+      plans.putIfAbsent(new Key(resultMap.getId(), columnPrefix, type, rsw.getColumnSignature()), plan);
+    }
+  }
+
+  public int getSize() {
+    return plans.size();
+  }
+
+  /*
+   * Plans hold resolved TypeHandlers, call this after registering TypeHandlers once statements have been run.
+   */
+  public void clear() {
+    plans.clear();
+  }
+
+  private static class Key {
+
+    private final String resultMapId;
+    private final String columnPrefix;
+    private final Class<?> type;
+    private final String columnSignature;
+    private final int hashCode;
+
+    Key(String resultMapId, String columnPrefix, Class<?> type, String columnSignature) {
+      this.resultMapId = resultMapId;
+      this.columnPrefix = columnPrefix;
+      this.type = type;
+      this.columnSignature = columnSignature;
+      int h = resultMapId.hashCode();
+      h = 31 * h + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+      h = 31 * h + type.hashCode();
+      h = 31 * h + columnSignature.hashCode();
+      this.hashCode = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) object;
+      return hashCode == other.hashCode
+          && type == other.type
+          && resultMapId.equals(other.resultMapId)
+          && (columnPrefix == null ? other.columnPrefix == null : columnPrefix.equals(other.columnPrefix))
+          && columnSignature.equals(other.columnSignature);
+    }
+  }
+
+}
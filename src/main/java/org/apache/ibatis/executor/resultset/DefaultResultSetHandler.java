@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
@@ -46,7 +48,12 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.MapWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -85,6 +92,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<CacheKey, List<PendingRelation>>();
+
+  //游标每次只取一个对象，resultOrdered的嵌套结果映射里还没交出去的那个对象要留到下一次
+  private Object previousRowValue;
   
   private static class PendingRelation {
     public MetaObject metaObject;
@@ -190,6 +200,34 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return collapseSingleResultList(multipleResults);
   }
 
+  //处理结果集，返回游标，映射推迟到遍历游标的时候
+  @Override
+  public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
+    ErrorContext.instance().activity("handling cursor results").object(mappedStatement.getId());
+
+    ResultSetWrapper rsw = getFirstResultSet(stmt);
+    if (rsw == null) {
+      //没有结果集，游标是空的，语句也用不着了
+      stmt.close();
+    }
+
+    List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+
+    int resultMapCount = resultMaps.size();
+    validateResultMapsCount(rsw, resultMapCount);
+    if (resultMapCount != 1) {
+      throw new ExecutorException("Cursor results cannot be mapped to multiple resultMaps");
+    }
+
+    ResultMap resultMap = resultMaps.get(0);
+    //无序的嵌套结果要等整个结果集读完才能确定一个对象是否完整，游标做不到
+    if (resultMap.hasNestedResultMaps() && !mappedStatement.isResultOrdered()) {
+      throw new ExecutorException("Mapped Statements with nested result mappings must set resultOrdered=true to be used with a Cursor. "
+          + "Statement: " + mappedStatement.getId());
+    }
+    return new DefaultCursor<E>(this, resultMap, rsw, rowBounds);
+  }
+
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
     ResultSet rs = stmt.getResultSet();
     //HSQLDB2.1特殊情况处理
@@ -236,6 +274,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private void cleanUpAfterHandlingResultSet() {
     nestedResultObjects.clear();
+    previousRowValue = null;
     ancestorColumnPrefix.clear();
   }
 
@@ -281,7 +320,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // HANDLE ROWS FOR SIMPLE RESULTMAP
   //
 
-  private void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+  public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     if (resultMap.hasNestedResultMaps()) {
       ensureNoRowBounds();
       checkResultHandler();
@@ -433,6 +472,86 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   //自动映射咯
   private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    final Object resultObject = metaObject.getOriginalObject();
+    //先找这个结果集自己记住的计划，再找Configuration里的，都没有才现算
+    AutoMappingPlan plan = rsw.getAutoMappingPlan(resultMap, columnPrefix);
+    if (plan == null || plan.getType() != resultObject.getClass()) {
+      final AutoMappingPlanCache planCache = configuration.getAutoMappingPlanCache();
+      plan = planCache.get(rsw, resultMap, columnPrefix, resultObject.getClass());
+      if (plan == null) {
+        plan = createAutoMappingPlan(rsw, resultMap, metaObject, columnPrefix);
+        planCache.put(rsw, resultMap, columnPrefix, resultObject.getClass(), plan);
+      }
+      rsw.putAutoMappingPlan(resultMap, columnPrefix, plan);
+    }
+    if (plan.isSupported()) {
+      return plan.apply(rsw.getResultSet(), resultObject, configuration.isCallSettersOnNulls());
+    }
+    return applyAutomaticMappingsWithMetaObject(rsw, resultMap, metaObject, columnPrefix);
+  }
+
+  /*
+   * Resolves once what applyAutomaticMappingsWithMetaObject does for every row.
+   */
+  private AutoMappingPlan createAutoMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    final Class<?> type = metaObject.getOriginalObject().getClass();
+    final ObjectWrapper objectWrapper = metaObject.getObjectWrapper();
+    final int kind;
+    if (objectWrapper.getClass() == BeanWrapper.class) {
+      kind = AutoMappingPlan.BEAN;
+    } else if (objectWrapper.getClass() == MapWrapper.class) {
+      kind = AutoMappingPlan.MAP;
+    } else {
+      //自定义的ObjectWrapper不知道会做什么，老老实实走MetaObject
+      return AutoMappingPlan.unsupported(type);
+    }
+    final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
+    final List<Integer> columnIndexes = new ArrayList<Integer>();
+    final List<String> properties = new ArrayList<String>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<TypeHandler<?>>();
+    final List<Invoker> setters = new ArrayList<Invoker>();
+    final List<Boolean> primitives = new ArrayList<Boolean>();
+    final Reflector reflector = kind == AutoMappingPlan.BEAN ? Reflector.forClass(type) : null;
+    for (String columnName : unmappedColumnNames) {
+      String propertyName = columnName;
+      if (columnPrefix != null && !columnPrefix.isEmpty()) {
+        if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+          propertyName = columnName.substring(columnPrefix.length());
+        } else {
+          continue;
+        }
+      }
+      final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+      if (property == null) {
+        continue;
+      }
+      //a.b、a[0]这种嵌套属性要靠MetaObject去创建中间对象；Map里同名的列，后一列的类型取决于前一列的值
+      if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || (kind == AutoMappingPlan.MAP && properties.contains(property))) {
+        return AutoMappingPlan.unsupported(type);
+      }
+      if (metaObject.hasSetter(property)) {
+        final Class<?> propertyType = metaObject.getSetterType(property);
+        if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
+          columnIndexes.add(rsw.getColumnIndex(columnName));
+          properties.add(property);
+          typeHandlers.add(rsw.getTypeHandler(propertyType, columnName));
+          setters.add(reflector == null ? null : reflector.getSetInvoker(property));
+          primitives.add(propertyType.isPrimitive());
+        }
+      }
+    }
+    final int size = properties.size();
+    final int[] columnIndexArray = new int[size];
+    final boolean[] primitiveArray = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexArray[i] = columnIndexes.get(i);
+      primitiveArray[i] = primitives.get(i);
+    }
+    return new AutoMappingPlan(type, kind, columnIndexArray, properties.toArray(new String[size]),
+        typeHandlers.toArray(new TypeHandler<?>[size]), setters.toArray(new Invoker[size]), primitiveArray);
+  }
+
+  private boolean applyAutomaticMappingsWithMetaObject(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     for (String columnName : unmappedColumnNames) {
@@ -798,7 +917,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     final DefaultResultContext resultContext = new DefaultResultContext();
     skipRows(rsw.getResultSet(), rowBounds);
-    Object rowValue = null;
+    Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
@@ -819,6 +938,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
     if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+      previousRowValue = null;
+    } else if (rowValue != null && mappedStatement.isResultOrdered()) {
+      //被ResultHandler停下来了(游标)，当前这个对象下一次再交出去
+      previousRowValue = rowValue;
     }
   }
   
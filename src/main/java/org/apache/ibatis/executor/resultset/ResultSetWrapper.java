@@ -38,7 +38,7 @@ import org.apache.ibatis.type.UnknownTypeHandler;
 /**
  * @author Iwao AVE!
  */
-class ResultSetWrapper {
+public class ResultSetWrapper {
 
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
@@ -48,6 +48,8 @@ class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private Map<String, AutoMappingPlan> autoMappingPlanMap = new HashMap<String, AutoMappingPlan>();
+  private String columnSignature;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -159,6 +161,40 @@ class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  AutoMappingPlan getAutoMappingPlan(ResultMap resultMap, String columnPrefix) {
+    return autoMappingPlanMap.get(getMapKey(resultMap, columnPrefix));
+  }
+
+  void putAutoMappingPlan(ResultMap resultMap, String columnPrefix, AutoMappingPlan plan) {
+    autoMappingPlanMap.put(getMapKey(resultMap, columnPrefix), plan);
+  }
+
+  /*
+   * Everything about the columns an auto-mapping plan depends on: names, JDBC types and class names.
+   */
+  String getColumnSignature() {
+    if (columnSignature == null) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        builder.append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':').append(classNames.get(i)).append(',');
+      }
+      columnSignature = builder.toString();
+    }
+    return columnSignature;
+  }
+
+  /*
+   * @return the 1-based index of the column that a lookup by label would return
+   */
+  int getColumnIndex(String columnName) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
@@ -22,6 +22,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -76,6 +77,15 @@ public class CallableStatementHandler extends BaseStatementHandler {
     return resultList;
   }
 
+  @Override
+  public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+    CallableStatement cs = (CallableStatement) statement;
+    cs.execute();
+    Cursor<E> cursor = resultSetHandler.<E>handleCursorResultSets(cs);
+    resultSetHandler.handleOutputParameters(cs);
+    return cursor;
+  }
+
   @Override
   protected Statement instantiateStatement(Connection connection) throws SQLException {
     //调用Connection.prepareCall
@@ -22,6 +22,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -68,6 +69,13 @@ public class PreparedStatementHandler extends BaseStatementHandler {
     return resultSetHandler.<E> handleResultSets(ps);
   }
 
+  @Override
+  public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+    PreparedStatement ps = (PreparedStatement) statement;
+    ps.execute();
+    return resultSetHandler.<E> handleCursorResultSets(ps);
+  }
+
   @Override
   protected Statement instantiateStatement(Connection connection) throws SQLException {
     //调用Connection.prepareStatement
@@ -20,6 +20,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.session.ResultHandler;
@@ -53,6 +54,10 @@ public interface StatementHandler {
   <E> List<E> query(Statement statement, ResultHandler resultHandler)
       throws SQLException;
 
+  //select-->返回游标，结果在遍历时才映射
+  <E> Cursor<E> queryCursor(Statement statement)
+      throws SQLException;
+
   //得到绑定sql
   BoundSql getBoundSql();
 
@@ -0,0 +1,256 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a class file says about its class (name, modifiers, supertypes and runtime visible annotations),
+ * read from the bytecode without loading the class.
+ */
+/**
+ * 类文件里的基本信息：类名、修饰符、父类、接口、运行时可见的注解
+ * 直接读字节码，不加载类(不会触发类初始化，也不会在永久代/元空间里留下一个类)
+ */
+public final class ClassFileInfo {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  //常量池里的类型
+  private static final int UTF8 = 1;
+  private static final int INTEGER = 3;
+  private static final int FLOAT = 4;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int CLASS = 7;
+  private static final int STRING = 8;
+  private static final int FIELD_REF = 9;
+  private static final int METHOD_REF = 10;
+  private static final int INTERFACE_METHOD_REF = 11;
+  private static final int NAME_AND_TYPE = 12;
+  private static final int METHOD_HANDLE = 15;
+  private static final int METHOD_TYPE = 16;
+  private static final int DYNAMIC = 17;
+  private static final int INVOKE_DYNAMIC = 18;
+  private static final int MODULE = 19;
+  private static final int PACKAGE = 20;
+
+  private final int accessFlags;
+  private final String className;
+  private final String superClassName;
+  private final List<String> interfaceNames;
+  private final List<String> annotationNames;
+
+  private ClassFileInfo(int accessFlags, String className, String superClassName, List<String> interfaceNames,
+      List<String> annotationNames) {
+    this.accessFlags = accessFlags;
+    this.className = className;
+    this.superClassName = superClassName;
+    this.interfaceNames = interfaceNames;
+    this.annotationNames = annotationNames;
+  }
+
+  /*
+   * Reads and closes the class file.
+   */
+  public static ClassFileInfo read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a class file");
+      }
+      //minor_version, major_version
+      in.readUnsignedShort();
+      in.readUnsignedShort();
+      int constantPoolCount = in.readUnsignedShort();
+      //只需要UTF8和CLASS，其他的跳过
+      String[] utf8 = new String[constantPoolCount];
+      int[] classes = new int[constantPoolCount];
+      for (int i = 1; i < constantPoolCount; i++) {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+          case UTF8:
+            utf8[i] = in.readUTF();
+            break;
+          case CLASS:
+            classes[i] = in.readUnsignedShort();
+            break;
+          case STRING:
+          case METHOD_TYPE:
+          case MODULE:
+          case PACKAGE:
+            skipFully(in, 2);
+            break;
+          case METHOD_HANDLE:
+            skipFully(in, 3);
+            break;
+          case INTEGER:
+          case FLOAT:
+          case FIELD_REF:
+          case METHOD_REF:
+          case INTERFACE_METHOD_REF:
+          case NAME_AND_TYPE:
+          case DYNAMIC:
+          case INVOKE_DYNAMIC:
+            skipFully(in, 4);
+            break;
+          case LONG:
+          case DOUBLE:
+            //占两个位置
+            skipFully(in, 8);
+            i++;
+            break;
+          default:
+            throw new IOException("Unknown constant pool tag " + tag);
+        }
+      }
+      int accessFlags = in.readUnsignedShort();
+      String className = toClassName(utf8[classes[in.readUnsignedShort()]]);
+      int superClass = in.readUnsignedShort();
+      String superClassName = superClass == 0 ? null : toClassName(utf8[classes[superClass]]);
+      int interfaceCount = in.readUnsignedShort();
+      List<String> interfaceNames = new ArrayList<String>(interfaceCount);
+      for (int i = 0; i < interfaceCount; i++) {
+        interfaceNames.add(toClassName(utf8[classes[in.readUnsignedShort()]]));
+      }
+      //字段和方法
+      skipMembers(in);
+      skipMembers(in);
+      List<String> annotationNames = new ArrayList<String>();
+      int attributeCount = in.readUnsignedShort();
+      for (int i = 0; i < attributeCount; i++) {
+        String attributeName = utf8[in.readUnsignedShort()];
+        int length = in.readInt();
+        if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+          int annotationCount = in.readUnsignedShort();
+          for (int a = 0; a < annotationCount; a++) {
+            annotationNames.add(readAnnotation(in, utf8));
+          }
+        } else {
+          skipFully(in, length);
+        }
+      }
+      return new ClassFileInfo(accessFlags, className, superClassName, Collections.unmodifiableList(interfaceNames),
+          Collections.unmodifiableList(annotationNames));
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void skipMembers(DataInputStream in) throws IOException {
+    int count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      //access_flags, name_index, descriptor_index
+      skipFully(in, 6);
+      int attributeCount = in.readUnsignedShort();
+      for (int a = 0; a < attributeCount; a++) {
+        skipFully(in, 2);
+        skipFully(in, in.readInt());
+      }
+    }
+  }
+
+  //返回注解的类名，注解的属性值跳过
+  private static String readAnnotation(DataInputStream in, String[] utf8) throws IOException {
+    String descriptor = utf8[in.readUnsignedShort()];
+    int pairCount = in.readUnsignedShort();
+    for (int i = 0; i < pairCount; i++) {
+      skipFully(in, 2);
+      skipElementValue(in, utf8);
+    }
+    //Lcom/example/Annotation;
+    return toClassName(descriptor.substring(1, descriptor.length() - 1));
+  }
+
+  private static void skipElementValue(DataInputStream in, String[] utf8) throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case 'e':
+        skipFully(in, 4);
+        break;
+      case '@':
+        readAnnotation(in, utf8);
+        break;
+      case '[':
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+          skipElementValue(in, utf8);
+        }
+        break;
+      default:
+        //基本类型、String、Class
+        skipFully(in, 2);
+        break;
+    }
+  }
+
+  private static void skipFully(DataInputStream in, int length) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      int skipped = in.skipBytes(remaining);
+      if (skipped <= 0) {
+        throw new IOException("Unexpected end of class file");
+      }
+      remaining -= skipped;
+    }
+  }
+
+  private static String toClassName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+  public int getAccessFlags() {
+    return accessFlags;
+  }
+
+  public boolean isInterface() {
+    return Modifier.isInterface(accessFlags);
+  }
+
+  public boolean isAbstract() {
+    return Modifier.isAbstract(accessFlags);
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  /*
+   * @return the name of the superclass, null for java.lang.Object
+   */
+  public String getSuperClassName() {
+    return superClassName;
+  }
+
+  public List<String> getInterfaceNames() {
+    return interfaceNames;
+  }
+
+  /*
+   * @return the names of the runtime visible annotations declared on the class itself
+   */
+  public List<String> getAnnotationNames() {
+    return annotationNames;
+  }
+
+}
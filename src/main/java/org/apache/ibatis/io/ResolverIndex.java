@@ -0,0 +1,138 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * A build-time index of the classes of a package and its sub-packages, stored as the resource
+ * META-INF/mybatis/resolver-index/&lt;package name&gt; with one class name per line. When the class path
+ * has an index for a package, {@link ResolverUtil} reads the class names from it instead of listing the
+ * package through {@link VFS}, which has to open and walk every jar. Every jar or directory that has classes
+ * in the package must then provide an index for it. Indexes are written with
+ * {@code java org.apache.ibatis.io.ResolverIndex <classes directory> <package>...}, e.g. from the
+ * exec-maven-plugin in the process-classes phase.
+ */
+/**
+ * 包的类索引，构建时生成
+ * 资源META-INF/mybatis/resolver-index/包名，每行一个类名(包括子包里的类)
+ * classpath上有某个包的索引时，ResolverUtil直接从索引里取类名，不用再通过VFS打开jar包一个一个找(大的fat jar很慢)
+ * 所以一个包分布在多个jar里时，每个jar都要有这个包的索引
+ */
+public final class ResolverIndex {
+
+  public static final String INDEX_LOCATION = "META-INF/mybatis/resolver-index/";
+
+  private ResolverIndex() {
+    // Prevent Instantiation
+  }
+
+  /*
+   * @return the class names listed by all the indexes of the package on the class path, or null if there is none
+   */
+  public static List<String> read(ClassLoader classLoader, String packageName) throws IOException {
+    Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION + packageName);
+    if (!urls.hasMoreElements()) {
+      return null;
+    }
+    List<String> classNames = new ArrayList<String>();
+    while (urls.hasMoreElements()) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(urls.nextElement().openStream(), "UTF-8"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          line = line.trim();
+          if (line.length() > 0 && !line.startsWith("#")) {
+            classNames.add(line);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return classNames;
+  }
+
+  /*
+   * Writes the index of a package of a classes directory into that directory.
+   * @return the index file
+   */
+  public static File write(File classesDirectory, String packageName) throws IOException {
+    List<String> classNames = new ArrayList<String>();
+    File packageDirectory = new File(classesDirectory, packageName.replace('.', File.separatorChar));
+    collectClassNames(packageDirectory, packageName, classNames);
+    Collections.sort(classNames);
+
+    File indexFile = new File(classesDirectory, INDEX_LOCATION + packageName);
+    File indexDirectory = indexFile.getParentFile();
+    if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+      throw new IOException("Could not create directory " + indexDirectory);
+    }
+    Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8");
+    try {
+      for (String className : classNames) {
+        writer.write(className);
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+    return indexFile;
+  }
+
+  //和VFS列出来的一样，包括子包和内部类
+  private static void collectClassNames(File directory, String packageName, List<String> classNames) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isDirectory()) {
+        collectClassNames(file, packageName + "." + name, classNames);
+      } else if (name.endsWith(".class")) {
+        classNames.add(packageName + "." + name.substring(0, name.length() - ".class".length()));
+      }
+    }
+  }
+
+  /*
+   * Usage: ResolverIndex &lt;classes directory&gt; &lt;package&gt;...
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: java " + ResolverIndex.class.getName() + " <classes directory> <package>...");
+      System.exit(1);
+    }
+    File classesDirectory = new File(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      File indexFile = write(classesDirectory, args[i]);
+      System.out.println("Wrote " + indexFile);
+    }
+  }
+
+}
@@ -16,9 +16,13 @@
 package org.apache.ibatis.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.logging.Log;
@@ -53,8 +57,14 @@ import org.apache.ibatis.logging.LogFactory;
  * resolver.find(new CustomTest(), pkg2);
  * Collection&lt;ActionBean&gt; beans = resolver.getClasses();
  * </pre>
+ * <p/>
+ * <p>If the class path has a {@link ResolverIndex} for the package, the class names are read from the index
+ * instead of being listed through {@link VFS}. Tests that implement {@link ClassFileTest} are first applied to
+ * the class file, so that classes that cannot match are never loaded.</p>
  * 
  * 找一个package下满足条件的所有类
+ * 有ResolverIndex(构建时生成的包索引)的话直接用索引里的类名，不用VFS去翻jar包
+ * IsA和AnnotatedWith会先看一眼字节码，肯定不满足条件的类就不加载了
  *
  * @author Tim Fennell
  */
@@ -76,12 +86,25 @@ public class ResolverUtil<T> {
     boolean matches(Class<?> type);
   }
 
+  /**
+   * A Test that can rule out classes from their class file, before they are loaded.
+   */
+  public static interface ClassFileTest extends Test {
+    /**
+     * Must return false only if the class described by the class file cannot match. The classes
+     * for which it returns true are loaded and passed to {@link #matches(Class)}.
+     */
+    boolean mayMatch(ClassFileInfo classFile, ClassLoader loader);
+  }
+
   /**
    * A Test that checks to see if each class is assignable to the provided class. Note
    * that this test will match the parent type itself if it is presented for matching.
    */
-  public static class IsA implements Test {
+  public static class IsA implements ClassFileTest {
     private Class<?> parent;
+    //类名->是否是parent的子类型，父类和接口的class文件只读一次
+    private Map<String, Boolean> assignableTypes = new HashMap<String, Boolean>();
 
     /** Constructs an IsA test using the supplied Class as the parent class/interface. */
     public IsA(Class<?> parentType) {
@@ -94,6 +117,48 @@ public class ResolverUtil<T> {
       return type != null && parent.isAssignableFrom(type);
     }
 
+    /** Walks the class files of the supertypes, any supertype that cannot be read counts as a match. */
+    @Override
+    public boolean mayMatch(ClassFileInfo classFile, ClassLoader loader) {
+      if (parent == Object.class) {
+        return true;
+      }
+      return isAssignable(classFile, loader);
+    }
+
+    private boolean isAssignable(ClassFileInfo classFile, ClassLoader loader) {
+      if (parent.getName().equals(classFile.getClassName())) {
+        return true;
+      }
+      String superClassName = classFile.getSuperClassName();
+      if (superClassName != null && isAssignable(superClassName, loader)) {
+        return true;
+      }
+      for (String interfaceName : classFile.getInterfaceNames()) {
+        if (isAssignable(interfaceName, loader)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isAssignable(String typeName, ClassLoader loader) {
+      Boolean assignable = assignableTypes.get(typeName);
+      if (assignable == null) {
+        if (parent.getName().equals(typeName)) {
+          assignable = Boolean.TRUE;
+        } else if ("java.lang.Object".equals(typeName)) {
+          assignable = Boolean.FALSE;
+        } else {
+          ClassFileInfo classFile = readClassFile(loader, typeName.replace('.', '/') + ".class");
+          //找不到父类的class文件，没法判断，交给matches
+          assignable = classFile == null || isAssignable(classFile, loader);
+        }
+        assignableTypes.put(typeName, assignable);
+      }
+      return assignable;
+    }
+
     @Override
     public String toString() {
       return "is assignable to " + parent.getSimpleName();
@@ -104,7 +169,7 @@ public class ResolverUtil<T> {
    * A Test that checks to see if each class is annotated with a specific annotation. If it
    * is, then the test returns true, otherwise false.
    */
-  public static class AnnotatedWith implements Test {
+  public static class AnnotatedWith implements ClassFileTest {
     private Class<? extends Annotation> annotation;
 
     /** Constructs an AnnotatedWith test for the specified annotation type. */
@@ -118,6 +183,12 @@ public class ResolverUtil<T> {
       return type != null && type.isAnnotationPresent(annotation);
     }
 
+    /** An {@link Inherited} annotation may come from a superclass, so only the other ones are checked. */
+    @Override
+    public boolean mayMatch(ClassFileInfo classFile, ClassLoader loader) {
+      return annotation.isAnnotationPresent(Inherited.class) || classFile.getAnnotationNames().contains(annotation.getName());
+    }
+
     @Override
     public String toString() {
       return "annotated with @" + annotation.getSimpleName();
@@ -220,6 +291,14 @@ public class ResolverUtil<T> {
     String path = getPackagePath(packageName);
 
     try {
+      //有索引就不用VFS了
+      List<String> classNames = ResolverIndex.read(getClassLoader(), packageName);
+      if (classNames != null) {
+        for (String className : classNames) {
+          addIfMatching(test, className.replace('.', '/') + ".class");
+        }
+        return this;
+      }
         //通过VFS来深入jar包里面去找一个class
       List<String> children = VFS.getInstance().list(path);
       for (String child : children) {
@@ -258,6 +337,12 @@ public class ResolverUtil<T> {
       ClassLoader loader = getClassLoader();
       log.debug("Checking to see if class " + externalName + " matches criteria [" + test + "]");
 
+      if (test instanceof ClassFileTest) {
+        ClassFileInfo classFile = readClassFile(loader, fqn);
+        if (classFile != null && !((ClassFileTest) test).mayMatch(classFile, loader)) {
+          return;
+        }
+      }
       Class<?> type = loader.loadClass(externalName);
       if (test.matches(type)) {
         matches.add((Class<T>) type);
@@ -267,4 +352,20 @@ public class ResolverUtil<T> {
           t.getClass().getName() + " with message: " + t.getMessage());
     }
   }
-}
\ No newline at end of file
+
+  /*
+   * @return the class file, or null if it cannot be found or read
+   */
+  static ClassFileInfo readClassFile(ClassLoader loader, String path) {
+    InputStream inputStream = loader.getResourceAsStream(path);
+    if (inputStream == null) {
+      return null;
+    }
+    try {
+      return ClassFileInfo.read(inputStream);
+    } catch (IOException e) {
+      log.debug("Could not read class file " + path + ": " + e);
+      return null;
+    }
+  }
+}
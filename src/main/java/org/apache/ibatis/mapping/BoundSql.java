@@ -65,6 +65,11 @@ public class BoundSql {
     return parameterObject;
   }
 
+  //没有额外参数(静态SQL)时，设参数不用每个都去问一遍
+  public boolean hasAdditionalParameters() {
+    return !additionalParameters.isEmpty();
+  }
+
   public boolean hasAdditionalParameter(String name) {
     return metaParameters.hasGetter(name);
   }
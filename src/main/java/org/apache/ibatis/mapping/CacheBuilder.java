@@ -23,13 +23,19 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.Ticker;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompressingSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -46,9 +52,14 @@ public class CacheBuilder {
   private List<Class<? extends Cache>> decorators;
   private Integer size;
   private Long clearInterval;
+  private Long timeToLive;
+  private boolean refreshAhead;
+  private Ticker ticker;
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private Class<? extends CacheSerializer> serializer;
+  private boolean compress;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -77,6 +88,21 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  public CacheBuilder refreshAhead(boolean refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
+  public CacheBuilder ticker(Ticker ticker) {
+    this.ticker = ticker;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
@@ -87,6 +113,16 @@ public class CacheBuilder {
     return this;
   }
   
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  public CacheBuilder compress(boolean compress) {
+    this.compress = compress;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -94,10 +130,13 @@ public class CacheBuilder {
 
   public Cache build() {
     setDefaultImplementations();
+    //同一个缓存的各层装饰者共用一个统计计数器
+    StatsCounter statsCounter = new StatsCounter();
     //先new一个base的cache(PerpetualCache)
     Cache cache = newBaseCacheInstance(implementation, id);
     //设额外属性
     setCacheProperties(cache);
+    setStatsCounter(cache, statsCounter);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
       for (Class<? extends Cache> decorator : decorators) {
@@ -105,12 +144,14 @@ public class CacheBuilder {
         cache = newCacheDecoratorInstance(decorator, cache);
         //又要来一遍设额外属性
         setCacheProperties(cache);
+        setStatsCounter(cache, statsCounter);
       }
       //最后附加上标准的装饰者
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, statsCounter);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
         //如果是custom缓存，且不是日志，要加日志
       cache = new LoggingCache(cache);
+      ((LoggingCache) cache).setStatsCounter(statsCounter);
     }
     return cache;
   }
@@ -126,25 +167,41 @@ public class CacheBuilder {
   }
 
   //最后附加上标准的装饰者
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, StatsCounter statsCounter) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
-      if (clearInterval != null) {
+      if (clearInterval != null || timeToLive != null) {
         //刷新缓存间隔,怎么刷新呢，用ScheduledCache来刷，还是装饰者模式，漂亮！
-        cache = new ScheduledCache(cache);
-        ((ScheduledCache) cache).setClearInterval(clearInterval);
+        ScheduledCache scheduledCache = new ScheduledCache(cache);
+        if (ticker != null) {
+          scheduledCache.setTicker(ticker);
+        }
+        //只设了timeToLive时不整体清空
+        scheduledCache.setClearInterval(clearInterval != null ? clearInterval : Long.MAX_VALUE);
+        if (timeToLive != null) {
+          scheduledCache.setTimeToLive(timeToLive);
+          scheduledCache.setRefreshAhead(refreshAhead);
+          //refreshAheadRatio、jitterRatio可以用<property>调
+          setCacheProperties(scheduledCache);
+        }
+        cache = scheduledCache;
       }
       if (readWrite) {
           //如果readOnly=false,可读写的缓存 会返回缓存对象的拷贝(通过序列化) 。这会慢一些,但是安全,因此默认是 false。
-        cache = new SerializedCache(cache);
+        cache = new SerializedCache(cache, newSerializerInstance());
+        ((SerializedCache) cache).setStatsCounter(statsCounter);
       }
       //日志缓存
       cache = new LoggingCache(cache);
+      ((LoggingCache) cache).setStatsCounter(statsCounter);
       //同步缓存, 3.2.6以后这个类已经没用了，考虑到Hazelcast, EhCache已经有锁机制了，所以这个锁就画蛇添足了。
-      cache = new SynchronizedCache(cache);
+      //TinyLfuCache自己处理并发(读不加锁)，再套一层SynchronizedCache又把所有读串行化了
+      if (!isConcurrent()) {
+        cache = new SynchronizedCache(cache);
+      }
       if (blocking) {
         cache = new BlockingCache(cache);
       }
@@ -154,6 +211,39 @@ public class CacheBuilder {
     }
   }
 
+  //序列化器也能拿到<cache>里的property，比如CompactSerializer的registeredClasses
+  private CacheSerializer newSerializerInstance() {
+    Class<? extends CacheSerializer> serializerClass = serializer == null ? JavaSerializer.class : serializer;
+    CacheSerializer cacheSerializer;
+    try {
+      cacheSerializer = serializerClass.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializerClass + "). Cause: " + e, e);
+    }
+    if (compress) {
+      cacheSerializer = new CompressingSerializer(cacheSerializer);
+    }
+    cacheSerializer.setProperties(properties == null ? new Properties() : properties);
+    return cacheSerializer;
+  }
+
+  //淘汰策略记淘汰次数，SerializedCache记值的大小，LoggingCache记命中率
+  private void setStatsCounter(Cache cache, StatsCounter statsCounter) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("statsCounter")) {
+      metaCache.setValue("statsCounter", statsCounter);
+    }
+  }
+
+  private boolean isConcurrent() {
+    for (Class<? extends Cache> decorator : decorators) {
+      if (!TinyLfuCache.class.equals(decorator)) {
+        return false;
+      }
+    }
+    return !decorators.isEmpty();
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
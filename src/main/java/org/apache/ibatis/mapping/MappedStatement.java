@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -27,6 +28,7 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
 
 /**
  * @author Clinton Begin
@@ -63,6 +65,10 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  //select读的、增删改写的缓存标签(一般是表名)，见CacheTagRegistry
+  private String[] cacheTags;
+  //不分页时缓存key的前缀(id、offset、limit)，每次查询复制一份就行
+  private CacheKey defaultCacheKeyPrefix;
 
   MappedStatement() {
     // constructor disabled
@@ -182,12 +188,24 @@ public final class MappedStatement {
       return this;
     }
     
+    public Builder cacheTags(String cacheTags) {
+      String[] tags = delimitedStringtoArray(cacheTags);
+      if (tags != null) {
+        for (int i = 0; i < tags.length; i++) {
+          tags[i] = tags[i].trim();
+        }
+      }
+      mappedStatement.cacheTags = tags;
+      return this;
+    }
+
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
       assert mappedStatement.id != null;
       assert mappedStatement.sqlSource != null;
       assert mappedStatement.lang != null;
       mappedStatement.resultMaps = Collections.unmodifiableList(mappedStatement.resultMaps);
+      mappedStatement.defaultCacheKeyPrefix = mappedStatement.createCacheKeyPrefix(RowBounds.DEFAULT);
       return mappedStatement;
     }
   }
@@ -284,6 +302,29 @@ public final class MappedStatement {
     return resultSets;
   }
   
+  /*
+   * Returns a new cache key holding the statement id, offset and limit, with room for expectedUpdates more elements.
+   */
+  //新建一个缓存key，已经放好了语句id、offset、limit
+  public CacheKey newCacheKey(RowBounds rowBounds, int expectedUpdates) {
+    if (rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET && rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT) {
+      return new CacheKey(defaultCacheKeyPrefix, expectedUpdates);
+    }
+    return new CacheKey(createCacheKeyPrefix(rowBounds), expectedUpdates);
+  }
+
+  private CacheKey createCacheKeyPrefix(RowBounds rowBounds) {
+    CacheKey prefix = new CacheKey();
+    prefix.update(id);
+    prefix.update(Integer.valueOf(rowBounds.getOffset()));
+    prefix.update(Integer.valueOf(rowBounds.getLimit()));
+    return prefix;
+  }
+
+  public String[] getCacheTags() {
+    return cacheTags;
+  }
+
   public BoundSql getBoundSql(Object parameterObject) {
 	//其实就是调用sqlSource.getBoundSql
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * The XPath expressions the builders use that only select child elements by name: "cache", "/mapper/resultMap",
+ * "select|insert|update|delete". They are evaluated by walking the DOM instead of through javax.xml.xpath,
+ * with the same results in the same (document) order. Any other expression is left to XPath.
+ */
+/**
+ * 只按名字选子元素的简单XPath，比如"cache"、"/mapper/resultMap"、"select|insert|update|delete"
+ * 解析配置和映射器用的全是这种，直接遍历DOM的子节点就行，不用每次都走javax.xml.xpath(编译表达式+求值，很慢)
+ * 结果和顺序(文档顺序)都和XPath一样，其他的表达式还是交给XPath
+ */
+final class SimpleXPath {
+
+  //表达式不是简单路径时放这个，免得每次都重新判断
+  private static final SimpleXPath UNSUPPORTED = new SimpleXPath(false, null);
+  //表达式基本都是代码里的常量，个数有限，以防万一还是设个上限
+  private static final int MAX_CACHED_EXPRESSIONS = 256;
+  private static final ConcurrentMap<String, SimpleXPath> EXPRESSIONS = new ConcurrentHashMap<String, SimpleXPath>();
+
+  private final boolean absolute;
+  //每一步可以匹配的元素名
+  private final String[][] steps;
+
+  private SimpleXPath(boolean absolute, String[][] steps) {
+    this.absolute = absolute;
+    this.steps = steps;
+  }
+
+  /*
+   * @return the compiled expression, or null if it is not a simple path of element names
+   */
+  static SimpleXPath compile(String expression) {
+    SimpleXPath path = EXPRESSIONS.get(expression);
+    if (path == null) {
+      path = parse(expression);
+      if (EXPRESSIONS.size() < MAX_CACHED_EXPRESSIONS) {
+        EXPRESSIONS.putIfAbsent(expression, path);
+      }
+    }
+    return path == UNSUPPORTED ? null : path;
+  }
+
+  //a、a/b、/a/b 或者 a|b|c(只有一步时才支持|，多步的并集要按文档顺序合并，交给XPath)
+  private static SimpleXPath parse(String expression) {
+    boolean absolute = expression.startsWith("/");
+    String path = absolute ? expression.substring(1) : expression;
+    String[] stepExpressions = path.split("/", -1);
+    String[][] steps = new String[stepExpressions.length][];
+    for (int i = 0; i < stepExpressions.length; i++) {
+      String[] names = stepExpressions[i].split("\\|", -1);
+      if (names.length > 1 && (absolute || stepExpressions.length > 1)) {
+        return UNSUPPORTED;
+      }
+      for (String name : names) {
+        if (!isName(name)) {
+          return UNSUPPORTED;
+        }
+      }
+      steps[i] = names;
+    }
+    return new SimpleXPath(absolute, steps);
+  }
+
+  //不支持*、@、.、..、[]、//、名称空间前缀等
+  private static boolean isName(String name) {
+    if (name.length() == 0) {
+      return false;
+    }
+    char first = name.charAt(0);
+    if (!Character.isLetter(first) && first != '_') {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  Node selectNode(Node root) {
+    List<Node> nodes = new ArrayList<Node>(1);
+    select(start(root), 0, nodes, true);
+    return nodes.isEmpty() ? null : nodes.get(0);
+  }
+
+  List<Node> selectNodes(Node root) {
+    List<Node> nodes = new ArrayList<Node>();
+    select(start(root), 0, nodes, false);
+    return nodes;
+  }
+
+  private Node start(Node root) {
+    if (!absolute || root instanceof Document) {
+      return root;
+    }
+    return root.getOwnerDocument();
+  }
+
+  //深度优先按顺序遍历，得到的就是文档顺序
+  private boolean select(Node context, int step, List<Node> nodes, boolean first) {
+    if (step == steps.length) {
+      nodes.add(context);
+      return first;
+    }
+    for (Node child = context.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE && matches(steps[step], child.getNodeName())
+          && select(child, step + 1, nodes, first)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(String[] names, String nodeName) {
+    for (String name : names) {
+      if (name.equals(nodeName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -212,6 +212,14 @@ public class XPathParser {
 	//返回节点List
   public List<XNode> evalNodes(Object root, String expression) {
     List<XNode> xnodes = new ArrayList<XNode>();
+    //只按名字选子元素的，直接遍历DOM
+    SimpleXPath path = root instanceof Node ? SimpleXPath.compile(expression) : null;
+    if (path != null) {
+      for (Node node : path.selectNodes((Node) root)) {
+        xnodes.add(new XNode(this, node, variables));
+      }
+      return xnodes;
+    }
     NodeList nodes = (NodeList) evaluate(expression, root, XPathConstants.NODESET);
     for (int i = 0; i < nodes.getLength(); i++) {
       xnodes.add(new XNode(this, nodes.item(i), variables));
@@ -225,7 +233,8 @@ public class XPathParser {
 
 	//返回节点
   public XNode evalNode(Object root, String expression) {
-    Node node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    SimpleXPath path = root instanceof Node ? SimpleXPath.compile(expression) : null;
+    Node node = path != null ? path.selectNode((Node) root) : (Node) evaluate(expression, root, XPathConstants.NODE);
     if (node == null) {
       return null;
     }
@@ -235,7 +244,7 @@ public class XPathParser {
   private Object evaluate(String expression, Object root, QName returnType) {
     try {
 		//最终合流到这儿，直接调用XPath.evaluate
-      return xpath.evaluate(expression, root, returnType);
+      return getXPath().evaluate(expression, root, returnType);
     } catch (Exception e) {
       throw new BuilderException("Error evaluating XPath.  Cause: " + e, e);
     }
@@ -288,9 +297,14 @@ public class XPathParser {
     this.validation = validation;
     this.entityResolver = entityResolver;
     this.variables = variables;
-	//共通构造函数，除了把参数都设置到实例变量里面去以外，还初始化了XPath
-    XPathFactory factory = XPathFactory.newInstance();
-    this.xpath = factory.newXPath();
+  }
+
+  //XPathFactory.newInstance()要查找实现类，很慢，而大部分表达式都不用XPath，所以用到时才创建
+  private XPath getXPath() {
+    if (xpath == null) {
+      xpath = XPathFactory.newInstance().newXPath();
+    }
+    return xpath;
   }
 
 }
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.plugin;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -22,6 +23,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -34,6 +37,12 @@ import org.apache.ibatis.reflection.ExceptionUtil;
  */
 public class Plugin implements InvocationHandler {
 
+  //每个SqlSession都要建好几次代理，签名Map和代理类只和拦截器的类、目标的类有关，所以都缓存起来
+  //拦截器类 -> 签名Map
+  private static final ConcurrentMap<Class<?>, Map<Class<?>, Set<Method>>> signatureMaps = new ConcurrentHashMap<Class<?>, Map<Class<?>, Set<Method>>>();
+  //(目标类, 拦截器类) -> 代理类
+  private static final ConcurrentMap<ProxyKey, ProxyType> proxyTypes = new ConcurrentHashMap<ProxyKey, ProxyType>();
+
   private Object target;
   private Interceptor interceptor;
   private Map<Class<?>, Set<Method>> signatureMap;
@@ -49,14 +58,15 @@ public class Plugin implements InvocationHandler {
     Map<Class<?>, Set<Method>> signatureMap = getSignatureMap(interceptor);
     //取得要改变行为的类(ParameterHandler|ResultSetHandler|StatementHandler|Executor)
     Class<?> type = target.getClass();
-    //取得接口
-    Class<?>[] interfaces = getAllInterfaces(type, signatureMap);
+    //取得代理类，没有要拦截的接口就不代理
+    ProxyType proxyType = getProxyType(type, interceptor.getClass(), signatureMap);
     //产生代理
-    if (interfaces.length > 0) {
-      return Proxy.newProxyInstance(
-          type.getClassLoader(),
-          interfaces,
-          new Plugin(target, interceptor, signatureMap));
+    if (proxyType.constructor != null) {
+      try {
+        return proxyType.constructor.newInstance(new Plugin(target, interceptor, signatureMap));
+      } catch (Exception e) {
+        throw new PluginException("Could not create a proxy for " + type + ". Cause: " + e, e);
+      }
     }
     return target;
   }
@@ -80,6 +90,15 @@ public class Plugin implements InvocationHandler {
 
   //取得签名Map
   private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
+    Map<Class<?>, Set<Method>> signatureMap = signatureMaps.get(interceptor.getClass());
+    if (signatureMap == null) {
+      signatureMap = buildSignatureMap(interceptor);
+      signatureMaps.put(interceptor.getClass(), signatureMap);
+    }
+    return signatureMap;
+  }
+
+  private static Map<Class<?>, Set<Method>> buildSignatureMap(Interceptor interceptor) {
     //取Intercepts注解，例子可参见ExamplePlugin.java
     Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
     // issue #251
@@ -107,6 +126,32 @@ public class Plugin implements InvocationHandler {
     return signatureMap;
   }
 
+  private static ProxyType getProxyType(Class<?> type, Class<?> interceptorType, Map<Class<?>, Set<Method>> signatureMap) {
+    ProxyKey key = new ProxyKey(type, interceptorType);
+    ProxyType proxyType = proxyTypes.get(key);
+    if (proxyType == null) {
+      //取得接口
+      Class<?>[] interfaces = getAllInterfaces(type, signatureMap);
+      Constructor<?> constructor = null;
+      if (interfaces.length > 0) {
+        try {
+          constructor = Proxy.getProxyClass(type.getClassLoader(), interfaces).getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+          throw new PluginException("Could not create a proxy for " + type + ". Cause: " + e, e);
+        }
+        try {
+          //接口不是public的时候代理类也不是public的
+          constructor.setAccessible(true);
+        } catch (SecurityException e) {
+          // Ignored. Proxies of public interfaces do not need it.
+        }
+      }
+      proxyType = new ProxyType(constructor);
+      proxyTypes.put(key, proxyType);
+    }
+    return proxyType;
+  }
+
   //取得接口
   private static Class<?>[] getAllInterfaces(Class<?> type, Map<Class<?>, Set<Method>> signatureMap) {
     Set<Class<?>> interfaces = new HashSet<Class<?>>();
@@ -124,4 +169,37 @@ public class Plugin implements InvocationHandler {
     return interfaces.toArray(new Class<?>[interfaces.size()]);
   }
 
+  private static class ProxyKey {
+    private final Class<?> type;
+    private final Class<?> interceptorType;
+
+    ProxyKey(Class<?> type, Class<?> interceptorType) {
+      this.type = type;
+      this.interceptorType = interceptorType;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + interceptorType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof ProxyKey)) {
+        return false;
+      }
+      ProxyKey other = (ProxyKey) object;
+      return type == other.type && interceptorType == other.interceptorType;
+    }
+  }
+
+  //constructor为null表示目标类没有需要拦截的接口
+  private static class ProxyType {
+    private final Constructor<?> constructor;
+
+    ProxyType(Constructor<?> constructor) {
+      this.constructor = constructor;
+    }
+  }
+
 }
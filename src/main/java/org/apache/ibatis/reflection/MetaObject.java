@@ -47,26 +47,20 @@ public class MetaObject {
     if (object instanceof ObjectWrapper) {
         //如果对象本身已经是ObjectWrapper型，则直接赋给objectWrapper
       this.objectWrapper = (ObjectWrapper) object;
-    }
-
-    if (objectWrapperFactory.hasWrapperFor(object)) {
+    } else if (objectWrapperFactory.hasWrapperFor(object)) {
         //如果有包装器,调用ObjectWrapperFactory.getWrapperFor
       this.objectWrapper = objectWrapperFactory.getWrapperFor(this, object);
-    }
-
-    if (object instanceof Map) {
+    } else if (object instanceof Map) {
         //如果是Map型，返回MapWrapper
       this.objectWrapper = new MapWrapper(this, (Map) object);
-    }
-
-    if (object instanceof Collection) {
+    } else if (object instanceof Collection) {
         //如果是Collection型，返回CollectionWrapper
       this.objectWrapper = new CollectionWrapper(this, (Collection) object);
+    } else {
+        //除此以外，返回BeanWrapper
+      this.objectWrapper = new BeanWrapper(this, object);
     }
 
-    //除此以外，返回BeanWrapper
-    this.objectWrapper = new BeanWrapper(this, object);
-
   }
 
   public static MetaObject forObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory) {
@@ -19,6 +19,7 @@ import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.reflection.javassist.JavassistAccessorGenerator;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
 import java.lang.reflect.*;
@@ -39,7 +40,16 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class Reflector {
 
+    /*
+     * System property that turns on the generated accessors when this class is loaded.
+     */
+    public static final String GENERATED_ACCESSORS_PROPERTY = "mybatis.useGeneratedAccessors";
+
     private static boolean classCacheEnabled = true;
+    //不为null时，用生成的字节码代替反射调用getter/setter
+    //Reflector是整个JVM共用的缓存，所以这是系统属性而不是Configuration的设置
+    private static JavassistAccessorGenerator accessorGenerator =
+        Boolean.getBoolean(GENERATED_ACCESSORS_PROPERTY) ? new JavassistAccessorGenerator() : null;
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
     //mark 这里用ConcurrentHashMap，多线程支持，作为一个缓存
@@ -77,6 +87,10 @@ public class Reflector {
         addSetMethods(clazz);
         //加入字段 到get set的方法集和 type集
         addFields(clazz);
+        //生成的访问器要随Reflector一起缓存才划算
+        if (accessorGenerator != null && classCacheEnabled) {
+            accessorGenerator.generate(clazz, getMethods, setMethods);
+        }
 
         //get方法的所有属性名数组
         readablePropertyNames = getMethods.keySet().toArray(new String[getMethods.keySet().size()]);
@@ -531,4 +545,22 @@ public class Reflector {
     public static boolean isClassCacheEnabled() {
         return classCacheEnabled;
     }
+
+    /*
+     * Getters and setters of the classes reflected from now on are called through generated accessors
+     * instead of Method.invoke. Requires Javassist. This applies to the whole JVM, as the Reflector cache
+     * does; the initial value comes from the mybatis.useGeneratedAccessors system property.
+     */
+    public static synchronized void setGeneratedAccessorsEnabled(boolean generatedAccessorsEnabled) {
+        if (generatedAccessorsEnabled == isGeneratedAccessorsEnabled()) {
+            return;
+        }
+        accessorGenerator = generatedAccessorsEnabled ? new JavassistAccessorGenerator() : null;
+        //已经缓存的Reflector是按原来的方式建的，清掉重建
+        REFLECTOR_MAP.clear();
+    }
+
+    public static boolean isGeneratedAccessorsEnabled() {
+        return accessorGenerator != null;
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Invokes a getter or setter through a generated {@link PropertyAccessor} instead of reflection.
+ */
+/**
+ * 通过生成的PropertyAccessor调用getter/setter
+ * 和MethodInvoker一样，方法本身抛的异常包装成InvocationTargetException
+ */
+public class AccessorInvoker implements Invoker {
+
+  private final PropertyAccessor accessor;
+  private final int index;
+  private final boolean setter;
+  private final Class<?> type;
+
+  public AccessorInvoker(PropertyAccessor accessor, int index, boolean setter, Class<?> type) {
+    this.accessor = accessor;
+    this.index = index;
+    this.setter = setter;
+    this.type = type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    try {
+      if (setter) {
+        accessor.set(target, index, args[0]);
+        return null;
+      }
+      return accessor.get(target, index);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
@@ -51,4 +51,8 @@ public class MethodInvoker implements Invoker {
   public Class<?> getType() {
     return type;
   }
+
+  public Method getMethod() {
+    return method;
+  }
 }
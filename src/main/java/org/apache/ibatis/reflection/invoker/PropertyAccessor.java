@@ -0,0 +1,34 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+/**
+ * Direct access to the public getters and setters of a class, implemented by generated code.
+ * Getters and setters are numbered separately, in the order they were passed to the generator.
+ */
+/**
+ * 属性访问器
+ * 由字节码生成，get/set里面就是一个switch，每个case直接调用对应的getter/setter，不走Method.invoke
+ */
+public interface PropertyAccessor {
+
+  //调用第index个getter
+  Object get(Object target, int index);
+
+  //调用第index个setter
+  void set(Object target, int index, Object value);
+
+}
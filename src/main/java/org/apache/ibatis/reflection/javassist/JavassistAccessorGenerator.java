@@ -0,0 +1,222 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.javassist;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.bytecode.ClassFile;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.invoker.AccessorInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PropertyAccessor;
+
+/**
+ * Generates a {@link PropertyAccessor} per class that calls the public getters and setters directly,
+ * and replaces the reflective invokers of a {@link org.apache.ibatis.reflection.Reflector} with it.
+ * Whatever cannot be generated (fields, non public methods, classes from other class loaders...)
+ * keeps using reflection.
+ */
+/**
+ * Javassist属性访问器生成器
+ * 为每个类生成一个PropertyAccessor，get/set里面用switch直接调用getter/setter，省掉Method.invoke的开销
+ * 只处理public类的public方法，字段、私有方法以及生成失败的类，都还是走反射
+ */
+public class JavassistAccessorGenerator {
+
+  private static final Log log = LogFactory.getLog(JavassistAccessorGenerator.class);
+  private static final AtomicInteger counter = new AtomicInteger();
+
+  public JavassistAccessorGenerator() {
+    try {
+      //先检查是否有javassist
+      Resources.classForName("javassist.ClassPool");
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot enable generated accessors because Javassist is not available. Add Javassist to your classpath.", e);
+    }
+  }
+
+  /*
+   * Replaces the MethodInvokers of the given maps with AccessorInvokers whenever possible.
+   */
+  public void generate(Class<?> type, Map<String, Invoker> getMethods, Map<String, Invoker> setMethods) {
+    List<String> getterNames = accessibleProperties(getMethods, false);
+    List<String> setterNames = accessibleProperties(setMethods, true);
+    if (getterNames.isEmpty() && setterNames.isEmpty()) {
+      return;
+    }
+    PropertyAccessor accessor = createAccessor(type, methods(getMethods, getterNames), methods(setMethods, setterNames));
+    if (accessor == null) {
+      return;
+    }
+    for (int i = 0; i < getterNames.size(); i++) {
+      String name = getterNames.get(i);
+      getMethods.put(name, new AccessorInvoker(accessor, i, false, getMethods.get(name).getType()));
+    }
+    for (int i = 0; i < setterNames.size(); i++) {
+      String name = setterNames.get(i);
+      setMethods.put(name, new AccessorInvoker(accessor, i, true, setMethods.get(name).getType()));
+    }
+  }
+
+  private List<String> accessibleProperties(Map<String, Invoker> invokers, boolean setter) {
+    List<String> names = new ArrayList<String>();
+    for (Map.Entry<String, Invoker> entry : invokers.entrySet()) {
+      if (entry.getValue() instanceof MethodInvoker) {
+        Method method = ((MethodInvoker) entry.getValue()).getMethod();
+        Class<?> valueType = setter ? method.getParameterTypes()[0] : method.getReturnType();
+        if (Modifier.isPublic(method.getModifiers()) && isPublic(method.getDeclaringClass())
+            && valueType != void.class && isPublic(valueType)) {
+          names.add(entry.getKey());
+        }
+      }
+    }
+    return names;
+  }
+
+  private List<Method> methods(Map<String, Invoker> invokers, List<String> names) {
+    List<Method> methods = new ArrayList<Method>();
+    for (String name : names) {
+      methods.add(((MethodInvoker) invokers.get(name)).getMethod());
+    }
+    return methods;
+  }
+
+  private PropertyAccessor createAccessor(Class<?> type, List<Method> getters, List<Method> setters) {
+    ClassLoader classLoader = type.getClassLoader();
+    if (classLoader == null) {
+      //JDK自己的类不值得生成
+      return null;
+    }
+    try {
+      //生成的类要定义在目标类的ClassLoader里，这个ClassLoader必须能看到同一个PropertyAccessor
+      if (classLoader.loadClass(PropertyAccessor.class.getName()) != PropertyAccessor.class) {
+        return null;
+      }
+      ClassPool pool = new ClassPool(true);
+      pool.appendClassPath(new LoaderClassPath(classLoader));
+      pool.appendClassPath(new ClassClassPath(PropertyAccessor.class));
+      CtClass ctClass = pool.makeClass(JavassistAccessorGenerator.class.getPackage().getName()
+          + ".Accessor$$" + type.getSimpleName() + "$$" + counter.incrementAndGet());
+      //用Java 5的class文件格式，不需要生成StackMapTable
+      ctClass.getClassFile().setMajorVersion(ClassFile.JAVA_5);
+      ctClass.addInterface(pool.get(PropertyAccessor.class.getName()));
+      ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+      ctClass.addMethod(CtNewMethod.make(getterSource(getters), ctClass));
+      ctClass.addMethod(CtNewMethod.make(setterSource(setters), ctClass));
+      Class<?> accessorClass = ctClass.toClass(classLoader, type.getProtectionDomain());
+      ctClass.detach();
+      return (PropertyAccessor) accessorClass.newInstance();
+    } catch (Throwable t) {
+      if (log.isDebugEnabled()) {
+        log.debug("Could not generate a property accessor for " + type + ", falling back to reflection. Cause: " + t);
+      }
+      return null;
+    }
+  }
+
+  private String getterSource(List<Method> getters) {
+    StringBuilder source = new StringBuilder("public Object get(Object target, int index) {");
+    if (!getters.isEmpty()) {
+      source.append(" switch ($2) {");
+      for (int i = 0; i < getters.size(); i++) {
+        Method getter = getters.get(i);
+        String call = "((" + sourceName(getter.getDeclaringClass()) + ") $1)." + getter.getName() + "()";
+        source.append(" case ").append(i).append(": return ").append(box(getter.getReturnType(), call)).append(";");
+      }
+      source.append(" }");
+    }
+    source.append(" throw new IllegalArgumentException(\"No getter with index \" + $2); }");
+    return source.toString();
+  }
+
+  private String setterSource(List<Method> setters) {
+    StringBuilder source = new StringBuilder("public void set(Object target, int index, Object value) {");
+    if (!setters.isEmpty()) {
+      source.append(" switch ($2) {");
+      for (int i = 0; i < setters.size(); i++) {
+        Method setter = setters.get(i);
+        source.append(" case ").append(i).append(": ((").append(sourceName(setter.getDeclaringClass())).append(") $1).")
+            .append(setter.getName()).append("(").append(unbox(setter.getParameterTypes()[0], "$3")).append("); return;");
+      }
+      source.append(" }");
+    }
+    source.append(" throw new IllegalArgumentException(\"No setter with index \" + $2); }");
+    return source.toString();
+  }
+
+  private static String box(Class<?> type, String expression) {
+    if (!type.isPrimitive()) {
+      return expression;
+    }
+    return wrapperName(type) + ".valueOf(" + expression + ")";
+  }
+
+  private static String unbox(Class<?> type, String expression) {
+    if (!type.isPrimitive()) {
+      return "(" + sourceName(type) + ") " + expression;
+    }
+    return "((" + wrapperName(type) + ") " + expression + ")." + type.getName() + "Value()";
+  }
+
+  private static String wrapperName(Class<?> primitive) {
+    if (primitive == int.class) {
+      return "java.lang.Integer";
+    } else if (primitive == char.class) {
+      return "java.lang.Character";
+    }
+    String name = primitive.getName();
+    return "java.lang." + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static String sourceName(Class<?> type) {
+    if (type.isArray()) {
+      return sourceName(type.getComponentType()) + "[]";
+    }
+    return type.getName();
+  }
+
+  private static boolean isPublic(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    //内部类还要看外面的类
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -18,6 +18,7 @@ package org.apache.ibatis.scripting.defaults;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -29,7 +30,6 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Clinton Begin
@@ -41,8 +41,6 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public class DefaultParameterHandler implements ParameterHandler {
 
-  private final TypeHandlerRegistry typeHandlerRegistry;
-
   private final MappedStatement mappedStatement;
   private final Object parameterObject;
   private BoundSql boundSql;
@@ -51,7 +49,6 @@ public class DefaultParameterHandler implements ParameterHandler {
   public DefaultParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
     this.mappedStatement = mappedStatement;
     this.configuration = mappedStatement.getConfiguration();
-    this.typeHandlerRegistry = mappedStatement.getConfiguration().getTypeHandlerRegistry();
     this.parameterObject = parameterObject;
     this.boundSql = boundSql;
   }
@@ -67,6 +64,11 @@ public class DefaultParameterHandler implements ParameterHandler {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings != null) {
+      //每个参数怎么取值事先算好(见ParameterBindingPlan)，这里只剩按下标取值+调TypeHandler
+      ParameterBindingPlan plan = configuration.getParameterBindingPlanCache().get(configuration, mappedStatement, parameterMappings,
+          parameterObject == null ? null : parameterObject.getClass());
+      boolean hasAdditionalParameters = boundSql.hasAdditionalParameters();
+      MetaObject metaObject = null;
       //循环设参数
       for (int i = 0; i < parameterMappings.size(); i++) {
         ParameterMapping parameterMapping = parameterMappings.get(i);
@@ -74,19 +76,31 @@ public class DefaultParameterHandler implements ParameterHandler {
           //如果不是OUT，才设进去
           Object value;
           String propertyName = parameterMapping.getProperty();
-          if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
+          if (hasAdditionalParameters && boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
             //若有额外的参数, 设为额外的参数
             value = boundSql.getAdditionalParameter(propertyName);
           } else if (parameterObject == null) {
             //若参数为null，直接设null
             value = null;
-          } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-            //若参数有相应的TypeHandler，直接设object
-            value = parameterObject;
           } else {
-            //除此以外，MetaObject.getValue反射取得值设进去
-            MetaObject metaObject = configuration.newMetaObject(parameterObject);
-            value = metaObject.getValue(propertyName);
+            switch (plan.getKind(i)) {
+              case ParameterBindingPlan.SELF:
+                //若参数有相应的TypeHandler，直接设object
+                value = parameterObject;
+                break;
+              case ParameterBindingPlan.GETTER:
+                value = plan.getBeanProperty(i, parameterObject);
+                break;
+              case ParameterBindingPlan.MAP_GET:
+                value = ((Map<?, ?>) parameterObject).get(propertyName);
+                break;
+              default:
+                //除此以外，MetaObject.getValue反射取得值设进去
+                if (metaObject == null) {
+                  metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(propertyName);
+            }
           }
           TypeHandler typeHandler = parameterMapping.getTypeHandler();
           JdbcType jdbcType = parameterMapping.getJdbcType();
@@ -0,0 +1,138 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The resolved way of reading every parameter of a statement from a parameter object of a given class:
+ * the parameter object itself when it has a TypeHandler, a getter for simple bean properties, Map.get for
+ * simple map keys, and a MetaObject for anything else (nested properties, custom ObjectWrappers...).
+ * Instances are immutable.
+ */
+/**
+ * 参数绑定计划
+ * 同一个语句、同一种参数类型，每个参数怎么取值(直接用参数对象、调getter、Map.get、还是走MetaObject)每次都一样
+ * 所以算一次存起来，以后设参数时只需要 按下标取值+调TypeHandler
+ */
+final class ParameterBindingPlan {
+
+  //参数对象本身有TypeHandler，直接用参数对象
+  static final int SELF = 0;
+  //调getter
+  static final int GETTER = 1;
+  //Map.get
+  static final int MAP_GET = 2;
+  //其余的(a.b、a[0]、自定义的ObjectWrapper、没有getter等)走原来的MetaObject
+  static final int META_OBJECT = 3;
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final List<ParameterMapping> parameterMappings;
+  private final int[] kinds;
+  private final Invoker[] getters;
+
+  private ParameterBindingPlan(List<ParameterMapping> parameterMappings, int[] kinds, Invoker[] getters) {
+    this.parameterMappings = parameterMappings;
+    this.kinds = kinds;
+    this.getters = getters;
+  }
+
+  static ParameterBindingPlan create(Configuration configuration, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    final int size = parameterMappings.size();
+    final int[] kinds = new int[size];
+    final Invoker[] getters = new Invoker[size];
+    final boolean self = parameterType != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    //和MetaObject选ObjectWrapper的顺序一致
+    final boolean planned = parameterType != null
+        && configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class
+        && !ObjectWrapper.class.isAssignableFrom(parameterType)
+        && !Collection.class.isAssignableFrom(parameterType);
+    final boolean map = parameterType != null && Map.class.isAssignableFrom(parameterType);
+    final Reflector reflector = planned && !map && !self ? Reflector.forClass(parameterType) : null;
+    for (int i = 0; i < size; i++) {
+      final ParameterMapping parameterMapping = parameterMappings.get(i);
+      final String property = parameterMapping.getProperty();
+      final boolean simple = property.indexOf('.') < 0 && property.indexOf('[') < 0;
+      if (self) {
+        kinds[i] = SELF;
+      } else if (planned && simple && map) {
+        kinds[i] = MAP_GET;
+      } else if (reflector != null && simple && reflector.hasGetter(property)) {
+        kinds[i] = GETTER;
+        getters[i] = reflector.getGetInvoker(property);
+      } else {
+        kinds[i] = META_OBJECT;
+      }
+    }
+    return new ParameterBindingPlan(parameterMappings, kinds, getters);
+  }
+
+  /*
+   * Dynamic SQL builds new ParameterMappings on every execution, a plan still applies if they are the same.
+   */
+  boolean matches(List<ParameterMapping> mappings) {
+    if (mappings == parameterMappings) {
+      return true;
+    }
+    if (mappings.size() != parameterMappings.size()) {
+      return false;
+    }
+    for (int i = 0; i < mappings.size(); i++) {
+      ParameterMapping mapping = mappings.get(i);
+      ParameterMapping planned = parameterMappings.get(i);
+      if (mapping != planned
+          && (!mapping.getProperty().equals(planned.getProperty())
+              || mapping.getTypeHandler() != planned.getTypeHandler()
+              || mapping.getJdbcType() != planned.getJdbcType()
+              || mapping.getMode() != planned.getMode())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int getKind(int i) {
+    return kinds[i];
+  }
+
+  //异常信息和BeanWrapper.getBeanProperty保持一致
+  Object getBeanProperty(int i, Object parameterObject) {
+    try {
+      try {
+        return getters[i].invoke(parameterObject, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not get property '" + parameterMappings.get(i).getProperty() + "' from " + parameterObject.getClass() + ".  Cause: " + t.toString(), t);
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Parameter binding plans shared by all the executions of a {@link org.apache.ibatis.session.Configuration}.
+ */
+/**
+ * 参数绑定计划的缓存，每个Configuration一个
+ * key是 MappedStatement+参数类型，值对应第一次见到的那组ParameterMapping
+ * 动态SQL每次生成的ParameterMapping如果和缓存的计划对不上(比如foreach的个数不同)，就临时算一个不放进来
+ */
+public class ParameterBindingPlanCache {
+
+  private final int maxSize;
+  private final ConcurrentMap<Key, ParameterBindingPlan> plans = new ConcurrentHashMap<Key, ParameterBindingPlan>();
+
+  public ParameterBindingPlanCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  ParameterBindingPlan get(Configuration configuration, MappedStatement mappedStatement, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    Key key = new Key(mappedStatement, parameterType);
+    ParameterBindingPlan plan = plans.get(key);
+    if (plan != null && plan.matches(parameterMappings)) {
+      return plan;
+    }
+    ParameterBindingPlan newPlan = ParameterBindingPlan.create(configuration, parameterMappings, parameterType);
+    if (plan == null && plans.size() < maxSize) {
+      plans.putIfAbsent(key, newPlan);
+    }
+    return newPlan;
+  }
+
+  public int getSize() {
+    return plans.size();
+  }
+
+  /*
+   * Plans hold resolved getters, call this after registering TypeHandlers once statements have been run.
+   */
+  public void clear() {
+    plans.clear();
+  }
+
+  private static class Key {
+
+    private final MappedStatement mappedStatement;
+    private final Class<?> parameterType;
+    private final int hashCode;
+
+    Key(MappedStatement mappedStatement, Class<?> parameterType) {
+      this.mappedStatement = mappedStatement;
+      this.parameterType = parameterType;
+      this.hashCode = 31 * System.identityHashCode(mappedStatement) + (parameterType == null ? 0 : parameterType.hashCode());
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) object;
+      return mappedStatement == other.mappedStatement && parameterType == other.parameterType;
+    }
+  }
+
+}
@@ -0,0 +1,414 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An expression compiled by {@link ExpressionCompiler} into a tree of evaluators.
+ * <p>
+ * Evaluation returns {@link #UNSUPPORTED} whenever the runtime values fall outside of what the compiled
+ * form handles with exactly the same semantics as OGNL. The caller must then evaluate the expression with OGNL.
+ * A getter that throws is reported with a {@link GetterException} instead, so that it is not called again.
+ */
+/**
+ * 编译好的表达式
+ * 编译期只能确定表达式的结构，值的类型要到运行期才知道，所以碰到没把握和OGNL结果一致的情况(比如Character和String比较)，
+ * 就返回UNSUPPORTED，交给OGNL重新算一遍
+ * getter抛异常时不能这样做，否则getter会被调用两次，所以抛GetterException
+ */
+abstract class CompiledExpression {
+
+  static final Object UNSUPPORTED = new Object();
+
+  abstract Object evaluate(Object root);
+
+  //OGNL的MapPropertyAccessor对这几个名字做了特殊处理
+  private static final String[] SPECIAL_MAP_PROPERTIES = { "size", "keys", "keySet", "values", "isEmpty" };
+
+  //getter缓存，没有public getter的记成NO_GETTER
+  private static final Map<Class<?>, Map<String, Object>> getterCache = new ConcurrentHashMap<Class<?>, Map<String, Object>>();
+  private static final Object NO_GETTER = new Object();
+
+  /*
+   * A getter called while evaluating failed. Carries the exception thrown by the getter.
+   */
+  static class GetterException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String property;
+
+    GetterException(String property, Throwable cause) {
+      super(cause);
+      this.property = property;
+    }
+
+    String getProperty() {
+      return property;
+    }
+  }
+
+  static class Literal extends CompiledExpression {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      return value;
+    }
+  }
+
+  /*
+   * A property of the root object. A ContextMap root is resolved like DynamicContext.ContextAccessor does.
+   */
+  static class RootProperty extends CompiledExpression {
+    private final String name;
+
+    RootProperty(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      if (root instanceof DynamicContext.ContextMap) {
+        Map<?, ?> map = (Map<?, ?>) root;
+        Object result = map.get(name);
+        if (result != null) {
+          return result;
+        }
+        Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        if (parameterObject instanceof Map) {
+          return ((Map<?, ?>) parameterObject).get(name);
+        }
+        return null;
+      }
+      return getProperty(root, name);
+    }
+  }
+
+  static class Property extends CompiledExpression {
+    private final CompiledExpression target;
+    private final String name;
+
+    Property(CompiledExpression target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = target.evaluate(root);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      return getProperty(value, name);
+    }
+  }
+
+  /*
+   * size(), isEmpty() and length() on collections, maps and strings.
+   */
+  static class MethodCall extends CompiledExpression {
+    private final CompiledExpression target;
+    private final String name;
+
+    MethodCall(CompiledExpression target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = target.evaluate(root);
+      if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        if ("size".equals(name)) {
+          return collection.size();
+        } else if ("isEmpty".equals(name)) {
+          return collection.isEmpty();
+        }
+      } else if (value instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        if ("size".equals(name)) {
+          return map.size();
+        } else if ("isEmpty".equals(name)) {
+          return map.isEmpty();
+        }
+      } else if (value instanceof String) {
+        String string = (String) value;
+        if ("length".equals(name)) {
+          return string.length();
+        } else if ("isEmpty".equals(name)) {
+          return string.length() == 0;
+        }
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  static class Not extends CompiledExpression {
+    private final CompiledExpression operand;
+
+    Not(CompiledExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = operand.evaluate(root);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      return booleanValue(value) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  /*
+   * OGNL's and/or return the deciding operand rather than a Boolean.
+   */
+  static class Logical extends CompiledExpression {
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+    private final boolean and;
+
+    Logical(CompiledExpression left, CompiledExpression right, boolean and) {
+      this.left = left;
+      this.right = right;
+      this.and = and;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object value = left.evaluate(root);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      //and遇到false、or遇到true就短路
+      if (booleanValue(value) != and) {
+        return value;
+      }
+      return right.evaluate(root);
+    }
+  }
+
+  static class Comparison extends CompiledExpression {
+    static final int EQ = 0;
+    static final int NEQ = 1;
+    static final int LT = 2;
+    static final int GT = 3;
+    static final int LTE = 4;
+    static final int GTE = 5;
+
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+    private final int operator;
+
+    Comparison(CompiledExpression left, CompiledExpression right, int operator) {
+      this.left = left;
+      this.right = right;
+      this.operator = operator;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object l = left.evaluate(root);
+      if (l == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      Object r = right.evaluate(root);
+      if (r == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      if (operator == EQ || operator == NEQ) {
+        int equal = equal(l, r);
+        if (equal < 0) {
+          return UNSUPPORTED;
+        }
+        return (equal == 1) == (operator == EQ) ? Boolean.TRUE : Boolean.FALSE;
+      }
+      if (l == null || r == null) {
+        return UNSUPPORTED;
+      }
+      int result;
+      if (l instanceof String && r instanceof String) {
+        result = ((String) l).compareTo((String) r);
+      } else if (isSimpleNumber(l) && isSimpleNumber(r)) {
+        result = compareNumbers((Number) l, (Number) r);
+      } else {
+        return UNSUPPORTED;
+      }
+      switch (operator) {
+        case LT:
+          return result < 0 ? Boolean.TRUE : Boolean.FALSE;
+        case GT:
+          return result > 0 ? Boolean.TRUE : Boolean.FALSE;
+        case LTE:
+          return result <= 0 ? Boolean.TRUE : Boolean.FALSE;
+        default:
+          return result >= 0 ? Boolean.TRUE : Boolean.FALSE;
+      }
+    }
+
+    /*
+     * @return 1 if equal, 0 if not, -1 if the types are not handled here
+     */
+    private static int equal(Object l, Object r) {
+      if (l == null || r == null) {
+        return l == r ? 1 : 0;
+      }
+      if ((l instanceof String && r instanceof String) || (l instanceof Boolean && r instanceof Boolean)) {
+        return l.equals(r) ? 1 : 0;
+      }
+      if (isSimpleNumber(l) && isSimpleNumber(r)) {
+        return compareNumbers((Number) l, (Number) r) == 0 ? 1 : 0;
+      }
+      return -1;
+    }
+  }
+
+  //和OgnlOps.booleanValue一样：null为false，数字非0、字符非\0为true，其他对象都为true
+  private static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    Class<?> type = value.getClass();
+    if (type == Boolean.class) {
+      return ((Boolean) value).booleanValue();
+    }
+    if (type == Character.class) {
+      return ((Character) value).charValue() != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  //BigDecimal、BigInteger、AtomicLong这些交给OGNL
+  private static boolean isSimpleNumber(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Double
+        || value instanceof Short || value instanceof Byte || value instanceof Float;
+  }
+
+  private static boolean isIntegral(Number value) {
+    return !(value instanceof Double || value instanceof Float);
+  }
+
+  //和OGNL一样，整数按long比，有浮点数就按double比
+  private static int compareNumbers(Number l, Number r) {
+    if (isIntegral(l) && isIntegral(r)) {
+      long a = l.longValue();
+      long b = r.longValue();
+      return a < b ? -1 : (a == b ? 0 : 1);
+    }
+    double a = l.doubleValue();
+    double b = r.doubleValue();
+    return a < b ? -1 : (a == b ? 0 : 1);
+  }
+
+  static Object getProperty(Object target, String name) {
+    if (target == null) {
+      //OGNL会报错，让OGNL去报
+      return UNSUPPORTED;
+    }
+    if (target instanceof Map) {
+      for (String special : SPECIAL_MAP_PROPERTIES) {
+        if (special.equals(name)) {
+          return UNSUPPORTED;
+        }
+      }
+      return ((Map<?, ?>) target).get(name);
+    }
+    if (target instanceof Collection || target instanceof Iterator || target instanceof Enumeration
+        || target.getClass().isArray()) {
+      return UNSUPPORTED;
+    }
+    Object getter = findGetter(target.getClass(), name);
+    if (getter == NO_GETTER) {
+      return UNSUPPORTED;
+    }
+    try {
+      return ((Method) getter).invoke(target);
+    } catch (InvocationTargetException e) {
+      //getter已经执行过了，不能再交给OGNL执行一遍
+      throw new GetterException(name, e.getTargetException());
+    } catch (Exception e) {
+      return UNSUPPORTED;
+    }
+  }
+
+  private static Object findGetter(Class<?> type, String name) {
+    Map<String, Object> getters = getterCache.get(type);
+    if (getters == null) {
+      getters = new ConcurrentHashMap<String, Object>();
+      getterCache.put(type, getters);
+    }
+    Object getter = getters.get(name);
+    if (getter == null) {
+      getter = resolveGetter(type, name);
+      getters.put(name, getter);
+    }
+    return getter;
+  }
+
+  //和OGNL一样只找public的getXxx()/isXxx()，public字段之类的交给OGNL
+  private static Object resolveGetter(Class<?> type, String name) {
+    String capitalized = capitalize(name);
+    Method method = null;
+    try {
+      method = type.getMethod("get" + capitalized);
+    } catch (NoSuchMethodException e) {
+      try {
+        method = type.getMethod("is" + capitalized);
+      } catch (NoSuchMethodException e2) {
+        return NO_GETTER;
+      }
+    }
+    if (method.getReturnType() == void.class) {
+      return NO_GETTER;
+    }
+    if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+      try {
+        method.setAccessible(true);
+      } catch (SecurityException e) {
+        return NO_GETTER;
+      }
+    }
+    return method;
+  }
+
+  //OGNL的规则：xValue这种第二个字母大写的不变
+  private static String capitalize(String name) {
+    if (name.length() == 1) {
+      return name.toUpperCase();
+    }
+    if (Character.isLowerCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))) {
+      return name;
+    }
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+}
@@ -33,10 +33,14 @@ public class DynamicSqlSource implements SqlSource {
 
   private Configuration configuration;
   private SqlNode rootSqlNode;
+  //解析结果的缓存，dynamicSqlCacheSize为0时不启用
+  private final SqlShapeCache shapeCache;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    int cacheSize = configuration.getDynamicSqlCacheSize();
+    this.shapeCache = cacheSize > 0 ? new SqlShapeCache(configuration, cacheSize) : null;
   }
 
   //得到绑定的SQL
@@ -46,17 +50,50 @@ public class DynamicSqlSource implements SqlSource {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
 	//这里SqlNode.apply只是将${}这种参数替换掉，并没有替换#{}这种参数
     rootSqlNode.apply(context);
-	//调用SqlSourceBuilder
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-	//SqlSourceBuilder.parse,注意这里返回的是StaticSqlSource,解析完了就把那些参数都替换成?了，也就是最基本的JDBC的SQL写法
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
-	//看似是又去递归调用SqlSource.getBoundSql，其实因为是StaticSqlSource，所以没问题，不是递归调用
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    SqlSource sqlSource;
+    BoundSql boundSql;
+    if (shapeCache == null) {
+      sqlSource = parse(context, parameterType);
+      //看似是又去递归调用SqlSource.getBoundSql，其实因为是StaticSqlSource，所以没问题，不是递归调用
+      boundSql = sqlSource.getBoundSql(parameterObject);
+    } else {
+      //走的分支一样、#{}的类型也一样的话，不用再解析一遍#{}
+      SqlShapeCache.Shape shape = new SqlShapeCache.Shape(context.getSql(), parameterType, context.getBindings());
+      sqlSource = shapeCache.get(shape, context.getBindings());
+      if (sqlSource == null) {
+        sqlSource = parse(context, parameterType);
+        boundSql = sqlSource.getBoundSql(parameterObject);
+        shapeCache.put(shape, sqlSource, boundSql.getParameterMappings(), context.getBindings());
+      } else {
+        boundSql = sqlSource.getBoundSql(parameterObject);
+      }
+    }
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
     }
     return boundSql;
   }
 
+  private SqlSource parse(DynamicContext context, Class<?> parameterType) {
+	//调用SqlSourceBuilder
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+	//SqlSourceBuilder.parse,注意这里返回的是StaticSqlSource,解析完了就把那些参数都替换成?了，也就是最基本的JDBC的SQL写法
+    return sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+  }
+
+  /*
+   * Number of executions that reused a previously parsed SQL. Zero when the cache is disabled.
+   */
+  public long getCacheHitCount() {
+    return shapeCache == null ? 0 : shapeCache.getHits();
+  }
+
+  /*
+   * Number of executions that had to parse the generated SQL. Zero when the cache is disabled.
+   */
+  public long getCacheMissCount() {
+    return shapeCache == null ? 0 : shapeCache.getMisses();
+  }
+
 }
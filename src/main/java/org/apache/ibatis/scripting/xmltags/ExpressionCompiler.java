@@ -0,0 +1,260 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles the common subset of OGNL used in dynamic SQL (property paths, literals, comparisons,
+ * and/or/not and size()/isEmpty()) into a {@link CompiledExpression}.
+ */
+/**
+ * 表达式编译器
+ * 动态SQL里绝大多数表达式都是 name != null and list.size() > 0 这种，不需要OGNL的全部功能
+ * 只支持下面的语法，其他的(#变量、@静态方法、索引、算术运算等等)一律返回null，由OGNL处理
+ * or     := and (('or' | '||') and)*
+ * and    := cmp (('and' | '&&') cmp)*
+ * cmp    := unary (op unary)?         op: == != < > <= >= eq neq lt gt lte gte
+ * unary  := ('!' | 'not') unary | primary
+ * primary:= literal | path | '(' or ')'
+ * path   := ident ('.' ident ('(' ')')?)*
+ */
+class ExpressionCompiler {
+
+  //OGNL的关键字，碰到了说明是我们不支持的语法
+  private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+      "in", "instanceof", "new", "shl", "shr", "ushr", "band", "bor", "xor"));
+
+  private final List<String> tokens;
+  private int position;
+
+  private ExpressionCompiler(List<String> tokens) {
+    this.tokens = tokens;
+  }
+
+  /*
+   * @return the compiled expression or null if it uses anything outside of the supported subset
+   */
+  public static CompiledExpression compile(String expression) {
+    List<String> tokens = tokenize(expression);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    ExpressionCompiler compiler = new ExpressionCompiler(tokens);
+    CompiledExpression compiled = compiler.parseOr();
+    if (compiled == null || compiler.position != tokens.size()) {
+      return null;
+    }
+    return compiled;
+  }
+
+  private CompiledExpression parseOr() {
+    CompiledExpression left = parseAnd();
+    while (left != null && (accept("or") || accept("||"))) {
+      CompiledExpression right = parseAnd();
+      left = right == null ? null : new CompiledExpression.Logical(left, right, false);
+    }
+    return left;
+  }
+
+  private CompiledExpression parseAnd() {
+    CompiledExpression left = parseComparison();
+    while (left != null && (accept("and") || accept("&&"))) {
+      CompiledExpression right = parseComparison();
+      left = right == null ? null : new CompiledExpression.Logical(left, right, true);
+    }
+    return left;
+  }
+
+  private CompiledExpression parseComparison() {
+    CompiledExpression left = parseUnary();
+    if (left == null) {
+      return null;
+    }
+    int operator = comparisonOperator(peek());
+    if (operator < 0) {
+      return left;
+    }
+    position++;
+    CompiledExpression right = parseUnary();
+    if (right == null || comparisonOperator(peek()) >= 0) {
+      //a == b == c这种链式比较交给OGNL
+      return null;
+    }
+    return new CompiledExpression.Comparison(left, right, operator);
+  }
+
+  private CompiledExpression parseUnary() {
+    if (accept("!") || accept("not")) {
+      CompiledExpression operand = parseUnary();
+      return operand == null ? null : new CompiledExpression.Not(operand);
+    }
+    return parsePrimary();
+  }
+
+  private CompiledExpression parsePrimary() {
+    String token = next();
+    if (token == null) {
+      return null;
+    }
+    if ("(".equals(token)) {
+      CompiledExpression inner = parseOr();
+      return inner != null && accept(")") ? inner : null;
+    }
+    char first = token.charAt(0);
+    if (first == '\'' || first == '"') {
+      String value = token.substring(1, token.length() - 1);
+      //OGNL里单引号的单个字符是Character，不是String
+      if (first == '\'' && value.length() == 1) {
+        return null;
+      }
+      return new CompiledExpression.Literal(value);
+    }
+    if (Character.isDigit(first)) {
+      return parseNumber(token);
+    }
+    if (!Character.isJavaIdentifierStart(first) || isReserved(token)) {
+      return null;
+    }
+    if ("null".equals(token)) {
+      return new CompiledExpression.Literal(null);
+    } else if ("true".equals(token)) {
+      return new CompiledExpression.Literal(Boolean.TRUE);
+    } else if ("false".equals(token)) {
+      return new CompiledExpression.Literal(Boolean.FALSE);
+    }
+    CompiledExpression path = new CompiledExpression.RootProperty(token);
+    while (accept(".")) {
+      String name = next();
+      if (name == null || !Character.isJavaIdentifierStart(name.charAt(0)) || isReserved(name)) {
+        return null;
+      }
+      if (accept("(")) {
+        if (!accept(")") || !("size".equals(name) || "isEmpty".equals(name) || "length".equals(name))) {
+          return null;
+        }
+        path = new CompiledExpression.MethodCall(path, name);
+      } else {
+        path = new CompiledExpression.Property(path, name);
+      }
+    }
+    return path;
+  }
+
+  private static CompiledExpression parseNumber(String token) {
+    try {
+      if (token.indexOf('.') >= 0) {
+        return new CompiledExpression.Literal(Double.valueOf(token));
+      }
+      return new CompiledExpression.Literal(Integer.valueOf(token));
+    } catch (NumberFormatException e) {
+      //1L、0x10、1e3之类的交给OGNL
+      return null;
+    }
+  }
+
+  private static boolean isReserved(String token) {
+    return KEYWORDS.contains(token) || comparisonOperator(token) >= 0
+        || "and".equals(token) || "or".equals(token) || "not".equals(token);
+  }
+
+  private static int comparisonOperator(String token) {
+    if ("==".equals(token) || "eq".equals(token)) {
+      return CompiledExpression.Comparison.EQ;
+    } else if ("!=".equals(token) || "neq".equals(token)) {
+      return CompiledExpression.Comparison.NEQ;
+    } else if ("<".equals(token) || "lt".equals(token)) {
+      return CompiledExpression.Comparison.LT;
+    } else if (">".equals(token) || "gt".equals(token)) {
+      return CompiledExpression.Comparison.GT;
+    } else if ("<=".equals(token) || "lte".equals(token)) {
+      return CompiledExpression.Comparison.LTE;
+    } else if (">=".equals(token) || "gte".equals(token)) {
+      return CompiledExpression.Comparison.GTE;
+    }
+    return -1;
+  }
+
+  private String peek() {
+    return position < tokens.size() ? tokens.get(position) : null;
+  }
+
+  private String next() {
+    return position < tokens.size() ? tokens.get(position++) : null;
+  }
+
+  private boolean accept(String token) {
+    if (token.equals(peek())) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  /*
+   * @return the tokens or null if the expression contains anything the compiler does not understand
+   */
+  private static List<String> tokenize(String expression) {
+    List<String> tokens = new ArrayList<String>();
+    int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'' || c == '"') {
+        int end = expression.indexOf(c, i + 1);
+        //带转义的字符串交给OGNL
+        if (end < 0 || expression.substring(i + 1, end).indexOf('\\') >= 0) {
+          return null;
+        }
+        tokens.add(expression.substring(i, end + 1));
+        i = end + 1;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+        tokens.add(expression.substring(start, i));
+      } else if (Character.isDigit(c)) {
+        int start = i;
+        //把1L、1.5f这种后缀也收进来，parseNumber会拒绝
+        while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(expression.substring(start, i));
+      } else {
+        String two = i + 1 < length ? expression.substring(i, i + 2) : null;
+        if ("==".equals(two) || "!=".equals(two) || "<=".equals(two) || ">=".equals(two)
+            || "&&".equals(two) || "||".equals(two)) {
+          tokens.add(two);
+          i += 2;
+        } else if (c == '<' || c == '>' || c == '!' || c == '(' || c == ')' || c == '.') {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          return null;
+        }
+      }
+    }
+    return tokens;
+  }
+
+}
@@ -40,6 +40,10 @@ public class ExpressionEvaluator {
       //如果是Boolean
       return (Boolean) value;
     }
+    if (value instanceof Integer || value instanceof Long) {
+      //常见的整数直接比较，不用转成BigDecimal
+      return ((Number) value).longValue() != 0;
+    }
     if (value instanceof Number) {
         //如果是Number，判断不为0
         return !new BigDecimal(String.valueOf(value)).equals(BigDecimal.ZERO);
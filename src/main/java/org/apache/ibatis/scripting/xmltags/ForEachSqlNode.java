@@ -44,6 +44,7 @@ public class ForEachSqlNode implements SqlNode {
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
+    OgnlCache.prepare(collectionExpression);
     this.contents = contents;
     this.open = open;
     this.close = close;
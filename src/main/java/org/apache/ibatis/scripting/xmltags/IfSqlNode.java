@@ -29,6 +29,7 @@ public class IfSqlNode implements SqlNode {
 
   public IfSqlNode(SqlNode contents, String test) {
     this.test = test;
+    OgnlCache.prepare(test);
     this.contents = contents;
     this.evaluator = new ExpressionEvaluator();
   }
@@ -35,12 +35,30 @@ import org.apache.ibatis.builder.BuilderException;
 public final class OgnlCache {
 
   private static final Map<String, Object> expressionCache = new ConcurrentHashMap<String, Object>();
+  //编译好的表达式，编译不了的记成NOT_COMPILABLE，以后直接走OGNL
+  private static final Map<String, Object> compiledCache = new ConcurrentHashMap<String, Object>();
+  private static final Object NOT_COMPILABLE = new Object();
 
   private OgnlCache() {
     // Prevent Instantiation of Static Class
   }
 
   public static Object getValue(String expression, Object root) {
+    Object compiled = compile(expression);
+    if (compiled != NOT_COMPILABLE) {
+      try {
+        Object value = ((CompiledExpression) compiled).evaluate(root);
+        if (value != CompiledExpression.UNSUPPORTED) {
+          return value;
+        }
+      } catch (CompiledExpression.GetterException e) {
+        //和OGNL报一样的错，getter不再调用第二次
+        OgnlException cause = new OgnlException(e.getProperty(), e.getCause());
+        throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + cause, cause);
+      } catch (RuntimeException e) {
+        //出错了就让OGNL再算一遍，异常和以前保持一致
+      }
+    }
     try {
       Map<Object, OgnlClassResolver> context = Ognl.createDefaultContext(root, new OgnlClassResolver());
       return Ognl.getValue(parseExpression(expression), context, root);
@@ -49,6 +67,28 @@ public final class OgnlCache {
     }
   }
 
+  /*
+   * Compiles the expression up front so the first evaluation does not pay for it.
+   * Called by the SqlNodes when the mapper is loaded.
+   */
+  public static void prepare(String expression) {
+    if (expression != null) {
+      compile(expression);
+    }
+  }
+
+  private static Object compile(String expression) {
+    Object compiled = compiledCache.get(expression);
+    if (compiled == null) {
+      compiled = ExpressionCompiler.compile(expression);
+      if (compiled == null) {
+        compiled = NOT_COMPILABLE;
+      }
+      compiledCache.put(expression, compiled);
+    }
+    return compiled;
+  }
+
   private static Object parseExpression(String expression) throws OgnlException {
     Object node = expressionCache.get(expression);
     if (node == null) {
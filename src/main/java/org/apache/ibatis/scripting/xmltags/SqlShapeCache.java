@@ -0,0 +1,213 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * LRU cache of the {@link SqlSource}s parsed out of the SQL text rendered by a {@link DynamicSqlSource}.
+ */
+/**
+ * 动态SQL解析结果的缓存
+ * 同一个语句，只要走的<if>/<choose>分支一样，生成的SQL文本就一样，#{}的解析结果(ParameterMapping列表)也就一样
+ * 所以用 SQL文本+参数类型+绑定变量的类型 做key，缓存SqlSourceBuilder.parse的结果(StaticSqlSource)
+ * #{}的类型是从绑定变量的运行时的值里取的(比如#{item.x}，item是Map时x的类型取决于值)，光看顶层的类型不够，
+ * 所以对走绑定变量的嵌套属性，还要记下路径上每一层的值的类型，命中时只核对这些类型，不一样就重新解析
+ */
+class SqlShapeCache {
+
+  private final Configuration configuration;
+  private final Map<Shape, ParsedSql> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SqlShapeCache(Configuration configuration, final int size) {
+    this.configuration = configuration;
+    //和LruCache一样，用LinkedHashMap的accessOrder实现LRU
+    this.cache = new LinkedHashMap<Shape, ParsedSql>(size, .75F, true) {
+      private static final long serialVersionUID = 4267176411845948333L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Shape, ParsedSql> eldest) {
+        return size() > size;
+      }
+    };
+  }
+
+  /*
+   * @return the parsed SQL, or null if it has not been parsed yet or if a #{} property now resolves to another type
+   */
+  public SqlSource get(Shape shape, Map<String, Object> bindings) {
+    ParsedSql parsedSql;
+    synchronized (cache) {
+      parsedSql = cache.get(shape);
+    }
+    if (parsedSql == null || !parsedSql.matches(bindings)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return parsedSql.sqlSource;
+  }
+
+  public void put(Shape shape, SqlSource sqlSource, List<ParameterMapping> parameterMappings, Map<String, Object> bindings) {
+    ParsedSql parsedSql = new ParsedSql(sqlSource, parameterMappings, bindings);
+    synchronized (cache) {
+      cache.put(shape, parsedSql);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int getSize() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /*
+   * Everything SqlSourceBuilder.parse depends on: the rendered text, the parameter type and
+   * the names and runtime types of the additional parameters (issue #448).
+   */
+  static class Shape {
+
+    private final String sql;
+    private final Class<?> parameterType;
+    private final String[] bindingNames;
+    private final Class<?>[] bindingTypes;
+    private final int hashCode;
+
+    Shape(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+      this.sql = sql;
+      this.parameterType = parameterType;
+      this.bindingNames = new String[bindings.size()];
+      this.bindingTypes = new Class<?>[bindings.size()];
+      int i = 0;
+      for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+        bindingNames[i] = entry.getKey();
+        bindingTypes[i] = entry.getValue() == null ? null : entry.getValue().getClass();
+        i++;
+      }
+      int h = sql.hashCode();
+      h = 31 * h + parameterType.hashCode();
+      h = 31 * h + Arrays.hashCode(bindingNames);
+      h = 31 * h + Arrays.hashCode(bindingTypes);
+      this.hashCode = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof Shape)) {
+        return false;
+      }
+      Shape other = (Shape) object;
+      return hashCode == other.hashCode
+          && parameterType == other.parameterType
+          && Arrays.equals(bindingTypes, other.bindingTypes)
+          && Arrays.equals(bindingNames, other.bindingNames)
+          && sql.equals(other.sql);
+    }
+  }
+
+  /*
+   * A parsed SQL, the #{} properties that go through an additional parameter to a nested value and the classes
+   * of the values along each of those paths when it was parsed. The type SqlSourceBuilder resolves for those
+   * properties depends on these classes, the others are covered by the Shape.
+   */
+  private class ParsedSql {
+
+    private final SqlSource sqlSource;
+    private final String[] nestedProperties;
+    private final Class<?>[][] pathClasses;
+
+    ParsedSql(SqlSource sqlSource, List<ParameterMapping> parameterMappings, Map<String, Object> bindings) {
+      this.sqlSource = sqlSource;
+      List<String> properties = new ArrayList<String>();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        String property = parameterMapping.getProperty();
+        if (property != null && (property.indexOf('.') > -1 || property.indexOf('[') > -1)
+            && bindings.containsKey(new PropertyTokenizer(property).getName())) {
+          properties.add(property);
+        }
+      }
+      this.nestedProperties = properties.toArray(new String[properties.size()]);
+      this.pathClasses = new Class<?>[nestedProperties.length][];
+      for (int i = 0; i < nestedProperties.length; i++) {
+        pathClasses[i] = pathClasses(bindings, nestedProperties[i]);
+      }
+    }
+
+    boolean matches(Map<String, Object> bindings) {
+      for (int i = 0; i < nestedProperties.length; i++) {
+        if (!Arrays.equals(pathClasses[i], pathClasses(bindings, nestedProperties[i]))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  //从绑定变量开始一层层取值，记下每层值的类型；取不到(比如换了个没有这个属性的类)就当不一样，重新解析时会报出真正的错
+  private Class<?>[] pathClasses(Map<String, Object> bindings, String property) {
+    List<Class<?>> classes = new ArrayList<Class<?>>();
+    Object current = bindings;
+    PropertyTokenizer prop = new PropertyTokenizer(property);
+    try {
+      while (current != null) {
+        Object value;
+        if (current instanceof Map && prop.getIndex() == null) {
+          value = ((Map<?, ?>) current).get(prop.getName());
+        } else {
+          value = configuration.newMetaObject(current).getValue(prop.getIndexedName());
+        }
+        classes.add(value == null ? null : value.getClass());
+        if (!prop.hasNext()) {
+          break;
+        }
+        current = value;
+        prop = prop.next();
+      }
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return classes.toArray(new Class<?>[classes.size()]);
+  }
+
+}
@@ -26,6 +26,7 @@ public class VarDeclSqlNode implements SqlNode {
   public VarDeclSqlNode(String var, String exp) {
     name = var;
     expression = exp;
+    OgnlCache.prepare(exp);
   }
 
   @Override
@@ -15,8 +15,11 @@
  */
 package org.apache.ibatis.session;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -24,18 +27,37 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
+import org.apache.ibatis.builder.MapperLoadTime;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheStatsMBean;
+import org.apache.ibatis.cache.CacheStatsMXBean;
+import org.apache.ibatis.cache.CacheTagRegistry;
+import org.apache.ibatis.cache.StatsCounter;
+import org.apache.ibatis.cache.StatsCounterProvider;
+import org.apache.ibatis.cache.Ticker;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -49,6 +71,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.AutoMappingPlanCache;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -78,6 +101,7 @@ import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlanCache;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
@@ -120,6 +144,21 @@ public class Configuration {
   //默认为简单执行器
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
+  //每个动态SQL最多缓存多少种解析结果，0表示不缓存
+  protected int dynamicSqlCacheSize = 0;
+  //BATCH执行器攒到多少条/估算多少字节时自动flush，0表示不自动flush
+  protected int batchFlushSize = 0;
+  protected int batchFlushBytes = 0;
+  //BATCH执行器的BatchResult是否留着参数对象(有主键生成时总是留着)
+  protected boolean batchRetainParameterObjects = true;
+  //REUSE执行器每个物理连接最多缓存多少个语句，0表示只在一个SqlSession里缓存
+  protected int reuseStatementCacheSize = 0;
+  //把缓存的统计注册成JMX的MBean
+  protected boolean cacheStatisticsJmxEnabled = false;
+  //用多少个线程并行解析映射器XML，0表示在当前线程里一个一个解析
+  protected int mapperParsingThreads = 0;
+  //映射器XML快照文件的路径，null表示不用快照
+  protected String mapperSnapshot;
   //---------以上都是<settings>节点-------
 
   protected Properties variables = new Properties();
@@ -148,6 +187,22 @@ public class Configuration {
   //类型别名注册机
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  //自动映射计划缓存
+  protected final AutoMappingPlanCache autoMappingPlanCache = new AutoMappingPlanCache(1024);
+  //参数绑定计划缓存
+  protected final ParameterBindingPlanCache parameterBindingPlanCache = new ParameterBindingPlanCache(4096);
+  //所有SqlSession的一级缓存汇总的统计
+  protected final StatsCounter localCacheStatsCounter = new StatsCounter();
+  //已经注册的缓存统计MBean
+  protected final List<ObjectName> cacheStatisticsMBeans = new ArrayList<ObjectName>();
+  //缓存标签(cacheTags)的版本号
+  protected final CacheTagRegistry cacheTagRegistry = new CacheTagRegistry();
+  //每个映射器的加载时间
+  protected final List<MapperLoadTime> mapperLoadTimes = new ArrayList<MapperLoadTime>();
+  //二级缓存提前刷新(<cache refreshAhead="true">)用的后台线程池，用到时才创建
+  protected ExecutorService cacheRefreshExecutor;
+  //二级缓存判断过期用的时钟
+  protected Ticker cacheTicker = Ticker.SYSTEM;
 
   //映射的语句,存在Map里
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
@@ -193,6 +248,10 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+
+    typeAliasRegistry.registerAlias("JAVA", JavaSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT", CompactSerializer.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -306,6 +365,139 @@ public class Configuration {
     this.autoMappingBehavior = autoMappingBehavior;
   }
 
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  public int getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  public void setBatchFlushBytes(int batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  public boolean isBatchRetainParameterObjects() {
+    return batchRetainParameterObjects;
+  }
+
+  public void setBatchRetainParameterObjects(boolean batchRetainParameterObjects) {
+    this.batchRetainParameterObjects = batchRetainParameterObjects;
+  }
+
+  public int getReuseStatementCacheSize() {
+    return reuseStatementCacheSize;
+  }
+
+  public void setReuseStatementCacheSize(int reuseStatementCacheSize) {
+    this.reuseStatementCacheSize = reuseStatementCacheSize;
+  }
+
+  public int getMapperParsingThreads() {
+    return mapperParsingThreads;
+  }
+
+  public void setMapperParsingThreads(int mapperParsingThreads) {
+    this.mapperParsingThreads = mapperParsingThreads;
+  }
+
+  public String getMapperSnapshot() {
+    return mapperSnapshot;
+  }
+
+  public void setMapperSnapshot(String mapperSnapshot) {
+    this.mapperSnapshot = mapperSnapshot;
+  }
+
+  public boolean isCacheStatisticsJmxEnabled() {
+    return cacheStatisticsJmxEnabled;
+  }
+
+  /*
+   * Registers (or unregisters) the statistics of the local cache and of every cache, including the ones added later.
+   */
+  public void setCacheStatisticsJmxEnabled(boolean cacheStatisticsJmxEnabled) {
+    if (this.cacheStatisticsJmxEnabled == cacheStatisticsJmxEnabled) {
+      return;
+    }
+    this.cacheStatisticsJmxEnabled = cacheStatisticsJmxEnabled;
+    if (cacheStatisticsJmxEnabled) {
+      registerCacheStatisticsMBean("LocalCache", "LocalCache", new CacheStatsMBean("LocalCache", localCacheStatsCounter));
+      for (Map.Entry<String, Cache> entry : caches.entrySet()) {
+        Object value = entry.getValue();
+        //StrictMap里短名字也放了一份，还可能是Ambiguity
+        if (value instanceof Cache && ((Cache) value).getId().equals(entry.getKey())) {
+          registerCacheStatisticsMBean((Cache) value);
+        }
+      }
+    } else {
+      unregisterCacheStatisticsMBeans();
+    }
+  }
+
+  public StatsCounter getLocalCacheStatsCounter() {
+    return localCacheStatsCounter;
+  }
+
+  /*
+   * @return the statistics of the local caches of all the sessions, use {@link CacheStats#of(Cache)} for the other caches
+   */
+  public CacheStats getLocalCacheStats() {
+    return localCacheStatsCounter.snapshot("LocalCache", -1);
+  }
+
+  public CacheTagRegistry getCacheTagRegistry() {
+    return cacheTagRegistry;
+  }
+
+  /*
+   * The thread pool that reloads the entries of the caches with refreshAhead enabled.
+   * Defaults to two daemon threads created on first use.
+   */
+  public synchronized ExecutorService getCacheRefreshExecutor() {
+    if (cacheRefreshExecutor == null) {
+      cacheRefreshExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + count.incrementAndGet());
+          //不能因为刷新缓存的线程挡住应用退出
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return cacheRefreshExecutor;
+  }
+
+  public synchronized void setCacheRefreshExecutor(ExecutorService cacheRefreshExecutor) {
+    this.cacheRefreshExecutor = cacheRefreshExecutor;
+  }
+
+  public Ticker getCacheTicker() {
+    return cacheTicker;
+  }
+
+  /*
+   * Sets the clock of the caches built after this call, those with a flushInterval or a timeToLive.
+   */
+  public void setCacheTicker(Ticker cacheTicker) {
+    this.cacheTicker = cacheTicker;
+  }
+
   public boolean isLazyLoadingEnabled() {
     return lazyLoadingEnabled;
   }
@@ -417,6 +609,25 @@ public class Configuration {
     return typeHandlerRegistry;
   }
 
+  public AutoMappingPlanCache getAutoMappingPlanCache() {
+    return autoMappingPlanCache;
+  }
+
+  public ParameterBindingPlanCache getParameterBindingPlanCache() {
+    return parameterBindingPlanCache;
+  }
+
+  public void addMapperLoadTime(MapperLoadTime mapperLoadTime) {
+    mapperLoadTimes.add(mapperLoadTime);
+  }
+
+  /*
+   * @return the load time of every mapper element of the configuration, in declaration order
+   */
+  public List<MapperLoadTime> getMapperLoadTimes() {
+    return Collections.unmodifiableList(mapperLoadTimes);
+  }
+
   public TypeAliasRegistry getTypeAliasRegistry() {
     return typeAliasRegistry;
   }
@@ -554,6 +765,42 @@ public class Configuration {
 
   public void addCache(Cache cache) {
     caches.put(cache.getId(), cache);
+    if (cacheStatisticsJmxEnabled) {
+      registerCacheStatisticsMBean(cache);
+    }
+  }
+
+  private void registerCacheStatisticsMBean(Cache cache) {
+    StatsCounter statsCounter = cache instanceof StatsCounterProvider ? ((StatsCounterProvider) cache).getStatsCounter() : null;
+    if (statsCounter != null) {
+      registerCacheStatisticsMBean("Cache", cache.getId(), new CacheStatsMBean(cache, statsCounter));
+    }
+  }
+
+  //同一个JVM里可能有好几个Configuration，名字里带上Configuration的identityHashCode区分
+  private void registerCacheStatisticsMBean(String type, String id, CacheStatsMXBean mbean) {
+    //顺便注销掉已经丢弃的Configuration留下的
+    CacheStatsMBean.unregisterCollected();
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=" + type
+          + ",configuration=" + Integer.toHexString(System.identityHashCode(this)) + ",name=" + ObjectName.quote(id));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+      cacheStatisticsMBeans.add(name);
+    } catch (Exception e) {
+      throw new CacheException("Error registering the statistics of cache " + id + " with JMX.  Cause: " + e, e);
+    }
+  }
+
+  private void unregisterCacheStatisticsMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ObjectName name : cacheStatisticsMBeans) {
+      try {
+        server.unregisterMBean(name);
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+    cacheStatisticsMBeans.clear();
   }
 
   public Collection<String> getCacheNames() {
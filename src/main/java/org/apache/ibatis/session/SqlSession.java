@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -137,6 +138,36 @@ public interface SqlSession extends Closeable {
    */
   <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds);
 
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * 返回游标，遍历的时候才从数据库里一条一条地取，适合导出大量数据
+   * 游标在关闭SqlSession时也会被关闭
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement);
+
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement, Object parameter);
+
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * 带分页的游标，offset之前的记录是在遍历时跳过的
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
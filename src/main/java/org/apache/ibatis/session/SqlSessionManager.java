@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -199,6 +200,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.<E> selectList(statement, parameter, rowBounds);
   }
 
+  @Override
+  public <T> Cursor<T> selectCursor(String statement) {
+    return sqlSessionProxy.selectCursor(statement);
+  }
+
+  @Override
+  public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+    return sqlSessionProxy.selectCursor(statement, parameter);
+  }
+
+  @Override
+  public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+    return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
+  }
+
   @Override
   public void select(String statement, ResultHandler handler) {
     sqlSessionProxy.select(statement, handler);
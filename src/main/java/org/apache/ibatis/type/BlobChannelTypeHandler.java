@@ -0,0 +1,63 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a BLOB to a {@link ReadableByteChannel}, e.g. to transfer it to a file or a socket.
+ * Like {@link BlobInputStreamTypeHandler}, read it while the result set is open.
+ */
+/**
+ * BLOB映射成ReadableByteChannel，方便直接transfer到文件或者socket
+ * 和BlobInputStreamTypeHandler一样，要在ResultSet没关时读
+ */
+public class BlobChannelTypeHandler extends BaseTypeHandler<ReadableByteChannel> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, ReadableByteChannel parameter, JdbcType jdbcType)
+      throws SQLException {
+    ps.setBinaryStream(i, Channels.newInputStream(parameter));
+  }
+
+  @Override
+  public ReadableByteChannel getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toChannel(rs.getBlob(columnName));
+  }
+
+  @Override
+  public ReadableByteChannel getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toChannel(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public ReadableByteChannel getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toChannel(cs.getBlob(columnIndex));
+  }
+
+  private ReadableByteChannel toChannel(Blob blob) throws SQLException {
+    return blob == null ? null : Channels.newChannel(blob.getBinaryStream());
+  }
+}
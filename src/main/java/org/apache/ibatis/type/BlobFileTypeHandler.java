@@ -0,0 +1,135 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a BLOB to a temporary {@link File}: the BLOB is copied to the file with
+ * {@link FileChannel#transferFrom} while the result set is open, so it can be used after the session is closed
+ * without holding it in memory. The caller owns the file and must delete it.
+ * As a parameter, the file is streamed to the statement.
+ */
+/**
+ * BLOB映射成临时文件
+ * 在ResultSet还开着的时候用FileChannel.transferFrom把BLOB拷到临时文件里，关了SqlSession以后也能用，而且不占内存
+ * 文件归调用者，用完要自己删
+ * 做参数时，把文件以流的方式传给驱动
+ */
+public class BlobFileTypeHandler extends BaseTypeHandler<File> {
+
+  //每次transfer的字节数
+  private static final long TRANSFER_SIZE = 1024 * 1024;
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, File parameter, JdbcType jdbcType)
+      throws SQLException {
+    InputStream in;
+    try {
+      in = new ClosingInputStream(new FileInputStream(parameter));
+    } catch (IOException e) {
+      throw new TypeException("Could not open " + parameter + ". Cause: " + e, e);
+    }
+    ps.setBinaryStream(i, in, parameter.length());
+  }
+
+  @Override
+  public File getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toFile(rs.getBlob(columnName));
+  }
+
+  @Override
+  public File getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toFile(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public File getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toFile(cs.getBlob(columnIndex));
+  }
+
+  private File toFile(Blob blob) throws SQLException {
+    if (blob == null) {
+      return null;
+    }
+    File file = null;
+    try {
+      file = File.createTempFile("mybatis-blob-", ".tmp");
+      InputStream in = blob.getBinaryStream();
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+        ReadableByteChannel source = Channels.newChannel(in);
+        FileChannel target = out.getChannel();
+        long position = 0;
+        long transferred;
+        while ((transferred = target.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+          position += transferred;
+        }
+      } finally {
+        out.close();
+        in.close();
+      }
+      return file;
+    } catch (IOException e) {
+      if (file != null) {
+        file.delete();
+      }
+      throw new TypeException("Could not copy BLOB to a temporary file. Cause: " + e, e);
+    }
+  }
+
+  //驱动读完参数不会关流，读到末尾时自己关掉文件
+  private static class ClosingInputStream extends FilterInputStream {
+
+    ClosingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        close();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        close();
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a BLOB to an {@link InputStream} without reading it into memory.
+ * Most drivers only let the stream be read while the result set is open, so read it
+ * from a {@link org.apache.ibatis.cursor.Cursor} or a {@link org.apache.ibatis.session.ResultHandler},
+ * or use {@link BlobFileTypeHandler}.
+ */
+/**
+ * BLOB映射成InputStream，不把整个BLOB读进内存
+ * 大多数驱动只在ResultSet没关时能读这个流，所以要在游标或者ResultHandler里读，否则用BlobFileTypeHandler
+ */
+public class BlobInputStreamTypeHandler extends BaseTypeHandler<InputStream> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, InputStream parameter, JdbcType jdbcType)
+      throws SQLException {
+    ps.setBinaryStream(i, parameter);
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnName));
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public InputStream getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toInputStream(cs.getBlob(columnIndex));
+  }
+
+  private InputStream toInputStream(Blob blob) throws SQLException {
+    return blob == null ? null : blob.getBinaryStream();
+  }
+}
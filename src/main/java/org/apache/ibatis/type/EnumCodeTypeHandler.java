@@ -0,0 +1,130 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.lang.reflect.Field;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps an enum to the codes declared with {@link EnumCode}. Every constant must declare a distinct code.
+ */
+/**
+ * 按@EnumCode的编码映射枚举
+ * 编码->常量的Map和 ordinal->编码的数组都在构造时建好，每一行只查一次
+ * 每个常量都要有编码，而且不能重复
+ */
+public class EnumCodeTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
+
+  private final Class<E> type;
+  //下标是ordinal
+  private final String[] codes;
+  private final Map<String, E> enumsByCode;
+
+  @SuppressWarnings("unchecked")
+  public EnumCodeTypeHandler(Class<E> type) {
+    if (type == null) {
+      throw new IllegalArgumentException("Type argument cannot be null");
+    }
+    //常量带类体时，它的getClass()是匿名子类，getEnumConstants()返回null，要换成声明的枚举
+    this.type = type.isEnum() ? type : (Class<E>) type.getSuperclass();
+    E[] enums = this.type.getEnumConstants();
+    if (enums == null) {
+      throw new IllegalArgumentException(this.type.getSimpleName() + " does not represent an enum type.");
+    }
+    this.codes = new String[enums.length];
+    this.enumsByCode = new HashMap<String, E>(enums.length * 2);
+    for (E e : enums) {
+      EnumCode code = getEnumCode(this.type, e);
+      if (code == null) {
+        throw new IllegalArgumentException("Enum constant " + this.type.getSimpleName() + "." + e.name() + " has no @EnumCode.");
+      }
+      E previous = enumsByCode.put(code.value(), e);
+      if (previous != null) {
+        throw new IllegalArgumentException("Enum constants " + this.type.getSimpleName() + "." + previous.name() + " and "
+            + this.type.getSimpleName() + "." + e.name() + " have the same code '" + code.value() + "'.");
+      }
+      codes[e.ordinal()] = code.value();
+    }
+  }
+
+  /*
+   * @return true if any constant of the enum declares an {@link EnumCode}
+   */
+  public static boolean hasEnumCodes(Class<?> type) {
+    if (!type.isEnum()) {
+      type = type.getSuperclass();
+    }
+    Object[] enums = type.getEnumConstants();
+    if (enums == null) {
+      return false;
+    }
+    for (Object e : enums) {
+      if (getEnumCode(type, (Enum<?>) e) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static EnumCode getEnumCode(Class<?> type, Enum<?> e) {
+    try {
+      Field field = type.getField(e.name());
+      return field.getAnnotation(EnumCode.class);
+    } catch (NoSuchFieldException ex) {
+      return null;
+    }
+  }
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, E parameter, JdbcType jdbcType) throws SQLException {
+    if (jdbcType == null) {
+      ps.setString(i, codes[parameter.ordinal()]);
+    } else {
+      ps.setObject(i, codes[parameter.ordinal()], jdbcType.TYPE_CODE);
+    }
+  }
+
+  @Override
+  public E getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    String s = rs.getString(columnName);
+    return s == null ? null : toEnum(s);
+  }
+
+  @Override
+  public E getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    String s = rs.getString(columnIndex);
+    return s == null ? null : toEnum(s);
+  }
+
+  @Override
+  public E getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    String s = cs.getString(columnIndex);
+    return s == null ? null : toEnum(s);
+  }
+
+  private E toEnum(String s) {
+    E e = enumsByCode.get(s);
+    if (e == null) {
+      throw new IllegalArgumentException("Cannot convert '" + s + "' to " + type.getSimpleName() + " by code.");
+    }
+    return e;
+  }
+}
@@ -50,11 +50,7 @@ public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E
     if (rs.wasNull()) {
       return null;
     } else {
-      try {
-        return enums[i];
-      } catch (Exception ex) {
-        throw new IllegalArgumentException("Cannot convert " + i + " to " + type.getSimpleName() + " by ordinal value.", ex);
-      }
+      return toOrdinalEnum(i);
     }
   }
 
@@ -64,11 +60,7 @@ public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E
     if (rs.wasNull()) {
       return null;
     } else {
-      try {
-        return enums[i];
-      } catch (Exception ex) {
-        throw new IllegalArgumentException("Cannot convert " + i + " to " + type.getSimpleName() + " by ordinal value.", ex);
-      }
+      return toOrdinalEnum(i);
     }
   }
 
@@ -78,12 +70,16 @@ public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E
     if (cs.wasNull()) {
       return null;
     } else {
-      try {
-        return enums[i];
-      } catch (Exception ex) {
-        throw new IllegalArgumentException("Cannot convert " + i + " to " + type.getSimpleName() + " by ordinal value.", ex);
-      }
+      return toOrdinalEnum(i);
     }
   }
-  
+
+  //先判断下标，不靠数组越界异常
+  private E toOrdinalEnum(int i) {
+    if (i < 0 || i >= enums.length) {
+      throw new IllegalArgumentException("Cannot convert " + i + " to " + type.getSimpleName() + " by ordinal value.");
+    }
+    return enums[i];
+  }
+
 }
@@ -19,19 +19,36 @@ import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author Clinton Begin
  */
+/**
+ * 按名字映射枚举
+ * 名字到常量的表在构造时建好，每一行只查一次HashMap
+ */
 public class EnumTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
 
   private Class<E> type;
+  private final Map<String, E> enumsByName;
 
+  @SuppressWarnings("unchecked")
   public EnumTypeHandler(Class<E> type) {
     if (type == null) {
       throw new IllegalArgumentException("Type argument cannot be null");
     }
-    this.type = type;
+    //常量带类体时，它的getClass()是匿名子类，getEnumConstants()返回null，要换成声明的枚举
+    this.type = type.isEnum() ? type : (Class<E>) type.getSuperclass();
+    E[] enums = this.type.getEnumConstants();
+    if (enums == null) {
+      throw new IllegalArgumentException(this.type.getSimpleName() + " does not represent an enum type.");
+    }
+    this.enumsByName = new HashMap<String, E>(enums.length * 2);
+    for (E e : enums) {
+      enumsByName.put(e.name(), e);
+    }
   }
 
   @Override
@@ -46,18 +63,27 @@ public class EnumTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
   @Override
   public E getNullableResult(ResultSet rs, String columnName) throws SQLException {
     String s = rs.getString(columnName);
-    return s == null ? null : Enum.valueOf(type, s);
+    return s == null ? null : toEnum(s);
   }
 
   @Override
   public E getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
     String s = rs.getString(columnIndex);
-    return s == null ? null : Enum.valueOf(type, s);
+    return s == null ? null : toEnum(s);
   }
 
   @Override
   public E getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
     String s = cs.getString(columnIndex);
-    return s == null ? null : Enum.valueOf(type, s);
+    return s == null ? null : toEnum(s);
+  }
+
+  private E toEnum(String s) {
+    E e = enumsByName.get(s);
+    if (e == null) {
+      //和Enum.valueOf的异常保持一致
+      throw new IllegalArgumentException("No enum constant " + type.getCanonicalName() + "." + s);
+    }
+    return e;
   }
-}
\ No newline at end of file
+}
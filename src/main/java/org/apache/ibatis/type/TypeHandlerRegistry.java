@@ -17,12 +17,18 @@ package org.apache.ibatis.type;
 
 import org.apache.ibatis.io.ResolverUtil;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.channels.ReadableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Clinton Begin
@@ -38,6 +44,9 @@ public final class TypeHandlerRegistry {
   private final Map<JdbcType, TypeHandler<?>> JDBC_TYPE_HANDLER_MAP = new EnumMap<JdbcType, TypeHandler<?>>(JdbcType.class);
 
   private final Map<Type, Map<JdbcType, TypeHandler<?>>> TYPE_HANDLER_MAP = new HashMap<Type, Map<JdbcType, TypeHandler<?>>>();
+
+  //没注册过的枚举的默认处理器
+  private final ConcurrentMap<Class<?>, TypeHandler<?>> ENUM_TYPE_HANDLER_MAP = new ConcurrentHashMap<Class<?>, TypeHandler<?>>();
   private final TypeHandler<Object> UNKNOWN_TYPE_HANDLER = new UnknownTypeHandler(this);
   private final Map<Class<?>, TypeHandler<?>> ALL_TYPE_HANDLERS_MAP = new HashMap<Class<?>, TypeHandler<?>>();
 
@@ -108,6 +117,11 @@ public final class TypeHandlerRegistry {
     register(byte[].class, JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.BLOB, new BlobTypeHandler());
+    //大字段按流读写，不整个放进内存
+    register(InputStream.class, new BlobInputStreamTypeHandler());
+    register(ReadableByteChannel.class, new BlobChannelTypeHandler());
+    register(File.class, new BlobFileTypeHandler());
+    register(Reader.class, new ClobReaderTypeHandler());
 
     register(Object.class, UNKNOWN_TYPE_HANDLER);
     register(Object.class, JdbcType.OTHER, UNKNOWN_TYPE_HANDLER);
@@ -180,12 +194,34 @@ public final class TypeHandlerRegistry {
       }
     }
     if (handler == null && type != null && type instanceof Class && Enum.class.isAssignableFrom((Class<?>) type)) {
-      handler = new EnumTypeHandler((Class<?>) type);
+      handler = getDefaultEnumTypeHandler((Class<?>) type);
     }
     // type drives generics here
     return (TypeHandler<T>) handler;
   }
 
+  //枚举处理器构造时要建查找表，所以建好以后缓存起来，不要每次都new
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private TypeHandler<?> getDefaultEnumTypeHandler(Class<?> type) {
+    //带类体的常量的getClass()是匿名子类，和声明的枚举共用一个处理器
+    if (!type.isEnum()) {
+      type = type.getSuperclass();
+    }
+    TypeHandler<?> handler = ENUM_TYPE_HANDLER_MAP.get(type);
+    if (handler == null) {
+      if (EnumCodeTypeHandler.hasEnumCodes(type)) {
+        handler = new EnumCodeTypeHandler(type);
+      } else {
+        handler = new EnumTypeHandler(type);
+      }
+      TypeHandler<?> existing = ENUM_TYPE_HANDLER_MAP.putIfAbsent(type, handler);
+      if (existing != null) {
+        handler = existing;
+      }
+    }
+    return handler;
+  }
+
   public TypeHandler<Object> getUnknownTypeHandler() {
     return UNKNOWN_TYPE_HANDLER;
   }
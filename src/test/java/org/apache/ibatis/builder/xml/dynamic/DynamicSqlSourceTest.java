@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -353,6 +354,87 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  public void shouldReuseParsedSqlWhenTheSameBranchesAreTaken() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(10);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new IfSqlNode(mixedContents(new TextSqlNode("WHERE ID = #{id}")), "id != null")));
+    BoundSql first = source.getBoundSql(new Bean("1"));
+    BoundSql second = source.getBoundSql(new Bean("2"));
+    assertEquals("SELECT * FROM BLOG WHERE ID = ?", second.getSql());
+    assertEquals(1, second.getParameterMappings().size());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals("2", second.getParameterObject() == null ? null : ((Bean) second.getParameterObject()).getId());
+    BoundSql third = source.getBoundSql(new Bean(null));
+    assertEquals("SELECT * FROM BLOG", third.getSql());
+    assertEquals(0, third.getParameterMappings().size());
+    assertEquals(1, source.getCacheHitCount());
+    assertEquals(2, source.getCacheMissCount());
+  }
+
+  @Test
+  public void shouldNotReuseParsedSqlWhenAdditionalParameterTypesDiffer() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(10);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")));
+    Map<String, Object> integers = new HashMap<String, Object>();
+    integers.put("list", Arrays.asList(1, 2));
+    Map<String, Object> strings = new HashMap<String, Object>();
+    strings.put("list", Arrays.asList("1", "2"));
+    BoundSql integerSql = source.getBoundSql(integers);
+    BoundSql stringSql = source.getBoundSql(strings);
+    assertEquals(integerSql.getSql(), stringSql.getSql());
+    assertEquals(Integer.class, integerSql.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, stringSql.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, source.getCacheHitCount());
+  }
+
+  @Test
+  public void shouldNotReuseParsedSqlWhenNestedPropertyTypesDiffer() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(10);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item.x}")), "list", null, "item", "(", ")", ",")));
+    BoundSql integerSql = source.getBoundSql(rows(1));
+    BoundSql stringSql = source.getBoundSql(rows("1"));
+    assertEquals(integerSql.getSql(), stringSql.getSql());
+    assertEquals(Integer.class, integerSql.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, stringSql.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, source.getCacheHitCount());
+    BoundSql otherStringSql = source.getBoundSql(rows("2"));
+    assertSame(stringSql.getParameterMappings(), otherStringSql.getParameterMappings());
+    assertEquals(1, source.getCacheHitCount());
+  }
+
+  private Map<String, Object> rows(Object x) {
+    Map<String, Object> row = new HashMap<String, Object>();
+    row.put("x", x);
+    List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
+    list.add(row);
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("list", list);
+    return param;
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedParsedSql() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(1);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new IfSqlNode(mixedContents(new TextSqlNode("WHERE ID = #{id}")), "id != null")));
+    source.getBoundSql(new Bean("1"));
+    source.getBoundSql(new Bean(null));
+    source.getBoundSql(new Bean("1"));
+    assertEquals(0, source.getCacheHitCount());
+    assertEquals(3, source.getCacheMissCount());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
@@ -15,13 +15,22 @@
  */
 package org.apache.ibatis.builder.xml.dynamic;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import ognl.Ognl;
+import ognl.OgnlException;
+
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
@@ -77,5 +86,96 @@ public class ExpressionEvaluatorTest {
     }
   }
 
+  @Test
+  public void shouldEvaluateCompoundConditions() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertEquals(true, evaluator.evaluateBoolean("username != null and password == null", author));
+    assertEquals(true, evaluator.evaluateBoolean("id > 0 && (username == 'norm' || email != null)", author));
+    assertEquals(false, evaluator.evaluateBoolean("!(id >= 1)", author));
+    assertEquals(true, evaluator.evaluateBoolean("not password", author));
+    assertEquals(true, evaluator.evaluateBoolean("id lte 1.5 and username.length() gt 3", author));
+  }
+
+  @Test
+  public void shouldEvaluateSizeAndIsEmpty() {
+    Map<String, Object> parameterObject = new HashMap<String, Object>();
+    List<String> list = new ArrayList<String>();
+    list.add("a");
+    parameterObject.put("list", list);
+    parameterObject.put("map", new HashMap<String, Object>());
+    assertEquals(true, evaluator.evaluateBoolean("list != null and list.size() > 0", parameterObject));
+    assertEquals(true, evaluator.evaluateBoolean("map.isEmpty()", parameterObject));
+    assertEquals(false, evaluator.evaluateBoolean("map.missing != null", parameterObject));
+  }
+
+  @Test
+  public void shouldMatchOgnlResults() throws Exception {
+    Map<String, Object> parameterObject = new HashMap<String, Object>();
+    parameterObject.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    parameterObject.put("count", 3L);
+    parameterObject.put("ratio", 0.5d);
+    parameterObject.put("flag", Boolean.TRUE);
+    parameterObject.put("name", "a");
+    parameterObject.put("section", Section.NEWS);
+    List<String> list = new ArrayList<String>();
+    parameterObject.put("list", list);
+    String[] expressions = {
+        "author.username == 'cbegin'", "author.id == count", "count > 2", "count == 3.0", "ratio < 1",
+        "flag and count", "count or flag", "name == 'a'", "section == 'NEWS'", "author.favouriteSection.name() == 'NEWS'",
+        "list.size() == 0", "list.size == 0", "list.isEmpty", "author.password == null", "missing == null",
+        "'abc' < 'abd'", "flag eq true", "count != 3", "#this.count", "count + 1", "author.favouriteSection",
+        "count and name", "list or ratio", "missing or name", "!count", "not name", "!missing and ratio > 0"
+    };
+    for (String expression : expressions) {
+      //比如name == 'a'，OGNL把'a'当成Character，比较时会出错，编译后的表达式也要一样出错
+      Object expected;
+      try {
+        expected = Ognl.getValue(Ognl.parseExpression(expression), parameterObject);
+      } catch (Exception e) {
+        expected = "error";
+      }
+      Object actual;
+      try {
+        actual = OgnlCache.getValue(expression, parameterObject);
+      } catch (RuntimeException e) {
+        actual = "error";
+      }
+      assertEquals(expression, expected, actual);
+    }
+  }
+
+  @Test
+  public void shouldCallAFailingGetterOnlyOnce() throws Exception {
+    FailingBean bean = new FailingBean();
+    String expected;
+    try {
+      Ognl.getValue(Ognl.parseExpression("name != null and id > 0"), bean);
+      throw new AssertionError("OGNL should fail");
+    } catch (OgnlException e) {
+      expected = "Error evaluating expression 'name != null and id > 0'. Cause: " + e;
+    }
+    bean.calls = 0;
+    try {
+      OgnlCache.getValue("name != null and id > 0", bean);
+      fail("Expected a BuilderException");
+    } catch (BuilderException e) {
+      assertEquals(expected, e.getMessage());
+      assertEquals("boom", e.getCause().getCause().getMessage());
+    }
+    assertEquals(1, bean.calls);
+  }
+
+  public static class FailingBean {
+    private int calls;
+
+    public String getName() {
+      calls++;
+      throw new IllegalStateException("boom");
+    }
+
+    public int getId() {
+      return 1;
+    }
+  }
 
 }
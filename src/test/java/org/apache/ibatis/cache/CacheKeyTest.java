@@ -80,4 +80,30 @@ public class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  public void shouldCopyPrefixAndKeepUpdating() throws Exception {
+    CacheKey prefix = new CacheKey(new Object[] { "statement", 0, Integer.MAX_VALUE });
+    CacheKey key1 = new CacheKey(prefix, 2);
+    key1.update("select * from t where id = ?");
+    key1.update(1);
+    key1.update("extra");
+    CacheKey key2 = new CacheKey(new Object[] { "statement", 0, Integer.MAX_VALUE, "select * from t where id = ?", 1, "extra" });
+    assertEquals(key2, key1);
+    assertEquals(key2.hashCode(), key1.hashCode());
+    assertEquals(6, key1.getUpdateCount());
+    assertEquals(3, prefix.getUpdateCount());
+    assertFalse(prefix.equals(key1));
+  }
+
+  @Test
+  public void shouldNotShareElementsWithClone() throws Exception {
+    CacheKey key1 = new CacheKey(new Object[] { 1, 2, 3 });
+    CacheKey key2 = key1.clone();
+    key2.update(4);
+    assertEquals(3, key1.getUpdateCount());
+    assertFalse(key1.equals(key2));
+    key1.update(4);
+    assertEquals(key1, key2);
+  }
+
 }
@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.CompressingSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class CacheSerializerTest {
+
+  @Test
+  public void shouldCopySimpleValues() {
+    CacheSerializer serializer = new CompactSerializer();
+    Timestamp timestamp = new Timestamp(123456789L);
+    timestamp.setNanos(987654321);
+    List<Object> values = Arrays.<Object>asList("ascii", "中文 and more", Integer.MIN_VALUE, Long.MAX_VALUE, (short) -3,
+        (byte) 7, true, 'x', 1.5d, -2.5f, new BigDecimal("-1234.5678"), new BigInteger("123456789012345678901234567890"),
+        new Date(42L), new java.sql.Date(43L), new java.sql.Time(44L), timestamp, Section.NEWS, null);
+    for (Object value : values) {
+      assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) serializer.deserialize(serializer.serialize(new byte[] { 1, 2, 3 })));
+  }
+
+  @Test
+  public void shouldCopyBeansAndCollections() {
+    CacheSerializer serializer = new CompactSerializer();
+    List<Author> authors = new ArrayList<Author>();
+    authors.add(new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS));
+    authors.add(new Author(102, "sally", "********", "sally@ibatis.apache.org", null, Section.VIDEOS));
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    map.put("authors", authors);
+    map.put("names", new TreeSet<String>(Arrays.asList("b", "a")));
+    map.put("array", new String[] { "x", null });
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(map));
+    assertEquals(LinkedHashMap.class, copy.getClass());
+    assertEquals(authors, copy.get("authors"));
+    assertNotSame(authors.get(0), ((List<?>) copy.get("authors")).get(0));
+    assertEquals(new TreeSet<String>(Arrays.asList("a", "b")), copy.get("names"));
+    assertArrayEquals(new String[] { "x", null }, (String[]) copy.get("array"));
+  }
+
+  @Test
+  public void shouldPreserveSharedReferencesAndCycles() {
+    CacheSerializer serializer = new CompactSerializer();
+    Node parent = new Node();
+    parent.name = "parent";
+    Node child = new Node();
+    child.name = "child";
+    child.parent = parent;
+    parent.children.add(child);
+    parent.children.add(child);
+    Node copy = (Node) serializer.deserialize(serializer.serialize(parent));
+    assertEquals("parent", copy.name);
+    assertEquals(2, copy.children.size());
+    assertSame(copy.children.get(0), copy.children.get(1));
+    assertSame(copy, copy.children.get(0).parent);
+    assertEquals("child", copy.children.get(0).name);
+  }
+
+  @Test
+  public void shouldFallBackToJavaSerializationForCustomizedClasses() {
+    CacheSerializer serializer = new CompactSerializer();
+    CustomSerialized value = new CustomSerialized();
+    value.value = "custom";
+    CustomSerialized copy = (CustomSerialized) serializer.deserialize(serializer.serialize(value));
+    assertEquals("custom", copy.value);
+    assertTrue(copy.readByJava);
+  }
+
+  @Test
+  public void shouldWriteRegisteredClassesWithoutTheirNames() {
+    CompactSerializer registered = new CompactSerializer();
+    Properties properties = new Properties();
+    properties.setProperty("registeredClasses", Author.class.getName() + ", " + Section.class.getName());
+    registered.setProperties(properties);
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    byte[] registeredBytes = registered.serialize(author);
+    byte[] unregisteredBytes = new CompactSerializer().serialize(author);
+    assertTrue(registeredBytes.length < unregisteredBytes.length);
+    assertTrue(unregisteredBytes.length < new JavaSerializer().serialize(author).length);
+    assertEquals(author, registered.deserialize(registeredBytes));
+  }
+
+  @Test
+  public void shouldCompressLargeValues() {
+    CacheSerializer serializer = new CompressingSerializer(new CompactSerializer());
+    serializer.setProperties(new Properties());
+    List<String> small = Arrays.asList("a", "b");
+    List<String> large = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      large.add("the same string over and over");
+    }
+    assertEquals(small, serializer.deserialize(serializer.serialize(small)));
+    byte[] bytes = serializer.serialize(large);
+    assertTrue(bytes.length < new CompactSerializer().serialize(large).length / 10);
+    assertEquals(large, serializer.deserialize(bytes));
+  }
+
+  @Test
+  public void shouldReturnCopiesFromSerializedCache() {
+    Cache cache = new CacheBuilder("default").readWrite(true).serializer(CompactSerializer.class).compress(true).build();
+    Map<String, Object> value = new HashMap<String, Object>();
+    value.put("id", 1);
+    cache.putObject("key", value);
+    Object copy = cache.getObject("key");
+    assertEquals(value, copy);
+    assertNotSame(value, copy);
+  }
+
+  @Test
+  public void shouldUseJavaSerializationByDefault() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    assertTrue(cache.getSerializer() instanceof JavaSerializer);
+  }
+
+  static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    String name;
+    Node parent;
+    List<Node> children = new ArrayList<Node>();
+  }
+
+  static class CustomSerialized implements Serializable {
+    private static final long serialVersionUID = 1L;
+    String value;
+    transient boolean readByJava;
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      readByJava = true;
+    }
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class CacheTagRegistryTest {
+
+  @Test
+  public void shouldDiscardValuesWhoseTagsWereInvalidated() {
+    CacheTagRegistry registry = new CacheTagRegistry();
+    String[] userTags = new String[] { "users" };
+    String[] orderTags = new String[] { "orders", "users" };
+    Object users = registry.tag(userTags, registry.getVersions(userTags), "users");
+    Object orders = registry.tag(orderTags, registry.getVersions(orderTags), "orders");
+    assertEquals("users", registry.untag(users));
+    assertEquals("orders", registry.untag(orders));
+
+    registry.invalidate(Arrays.asList("orders"));
+    assertEquals("users", registry.untag(users));
+    assertNull(registry.untag(orders));
+
+    registry.invalidate(Arrays.asList("users"));
+    assertNull(registry.untag(users));
+  }
+
+  @Test
+  public void shouldPassUntaggedValuesThrough() {
+    CacheTagRegistry registry = new CacheTagRegistry();
+    assertEquals("value", registry.untag("value"));
+    assertNull(registry.untag(null));
+    assertNull(registry.tag(new String[] { "users" }, new long[] { 0 }, null));
+  }
+
+  @Test
+  public void shouldSurviveSerialization() {
+    CacheTagRegistry registry = new CacheTagRegistry();
+    String[] tags = new String[] { "users" };
+    Cache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.putObject("key", registry.tag(tags, registry.getVersions(tags), "value"));
+    assertEquals("value", registry.untag(cache.getObject("key")));
+    registry.invalidate(Arrays.asList(tags));
+    assertNull(registry.untag(cache.getObject("key")));
+  }
+
+}
@@ -0,0 +1,33 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ManualTicker implements Ticker {
+
+  private final AtomicLong now = new AtomicLong(1000000);
+
+  @Override
+  public long currentTimeMillis() {
+    return now.get();
+  }
+
+  public void advance(long millis) {
+    now.addAndGet(millis);
+  }
+
+}
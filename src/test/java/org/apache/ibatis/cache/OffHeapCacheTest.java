@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldReturnCopiesOfTheCachedObjects() {
+    Cache cache = new OffHeapCache("default");
+    List<String> value = new ArrayList<String>();
+    value.add("a");
+    cache.putObject(0, value);
+    value.add("b");
+    Object cached = cache.getObject(0);
+    assertEquals(1, ((List<?>) cached).size());
+    assertNotSame(cached, cache.getObject(0));
+  }
+
+  @Test
+  public void shouldStayWithinTheByteBudget() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setMaxBytes(4 * 1024);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, "value" + i);
+      assertEquals("value" + i, cache.getObject(i));
+    }
+    assertTrue(cache.getAllocatedBytes() <= 4 * 1024);
+    assertTrue(cache.getSize() < 1000);
+    assertNull(cache.getObject(0));
+    assertEquals("value999", cache.getObject(999));
+  }
+
+  @Test
+  public void shouldNotCacheValuesLargerThanASlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(128);
+    cache.putObject(0, "small");
+    cache.putObject(0, new byte[1024]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldCacheNulls() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, null);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotStoreValuesSerializedBeforeTheSerializerChanged() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSerializer(SwappingSerializer.class.getName());
+    SwappingSerializer.cache = cache;
+    try {
+      cache.putObject(0, 0);
+    } finally {
+      SwappingSerializer.cache = null;
+    }
+    assertEquals(JavaSerializer.class, cache.getSerializer().getClass());
+    assertNull(cache.getObject(0));
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+  }
+
+  /*
+   * Switches the serializer of the cache while a value is being serialized, as a concurrent setSerializer would.
+   */
+  public static class SwappingSerializer extends JavaSerializer {
+    private static OffHeapCache cache;
+
+    @Override
+    public byte[] serialize(Object value) {
+      byte[] bytes = super.serialize(value);
+      if (cache != null) {
+        cache.setSerializer(JavaSerializer.class.getName());
+      }
+      return bytes;
+    }
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableObjects() {
+    new OffHeapCache("default").putObject(0, new Object());
+  }
+
+}
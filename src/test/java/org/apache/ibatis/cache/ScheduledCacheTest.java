@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache;
 
+import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
@@ -24,16 +25,20 @@ import org.junit.Test;
 public class ScheduledCacheTest {
 
   @Test
-  public void shouldDemonstrateHowAllObjectsAreFlushedAfterBasedOnTime() throws Exception {
+  public void shouldDemonstrateHowAllObjectsAreFlushedAfterBasedOnTime() {
+    ManualTicker ticker = new ManualTicker();
     Cache cache = new PerpetualCache("DefaultCache");
     cache = new ScheduledCache(cache);
+    ((ScheduledCache) cache).setTicker(ticker);
     ((ScheduledCache) cache).setClearInterval(2500);
     cache = new LoggingCache(cache);
     for (int i = 0; i < 100; i++) {
       cache.putObject(i, i);
       assertEquals(i, cache.getObject(i));
     }
-    Thread.sleep(5000);
+    ticker.advance(2500);
+    assertEquals(100, cache.getSize());
+    ticker.advance(1);
     assertEquals(0, cache.getSize());
   }
 
@@ -65,4 +70,71 @@ public class ScheduledCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldExpireEachEntryAfterItsTimeToLive() {
+    ManualTicker ticker = new ManualTicker();
+    ScheduledCache scheduledCache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    scheduledCache.setTicker(ticker);
+    scheduledCache.setClearInterval(Long.MAX_VALUE);
+    scheduledCache.setTimeToLive(200);
+    scheduledCache.setJitterRatio(0);
+    Cache cache = new LoggingCache(scheduledCache);
+    cache.putObject(0, 0);
+    ticker.advance(100);
+    cache.putObject(1, 1);
+    ticker.advance(99);
+    assertEquals(0, cache.getObject(0));
+    ticker.advance(1);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldSpreadExpiryWithJitter() {
+    ManualTicker ticker = new ManualTicker();
+    ScheduledCache scheduledCache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    scheduledCache.setTicker(ticker);
+    scheduledCache.setClearInterval(Long.MAX_VALUE);
+    scheduledCache.setTimeToLive(400);
+    scheduledCache.setJitterRatio(0.5);
+    for (int i = 0; i < 200; i++) {
+      scheduledCache.putObject(i, i);
+    }
+    ticker.advance(400);
+    int alive = 0;
+    for (int i = 0; i < 200; i++) {
+      if (scheduledCache.getObject(i) != null) {
+        alive++;
+      }
+    }
+    assertTrue("some entries should outlive the others", alive > 0 && alive < 200);
+  }
+
+  @Test
+  public void shouldLetOnlyOneCallerRefreshAStaleEntry() {
+    ManualTicker ticker = new ManualTicker();
+    ScheduledCache scheduledCache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    scheduledCache.setTicker(ticker);
+    scheduledCache.setClearInterval(Long.MAX_VALUE);
+    scheduledCache.setTimeToLive(1000);
+    scheduledCache.setJitterRatio(0);
+    scheduledCache.setRefreshAhead(true);
+    scheduledCache.setRefreshAheadRatio(0.1);
+    RefreshAheadCache cache = new BlockingCache(new LoggingCache(scheduledCache));
+    cache.putObject(0, "old");
+    ticker.advance(99);
+    assertFalse(cache.claimRefresh(0));
+    ticker.advance(1);
+    assertEquals("old", cache.getObject(0));
+    assertTrue(cache.claimRefresh(0));
+    assertFalse(cache.claimRefresh(0));
+    assertEquals("old", cache.getObject(0));
+    // the reload is put without a lock on the key
+    cache.putObject(0, "new");
+    assertEquals("new", cache.getObject(0));
+    assertFalse(cache.claimRefresh(0));
+    assertFalse(cache.claimRefresh(1));
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class StatsCounterTest {
+
+  @Test
+  public void shouldNotLoseCountsUnderConcurrency() throws Exception {
+    final Cache cache = new CacheBuilder("default").build();
+    cache.putObject("key", "value");
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            cache.getObject(i % 2 == 0 ? "key" : "missing");
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    CacheStats stats = CacheStats.of(cache);
+    assertEquals(40000, stats.getHitCount());
+    assertEquals(40000, stats.getMissCount());
+    assertEquals(0.5, stats.getHitRatio(), 0);
+    assertEquals(1, stats.getPutCount());
+  }
+
+  @Test
+  public void shouldRecordEvictions() {
+    List<Class<? extends Cache>> evictions = Arrays.<Class<? extends Cache>>asList(FifoCache.class, TinyLfuCache.class);
+    for (Class<? extends Cache> eviction : evictions) {
+      Cache cache = new CacheBuilder("default").addDecorator(eviction).size(10).build();
+      for (int i = 0; i < 30; i++) {
+        cache.putObject(i, i);
+      }
+      CacheStats stats = CacheStats.of(cache);
+      assertEquals(30, stats.getPutCount());
+      assertEquals(20, stats.getEvictionCount());
+      assertEquals(10, stats.getSize());
+      assertEquals(-1, stats.getEstimatedBytes());
+    }
+  }
+
+  @Test
+  public void shouldEstimateBytesOfSerializedValues() {
+    Cache cache = new CacheBuilder("default").readWrite(true).build();
+    cache.putObject("key", "value");
+    assertTrue(CacheStats.of(cache).getEstimatedBytes() > 0);
+  }
+
+  @Test
+  public void shouldResetCounts() {
+    StatsCounter counter = new StatsCounter();
+    counter.recordHit();
+    counter.recordLoad(100);
+    assertEquals(100.0, counter.snapshot("default", 0).getAverageLoadPenalty(), 0);
+    counter.reset();
+    assertEquals(0, counter.snapshot("default", 0).getHitCount());
+    assertEquals(0, counter.snapshot("default", 0).getLoadCount());
+  }
+
+}
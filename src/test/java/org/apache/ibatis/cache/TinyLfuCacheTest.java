@@ -0,0 +1,142 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+  @Test
+  public void shouldNeverGrowBeyondMaximumSize() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      cache.getObject(i % 10);
+    }
+    assertEquals(100, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepFrequentlyUsedItemsDuringScan() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 50; i++) {
+      cache.putObject("hot" + i, i);
+    }
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        assertNotNull(cache.getObject("hot" + i));
+      }
+    }
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject("cold" + i, i);
+    }
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, cache.getObject("hot" + i));
+    }
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldAcceptNullKeysAndValues() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.putObject(null, "null key");
+    cache.putObject("null value", null);
+    assertEquals("null key", cache.getObject(null));
+    assertNull(cache.getObject("null value"));
+    assertEquals(2, cache.getSize());
+    cache.removeObject(null);
+    assertNull(cache.getObject(null));
+  }
+
+  @Test
+  public void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    final TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(200);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      final int seed = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 20000; i++) {
+              Integer key = (i * 31 + seed * 7) % 1000;
+              if (cache.getObject(key) == null) {
+                cache.putObject(key, key);
+              }
+            }
+          } catch (Throwable e) {
+            failure.set(e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+    assertEquals(200, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotBeWrappedInSynchronizedCache() {
+    Cache cache = new CacheBuilder("default").addDecorator(TinyLfuCache.class).size(10).build();
+    assertTrue(cache instanceof LoggingCache);
+    for (int i = 0; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+  }
+
+}
@@ -0,0 +1,165 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.Test;
+
+public class PoolHousekeeperTest extends BaseDataTest {
+
+  @Test
+  public void shouldPrewarmMinimumIdleConnections() throws Exception {
+    assertPrewarmsMinimumIdleConnections(new PooledDataSource());
+    assertPrewarmsMinimumIdleConnections(new ConcurrentPooledDataSource());
+  }
+
+  @Test
+  public void shouldCloseConnectionsOlderThanMaximumLifetime() throws Exception {
+    assertClosesExpiredConnections(new PooledDataSource());
+    assertClosesExpiredConnections(new ConcurrentPooledDataSource());
+  }
+
+  @Test
+  public void shouldEvictBadIdleConnections() throws Exception {
+    assertEvictsBadIdleConnections(new PooledDataSource());
+    assertEvictsBadIdleConnections(new ConcurrentPooledDataSource());
+  }
+
+  private void assertPrewarmsMinimumIdleConnections(PooledDataSource ds) throws Exception {
+    configure(ds);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingInterval(10);
+      waitForHousekeeping();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      Connection c = ds.getConnection();
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      c.close();
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+    }
+  }
+
+  private void assertClosesExpiredConnections(PooledDataSource ds) throws Exception {
+    configure(ds);
+    try {
+      ds.setPoolMaximumLifetime(10);
+      Connection c = ds.getConnection();
+      Thread.sleep(50);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void assertEvictsBadIdleConnections(PooledDataSource ds) throws Exception {
+    configure(ds);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      realConnection.close();
+      //只要比poolPingConnectionsNotUsedFor(0)长就行
+      Thread.sleep(5);
+      ds.housekeep();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldStopHousekeepingOnForceCloseAllUntilNextUse() throws Exception {
+    assertStopsHousekeepingUntilNextUse(new PooledDataSource());
+    assertStopsHousekeepingUntilNextUse(new ConcurrentPooledDataSource());
+  }
+
+  private void assertStopsHousekeepingUntilNextUse(PooledDataSource ds) throws Exception {
+    configure(ds);
+    try {
+      ds.setPoolHousekeepingInterval(10);
+      //改其他配置不会停掉后台线程
+      ds.setPoolMinimumIdleConnections(2);
+      ds.forceCloseAll();
+      assertEquals(10, ds.getPoolHousekeepingInterval());
+      //停掉以后不会再补空闲连接了
+      waitForHousekeeping();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      //再用连接池时按原来的间隔重新启动
+      ds.getConnection().close();
+      waitForHousekeeping();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+    }
+  }
+
+  @Test
+  public void shouldNotReturnConnectionsCheckedBeforeAReconfiguration() throws Exception {
+    assertDiscardsConnectionsCheckedBeforeAReconfiguration(new PooledDataSource() {
+      @Override
+      protected boolean validateIdleConnection(PooledConnection conn) {
+        //检查的时候有人改了配置
+        setUsername(getUsername());
+        return super.validateIdleConnection(conn);
+      }
+    });
+  }
+
+  private void assertDiscardsConnectionsCheckedBeforeAReconfiguration(PooledDataSource ds) throws Exception {
+    configure(ds);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      Thread.sleep(5);
+      ds.housekeep();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertTrue(realConnection.isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void configure(PooledDataSource ds) throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+  }
+
+  private void waitForHousekeeping() throws InterruptedException {
+    Thread.sleep(200);
+  }
+
+}
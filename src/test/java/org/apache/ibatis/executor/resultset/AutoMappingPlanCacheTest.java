@@ -0,0 +1,150 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.submitted.automapping.User;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AutoMappingPlanCacheTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.automapping.Mapper";
+
+  private SqlSessionFactory sqlSessionFactory;
+  private Configuration configuration;
+  private ResultMap resultMap;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/automapping/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    configuration = sqlSessionFactory.getConfiguration();
+    configuration.setAutoMappingBehavior(AutoMappingBehavior.PARTIAL);
+    resultMap = configuration.getResultMap(NAMESPACE + ".result");
+
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/automapping/CreateDB.sql");
+      ScriptRunner runner = new ScriptRunner(session.getConnection());
+      runner.setLogWriter(null);
+      runner.runScript(reader);
+      reader.close();
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldReusePlanForSameResultMapAndColumns() throws Exception {
+    User user = selectUser("getUser");
+    assertEquals("User1", user.getName());
+    AutoMappingPlan plan = getPlan("select * from users where id = 1");
+    assertNotNull(plan);
+    assertTrue(plan.isSupported());
+    int size = configuration.getAutoMappingPlanCache().getSize();
+
+    selectUser("getUser");
+    assertSame(plan, getPlan("select * from users where id = 1"));
+    assertEquals(size, configuration.getAutoMappingPlanCache().getSize());
+  }
+
+  @Test
+  public void shouldNotReusePlanForOtherColumns() throws Exception {
+    selectUser("getUser");
+    assertNull(getPlan("select name from users where id = 1"));
+    AutoMappingPlan allColumns = getPlan("select * from users where id = 1");
+    int size = configuration.getAutoMappingPlanCache().getSize();
+
+    User user = selectUser("getUserName");
+    assertNull(user.getId());
+    assertEquals("User1", user.getName());
+    AutoMappingPlan nameOnly = getPlan("select name from users where id = 1");
+    assertNotNull(nameOnly);
+    assertNotSame(allColumns, nameOnly);
+    assertEquals(1, nameOnly.size());
+    assertEquals(size + 1, configuration.getAutoMappingPlanCache().getSize());
+  }
+
+  @Test
+  public void shouldMapRowsWithCachedPlan() throws Exception {
+    //只映射ID的计划，用上了的话name就是null
+    Reflector reflector = Reflector.forClass(User.class);
+    AutoMappingPlan idOnly = new AutoMappingPlan(User.class, AutoMappingPlan.BEAN, new int[] { 1 }, new String[] { "id" },
+        new TypeHandler<?>[] { new IntegerTypeHandler() }, new Invoker[] { reflector.getSetInvoker("id") }, new boolean[] { false });
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      Statement statement = session.getConnection().createStatement();
+      try {
+        ResultSet rs = statement.executeQuery("select * from users where id = 1");
+        configuration.getAutoMappingPlanCache().put(new ResultSetWrapper(rs, configuration), resultMap, null, User.class, idOnly);
+      } finally {
+        statement.close();
+      }
+    } finally {
+      session.close();
+    }
+
+    User user = selectUser("getUser");
+    assertEquals(Integer.valueOf(1), user.getId());
+    assertNull(user.getName());
+  }
+
+  private User selectUser(String statement) {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      return session.selectOne(NAMESPACE + "." + statement, 1);
+    } finally {
+      session.close();
+    }
+  }
+
+  private AutoMappingPlan getPlan(String sql) throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      Connection connection = session.getConnection();
+      Statement statement = connection.createStatement();
+      try {
+        ResultSet rs = statement.executeQuery(sql);
+        return configuration.getAutoMappingPlanCache().get(new ResultSetWrapper(rs, configuration), resultMap, null, User.class);
+      } finally {
+        statement.close();
+      }
+    } finally {
+      session.close();
+    }
+  }
+
+}
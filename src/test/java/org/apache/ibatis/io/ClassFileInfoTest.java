@@ -0,0 +1,76 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ibatis.io.resolverindex.Animal;
+import org.apache.ibatis.io.resolverindex.Dog;
+import org.apache.ibatis.io.resolverindex.Pet;
+import org.apache.ibatis.io.resolverindex.Puppy;
+import org.junit.Test;
+
+public class ClassFileInfoTest {
+
+  @Test
+  public void shouldReadClassWithoutLoadingIt() throws Exception {
+    ClassFileInfo classFile = read(Dog.class);
+    assertEquals(Dog.class.getName(), classFile.getClassName());
+    assertEquals("java.lang.Object", classFile.getSuperClassName());
+    assertEquals(Arrays.asList(Animal.class.getName(), Serializable.class.getName()), classFile.getInterfaceNames());
+    assertEquals(Collections.singletonList(Pet.class.getName()), classFile.getAnnotationNames());
+    assertFalse(classFile.isInterface());
+    assertFalse(classFile.isAbstract());
+  }
+
+  @Test
+  public void shouldReadSuperClassAndMissingAnnotations() throws Exception {
+    ClassFileInfo classFile = read(Puppy.class);
+    assertEquals(Dog.class.getName(), classFile.getSuperClassName());
+    assertTrue(classFile.getInterfaceNames().isEmpty());
+    assertTrue(classFile.getAnnotationNames().isEmpty());
+  }
+
+  @Test
+  public void shouldReadInterface() throws Exception {
+    ClassFileInfo classFile = read(Animal.class);
+    assertTrue(classFile.isInterface());
+    assertTrue(classFile.isAbstract());
+  }
+
+  @Test
+  public void shouldReadObject() throws Exception {
+    ClassFileInfo classFile = read(Object.class);
+    assertEquals("java.lang.Object", classFile.getClassName());
+    assertNull(classFile.getSuperClassName());
+  }
+
+  @Test
+  public void shouldReadInnerClass() throws Exception {
+    ClassFileInfo classFile = read(ResolverUtil.IsA.class);
+    assertEquals(ResolverUtil.IsA.class.getName(), classFile.getClassName());
+    assertEquals(Collections.singletonList(ResolverUtil.ClassFileTest.class.getName()), classFile.getInterfaceNames());
+  }
+
+  private ClassFileInfo read(Class<?> type) throws Exception {
+    return ClassFileInfo.read(ClassLoader.getSystemResourceAsStream(type.getName().replace('.', '/') + ".class"));
+  }
+
+}
@@ -0,0 +1,161 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ibatis.io.resolverindex.Animal;
+import org.apache.ibatis.io.resolverindex.Cat;
+import org.apache.ibatis.io.resolverindex.Dog;
+import org.apache.ibatis.io.resolverindex.Pet;
+import org.apache.ibatis.io.resolverindex.Puppy;
+import org.apache.ibatis.io.resolverindex.Rock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolverIndexTest {
+
+  private static final String PACKAGE = "org.apache.ibatis.io.resolverindex";
+
+  private File classesDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    classesDirectory = File.createTempFile("resolver-index", "");
+    classesDirectory.delete();
+    File packageDirectory = new File(classesDirectory, PACKAGE.replace('.', '/'));
+    packageDirectory.mkdirs();
+    for (Class<?> type : new Class<?>[] { Animal.class, Cat.class, Dog.class, Pet.class, Puppy.class, Rock.class }) {
+      copyClassFile(type, new File(packageDirectory, type.getSimpleName() + ".class"));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    delete(classesDirectory);
+  }
+
+  @Test
+  public void shouldWriteAndReadIndex() throws Exception {
+    ResolverIndex.write(classesDirectory, PACKAGE);
+    URLClassLoader loader = new URLClassLoader(new URL[] { classesDirectory.toURI().toURL() }, null);
+    List<String> classNames = ResolverIndex.read(loader, PACKAGE);
+    assertEquals(Arrays.asList(Animal.class.getName(), Cat.class.getName(), Dog.class.getName(), Pet.class.getName(),
+        Puppy.class.getName(), Rock.class.getName()), classNames);
+    assertNull(ResolverIndex.read(loader, "org.apache.ibatis.io"));
+  }
+
+  @Test
+  public void shouldFindClassesListedInIndexOnly() throws Exception {
+    writeIndex(Dog.class.getName(), "# comment", "", Puppy.class.getName());
+    ResolverUtil<Animal> resolverUtil = new ResolverUtil<Animal>();
+    resolverUtil.setClassLoader(new URLClassLoader(new URL[] { classesDirectory.toURI().toURL() }, getClass().getClassLoader()));
+    resolverUtil.findImplementations(Animal.class, PACKAGE);
+    assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>> asList(Dog.class, Puppy.class)), resolverUtil.getClasses());
+  }
+
+  @Test
+  public void shouldNotLoadClassesThatAreNotAnnotated() throws Exception {
+    ResolverIndex.write(classesDirectory, PACKAGE);
+    RecordingClassLoader loader = new RecordingClassLoader(classesDirectory);
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<Object>();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.findAnnotated(Pet.class, PACKAGE);
+    assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>> asList(Dog.class)), resolverUtil.getClasses());
+    assertEquals(new HashSet<String>(Arrays.asList(Dog.class.getName())), loader.loadedClassNames);
+  }
+
+  @Test
+  public void shouldNotLoadClassesThatAreNotImplementations() throws Exception {
+    ResolverIndex.write(classesDirectory, PACKAGE);
+    RecordingClassLoader loader = new RecordingClassLoader(classesDirectory);
+    ResolverUtil<Animal> resolverUtil = new ResolverUtil<Animal>();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.findImplementations(Animal.class, PACKAGE);
+    assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>> asList(Animal.class, Cat.class, Dog.class, Puppy.class)), resolverUtil.getClasses());
+    assertFalse(loader.loadedClassNames.contains(Rock.class.getName()));
+    assertFalse(loader.loadedClassNames.contains(Pet.class.getName()));
+  }
+
+  private void writeIndex(String... lines) throws Exception {
+    File indexFile = new File(classesDirectory, ResolverIndex.INDEX_LOCATION + PACKAGE);
+    indexFile.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(indexFile);
+    try {
+      for (String line : lines) {
+        out.write((line + "\n").getBytes("UTF-8"));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private void copyClassFile(Class<?> type, File file) throws Exception {
+    InputStream in = getClass().getClassLoader().getResourceAsStream(type.getName().replace('.', '/') + ".class");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  private void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  //记录加载了哪些类，类本身还是交给父ClassLoader加载
+  private static class RecordingClassLoader extends URLClassLoader {
+
+    private final Set<String> loadedClassNames = new HashSet<String>();
+
+    RecordingClassLoader(File classesDirectory) throws Exception {
+      super(new URL[] { classesDirectory.toURI().toURL() }, ResolverIndexTest.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith(PACKAGE)) {
+        loadedClassNames.add(name);
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
+
+}
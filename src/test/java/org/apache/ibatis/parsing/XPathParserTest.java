@@ -16,11 +16,20 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
 
 import org.apache.ibatis.io.Resources;
 import org.junit.Test;
+import org.w3c.dom.NodeList;
 
 public class XPathParserTest {
 
@@ -43,4 +52,33 @@ public class XPathParserTest {
     assertEquals("employee[${id_var}]_height", node.getValueBasedIdentifier());
   }
 
+  @Test
+  public void shouldSelectSimplePathsLikeXPath() throws Exception {
+    String resource = "resources/nodelet_test.xml";
+    InputStream inputStream = Resources.getResourceAsStream(resource);
+    XPathParser parser = new XPathParser(inputStream, false, null, null);
+    XNode employee = parser.evalNode("/employee");
+    XPath xpath = XPathFactory.newInstance().newXPath();
+    String[] expressions = { "birth_date", "birth_date/month", "height|weight|blah", "missing", "/employee/birth_date/day" };
+    for (String expression : expressions) {
+      assertNotNull(expression, SimpleXPath.compile(expression));
+      NodeList expected = (NodeList) xpath.evaluate(expression, employee.getNode(), XPathConstants.NODESET);
+      List<XNode> actual = employee.evalNodes(expression);
+      assertEquals(expression, expected.getLength(), actual.size());
+      for (int i = 0; i < expected.getLength(); i++) {
+        assertSame(expression, expected.item(i), actual.get(i).getNode());
+      }
+      XNode first = employee.evalNode(expression);
+      assertSame(expression, expected.getLength() == 0 ? null : expected.item(0), first == null ? null : first.getNode());
+    }
+  }
+
+  @Test
+  public void shouldLeaveOtherExpressionsToXPath() throws Exception {
+    String[] expressions = { "*", "@id", "/employee/*", "//day", "birth_date/..", "height[1]", "/a|/b", "a/b|c", "", "ns:a" };
+    for (String expression : expressions) {
+      assertNull(expression, SimpleXPath.compile(expression));
+    }
+  }
+
 }
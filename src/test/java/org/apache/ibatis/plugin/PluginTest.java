@@ -17,6 +17,8 @@ package org.apache.ibatis.plugin;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 import java.util.HashMap;
@@ -39,6 +41,46 @@ public class PluginTest {
     assertFalse("Always".equals(map.toString()));
   }
 
+  @Test
+  public void shouldReuseProxyClass() {
+    Map first = (Map) new AlwaysMapPlugin().plugin(new HashMap());
+    Map second = (Map) new AlwaysMapPlugin().plugin(new HashMap());
+    assertSame(first.getClass(), second.getClass());
+    assertEquals("Always", second.get("Anything"));
+  }
+
+  @Test
+  public void shouldNotWrapTargetsWithoutInterceptedInterfaces() {
+    Object target = new Object();
+    assertSame(target, new AlwaysMapPlugin().plugin(target));
+    assertSame(target, new AlwaysMapPlugin().plugin(target));
+  }
+
+  @Test
+  public void shouldStillRequireInterceptsAnnotation() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        Plugin.wrap(new HashMap(), new NotAnnotatedPlugin());
+        assertTrue(false);
+      } catch (PluginException e) {
+        assertTrue(e.getMessage().contains("No @Intercepts annotation"));
+      }
+    }
+  }
+
+  public static class NotAnnotatedPlugin implements Interceptor {
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    public void setProperties(Properties properties) {
+    }
+  }
+
   @Intercepts({
       @Signature(type = Map.class, method = "get", args = {Object.class})})
   public static class AlwaysMapPlugin implements Interceptor {
@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.invoker.AccessorInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.wrapper.MapWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GeneratedAccessorTest {
+
+  @Before
+  public void enableGeneratedAccessors() {
+    Reflector.setGeneratedAccessorsEnabled(true);
+  }
+
+  @After
+  public void disableGeneratedAccessors() {
+    Reflector.setGeneratedAccessorsEnabled(false);
+  }
+
+  @Test
+  public void shouldUseGeneratedAccessorsForPublicProperties() {
+    Reflector reflector = Reflector.forClass(Author.class);
+    assertTrue(reflector.getGetInvoker("username") instanceof AccessorInvoker);
+    assertTrue(reflector.getSetInvoker("id") instanceof AccessorInvoker);
+    assertEquals(int.class, reflector.getSetInvoker("id").getType());
+  }
+
+  @Test
+  public void shouldGetAndSetThroughGeneratedAccessors() {
+    Author author = new Author();
+    MetaObject meta = SystemMetaObject.forObject(author);
+    meta.setValue("id", 101);
+    meta.setValue("username", "cbegin");
+    meta.setValue("favouriteSection", Section.NEWS);
+    assertEquals(101, author.getId());
+    assertEquals("cbegin", author.getUsername());
+    assertEquals(Integer.valueOf(101), meta.getValue("id"));
+    assertEquals(Section.NEWS, meta.getValue("favouriteSection"));
+    meta.setValue("username", null);
+    assertNull(meta.getValue("username"));
+  }
+
+  @Test
+  public void shouldWrapExceptionsLikeReflection() {
+    MetaObject meta = SystemMetaObject.forObject(new Failing());
+    try {
+      meta.setValue("value", "x");
+      fail();
+    } catch (ReflectionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void shouldKeepReflectionForNonPublicClasses() {
+    Reflector reflector = Reflector.forClass(Hidden.class);
+    assertTrue(reflector.getGetInvoker("value") instanceof MethodInvoker);
+  }
+
+  @Test
+  public void shouldWrapMapsWithMapWrapper() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    MetaObject meta = SystemMetaObject.forObject(map);
+    assertTrue(meta.getObjectWrapper() instanceof MapWrapper);
+    meta.setValue("key", "value");
+    assertEquals("value", map.get("key"));
+  }
+
+  public static class Failing {
+    public String getValue() {
+      return null;
+    }
+
+    public void setValue(String value) {
+      throw new IllegalStateException("rejected " + value);
+    }
+  }
+
+  static class Hidden {
+    public String getValue() {
+      return null;
+    }
+  }
+
+}
@@ -32,6 +32,9 @@ import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.domain.misc.CustomBeanWrapper;
 import org.apache.ibatis.domain.misc.CustomBeanWrapperFactory;
 import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
+import org.apache.ibatis.reflection.wrapper.MapWrapper;
 import org.junit.Test;
 
 public class MetaObjectTest {
@@ -280,6 +283,30 @@ public class MetaObjectTest {
     assertFalse(meta.getObjectWrapper().getClass().equals(CustomBeanWrapper.class));
   }
 
+  @Test
+  public void shouldPickTheWrapperMatchingTheObject() {
+    assertEquals(MapWrapper.class, SystemMetaObject.forObject(new HashMap<String, Object>()).getObjectWrapper().getClass());
+    assertEquals(CollectionWrapper.class, SystemMetaObject.forObject(new ArrayList<Object>()).getObjectWrapper().getClass());
+    assertEquals(BeanWrapper.class, SystemMetaObject.forObject(new Author()).getObjectWrapper().getClass());
+  }
+
+  @Test
+  public void shouldKeepTheWrapperOfTheObjectWrapperFactory() {
+    MetaObject meta = MetaObject.forObject(new Author(), SystemMetaObject.DEFAULT_OBJECT_FACTORY, new CustomBeanWrapperFactory());
+    meta.setValue("username", "cbegin");
+    assertEquals(CustomBeanWrapper.class, meta.getObjectWrapper().getClass());
+    assertEquals("cbegin", meta.getValue("username"));
+  }
+
+  @Test
+  public void shouldReadMapsWithoutLookingForGetters() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("empty", "not the isEmpty() getter");
+    MetaObject meta = SystemMetaObject.forObject(map);
+    assertEquals("not the isEmpty() getter", meta.getValue("empty"));
+    assertEquals(Object.class, meta.getGetterType("missing"));
+  }
+
   @Test 
   public void shouldMethodHasGetterReturnTrueWhenListElementSet() {
     List<Object> param1 = new ArrayList<Object>();
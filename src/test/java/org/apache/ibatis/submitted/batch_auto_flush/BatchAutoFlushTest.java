@@ -0,0 +1,175 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchAutoFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldFlushEveryBatchFlushSizeStatements() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 7; i++) {
+        mapper.insertUser(newUser(i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      Assert.assertEquals(3, results.size());
+      Assert.assertEquals(3, results.get(0).getUpdateCounts().length);
+      Assert.assertEquals(3, results.get(1).getUpdateCounts().length);
+      Assert.assertEquals(1, results.get(2).getUpdateCounts().length);
+      Assert.assertTrue(results.get(0).getParameterObjects().isEmpty());
+      Assert.assertEquals(7, mapper.countUsers());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenTheEstimatedSizeIsReached() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(0);
+    sqlSessionFactory.getConfiguration().setBatchFlushBytes(1);
+    sqlSessionFactory.getConfiguration().setBatchRetainParameterObjects(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(newUser(1));
+      mapper.insertUser(newUser(2));
+      List<BatchResult> results = sqlSession.flushStatements();
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals(1, results.get(0).getUpdateCounts().length);
+      Assert.assertEquals(1, results.get(1).getUpdateCounts().length);
+      Assert.assertEquals(2, mapper.countUsers());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepOnlyUpdateCountsOfAutoFlushedResults() {
+    sqlSessionFactory.getConfiguration().setBatchRetainParameterObjects(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertUser(newUser(i));
+      }
+      User user = newUser(4);
+      mapper.insertUser(user);
+      List<BatchResult> results = sqlSession.flushStatements();
+      Assert.assertEquals(2, results.size());
+      //自动flush的结果只留更新条数
+      Assert.assertEquals(3, results.get(0).getUpdateCounts().length);
+      Assert.assertTrue(results.get(0).getParameterObjects().isEmpty());
+      //最后一次flush的结果和以前一样
+      Assert.assertSame(user, results.get(1).getParameterObjects().get(0));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldAccountPendingBytesOnlyWhenFlushingByBytes() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushSize(0);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      MappedStatement ms = configuration.getMappedStatement(Mapper.class.getName() + ".insertUser");
+      BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(sqlSession.getConnection()));
+      executor.update(ms, newUser(1));
+      Assert.assertEquals(1, executor.getPendingCount());
+      Assert.assertEquals(0, executor.getPendingBytes());
+      executor.flushStatements();
+
+      configuration.setBatchFlushBytes(Integer.MAX_VALUE);
+      executor.update(ms, newUser(2));
+      long bytes = executor.getPendingBytes();
+      Assert.assertTrue(bytes > 0);
+      executor.update(ms, newUser(3));
+      Assert.assertEquals(2, executor.getPendingCount());
+      Assert.assertTrue(executor.getPendingBytes() > bytes);
+      executor.flushStatements();
+      Assert.assertEquals(0, executor.getPendingCount());
+      Assert.assertEquals(0, executor.getPendingBytes());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDiscardAutoFlushedResultsOnRollback() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 4; i++) {
+        mapper.insertUser(newUser(i));
+      }
+      sqlSession.rollback(true);
+      Assert.assertEquals(0, mapper.countUsers());
+      Assert.assertTrue(sqlSession.flushStatements().isEmpty());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private User newUser(int id) {
+    User user = new User();
+    user.setId(id);
+    user.setName("User" + id);
+    return user;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_refresh_ahead;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.ManualTicker;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CacheRefreshAheadTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ManualTicker ticker;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_refresh_ahead/mybatis-config.xml");
+    XMLConfigBuilder parser = new XMLConfigBuilder(reader);
+    ticker = new ManualTicker();
+    parser.getConfiguration().setCacheTicker(ticker);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(parser.parse());
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_refresh_ahead/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldServeStaleEntryAndReloadItInTheBackground() throws Exception {
+    ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+    sqlSessionFactory.getConfiguration().setCacheRefreshExecutor(refreshExecutor);
+
+    Assert.assertEquals("User1", getUserName(1));
+    // change the row behind the cache's back
+    rename(1, "Changed");
+    ticker.advance(899);
+    Assert.assertEquals("User1", getUserName(1));
+
+    // past 30% of the time to live: still served, and reloaded once
+    ticker.advance(1);
+    Assert.assertEquals("User1", getUserName(1));
+    refreshExecutor.shutdown();
+    Assert.assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    Assert.assertEquals("Changed", getUserName(1));
+  }
+
+  @Test
+  public void shouldReloadWithTheValuesBoundWhenTheRefreshWasScheduled() throws Exception {
+    ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+    sqlSessionFactory.getConfiguration().setCacheRefreshExecutor(refreshExecutor);
+    final CountDownLatch parameterChanged = new CountDownLatch(1);
+    refreshExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          parameterChanged.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    User example = new User();
+    example.setId(2);
+    Assert.assertEquals("User2", findUserName(example));
+    rename(2, "Changed2");
+    ticker.advance(900);
+    Assert.assertEquals("User2", findUserName(example));
+    // the caller reuses its parameter object before the refresh runs
+    example.setId(3);
+    parameterChanged.countDown();
+    refreshExecutor.shutdown();
+    Assert.assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+    example = new User();
+    example.setId(2);
+    Assert.assertEquals("Changed2", findUserName(example));
+  }
+
+  private void rename(Integer id, String name) throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Connection conn = sqlSession.getConnection();
+      Statement statement = conn.createStatement();
+      statement.executeUpdate("update users set name = '" + name + "' where id = " + id);
+      statement.close();
+      conn.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private String findUserName(User example) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).findUser(example).getName();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private String getUserName(Integer id) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(id).getName();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_stats;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheStatsMBean;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CacheStatsTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_stats/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_stats/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    sqlSessionFactory.getConfiguration().setCacheStatisticsJmxEnabled(false);
+  }
+
+  @Test
+  public void shouldRecordCacheAndLocalCacheStatistics() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    Cache cache = configuration.getCache(Mapper.class.getName());
+    CacheStats before = CacheStats.of(cache);
+    CacheStats localBefore = configuration.getLocalCacheStats();
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int id = 1; id <= 3; id++) {
+        mapper.getUser(id);
+      }
+      // second level cache misses, local cache hit
+      mapper.getUser(3);
+    } finally {
+      sqlSession.close();
+    }
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Assert.assertEquals("User3", sqlSession.getMapper(Mapper.class).getUser(3).getName());
+    } finally {
+      sqlSession.close();
+    }
+
+    CacheStats after = CacheStats.of(cache);
+    Assert.assertEquals(1, after.getHitCount() - before.getHitCount());
+    Assert.assertEquals(4, after.getMissCount() - before.getMissCount());
+    Assert.assertEquals(3, after.getPutCount() - before.getPutCount());
+    Assert.assertEquals(1, after.getEvictionCount() - before.getEvictionCount());
+    Assert.assertEquals(4, after.getLoadCount() - before.getLoadCount());
+    Assert.assertEquals(2, after.getSize());
+    Assert.assertTrue(after.getEstimatedBytes() > 0);
+
+    CacheStats localAfter = configuration.getLocalCacheStats();
+    Assert.assertEquals(1, localAfter.getHitCount() - localBefore.getHitCount());
+    Assert.assertEquals(3, localAfter.getMissCount() - localBefore.getMissCount());
+  }
+
+  @Test
+  public void shouldExposeStatisticsThroughJmx() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Set<ObjectName> names = server.queryNames(new ObjectName("org.apache.ibatis:type=Cache,*"), null);
+    ObjectName name = null;
+    for (ObjectName candidate : names) {
+      if (Mapper.class.getName().equals(ObjectName.unquote(candidate.getKeyProperty("name")))) {
+        name = candidate;
+      }
+    }
+    Assert.assertNotNull(name);
+    Assert.assertEquals(Mapper.class.getName(), server.getAttribute(name, "Id"));
+    Assert.assertNotNull(server.getAttribute(name, "HitRatio"));
+    Assert.assertFalse(server.queryNames(new ObjectName("org.apache.ibatis:type=LocalCache,*"), null).isEmpty());
+  }
+
+  @Test
+  public void shouldNotKeepDiscardedConfigurationsReachable() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName pattern = new ObjectName("org.apache.ibatis:type=Cache,name=" + ObjectName.quote("discarded") + ",*");
+    Configuration configuration = new Configuration();
+    configuration.setCacheStatisticsJmxEnabled(true);
+    configuration.addCache(new CacheBuilder("discarded").build());
+    Assert.assertEquals(1, server.queryNames(pattern, null).size());
+
+    WeakReference<Configuration> reference = new WeakReference<Configuration>(configuration);
+    configuration = null;
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertNull(reference.get());
+    CacheStatsMBean.unregisterCollected();
+    Assert.assertTrue(server.queryNames(pattern, null).isEmpty());
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_tags;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CacheTagsTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_tags/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_tags/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldOnlyDiscardEntriesCarryingTheWrittenTags() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+      ReportMapper reportMapper = sqlSession.getMapper(ReportMapper.class);
+      Assert.assertEquals("User2", userMapper.getUser(2).getName());
+      Assert.assertEquals(2, userMapper.countOrders());
+      Assert.assertEquals("User2", reportMapper.getUserNames().get(1));
+      Assert.assertEquals(2, reportMapper.countUserOrders());
+      Assert.assertEquals(2, reportMapper.countOrders());
+    } finally {
+      sqlSession.close();
+    }
+
+    // add an order behind the cache's back, only entries tagged with "users" will see it
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Connection conn = sqlSession.getConnection();
+      Statement statement = conn.createStatement();
+      statement.executeUpdate("insert into orders (id, user_id) values(3, 3)");
+      statement.close();
+      conn.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+      userMapper.updateUserName(2, "Renamed");
+      // the write is not committed yet but this session must not read the old name from the cache
+      Assert.assertEquals("Renamed", userMapper.getUser(2).getName());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+      ReportMapper reportMapper = sqlSession.getMapper(ReportMapper.class);
+      Assert.assertEquals("Renamed", userMapper.getUser(2).getName());
+      Assert.assertEquals("Renamed", reportMapper.getUserNames().get(1));
+      Assert.assertEquals(3, reportMapper.countUserOrders());
+      // not tagged with "users": still cached, in both namespaces
+      Assert.assertEquals(2, userMapper.countOrders());
+      Assert.assertEquals(2, reportMapper.countOrders());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDiscardUntaggedEntriesOfTheWritingNamespace() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Assert.assertEquals("User4", sqlSession.getMapper(UserMapper.class).getUserName(4));
+    } finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(UserMapper.class).updateUserName(4, "Renamed4");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Assert.assertEquals("Renamed4", sqlSession.getMapper(UserMapper.class).getUserName(4));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
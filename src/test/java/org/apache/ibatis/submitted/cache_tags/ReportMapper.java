@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_tags;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.CacheTags;
+import org.apache.ibatis.annotations.Select;
+
+@CacheNamespace
+public interface ReportMapper {
+
+  @CacheTags("users")
+  @Select("select name from users order by id")
+  List<String> getUserNames();
+
+  @CacheTags({ "orders", "users" })
+  @Select("select count(*) from orders join users on orders.user_id = users.id")
+  int countUserOrders();
+
+  @CacheTags("orders")
+  @Select("select count(*) from orders")
+  int countOrders();
+
+}
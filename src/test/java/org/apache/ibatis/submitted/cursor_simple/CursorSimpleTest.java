@@ -0,0 +1,167 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_simple;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CursorSimpleTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_simple/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_simple/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldIterateOverAllUsers() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getAllUsers();
+      Assert.assertFalse(cursor.isOpen());
+      Assert.assertEquals(-1, cursor.getCurrentIndex());
+
+      int count = 0;
+      for (User user : cursor) {
+        count++;
+        Assert.assertEquals("User" + count, user.getName());
+        Assert.assertEquals(count - 1, cursor.getCurrentIndex());
+      }
+      Assert.assertEquals(5, count);
+      Assert.assertTrue(cursor.isConsumed());
+      Assert.assertFalse(cursor.isOpen());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getUsers(new RowBounds(1, 2));
+      Iterator<User> iterator = cursor.iterator();
+
+      Assert.assertEquals("User2", iterator.next().getName());
+      Assert.assertEquals(1, cursor.getCurrentIndex());
+      Assert.assertEquals("User3", iterator.next().getName());
+      Assert.assertEquals(2, cursor.getCurrentIndex());
+      Assert.assertFalse(iterator.hasNext());
+      Assert.assertTrue(cursor.isConsumed());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldStopAfterClose() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Cursor<User> cursor = sqlSession.selectCursor("org.apache.ibatis.submitted.cursor_simple.Mapper.getAllUsers");
+      Iterator<User> iterator = cursor.iterator();
+      Assert.assertEquals("User1", iterator.next().getName());
+      Assert.assertTrue(cursor.isOpen());
+
+      cursor.close();
+      Assert.assertFalse(cursor.isOpen());
+      Assert.assertFalse(cursor.isConsumed());
+      Assert.assertFalse(iterator.hasNext());
+      try {
+        iterator.next();
+        Assert.fail("Expected NoSuchElementException");
+      } catch (NoSuchElementException e) {
+        // expected
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCloseCursorsWithTheSession() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    Cursor<User> cursor;
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      cursor = mapper.getAllUsers();
+      Assert.assertEquals("User1", cursor.iterator().next().getName());
+    } finally {
+      sqlSession.close();
+    }
+    Assert.assertFalse(cursor.isOpen());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldOpenOnlyOneIterator() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getAllUsers();
+      cursor.iterator();
+      cursor.iterator();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepCursorOpenWhileReusingStatements() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.REUSE);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> first = mapper.getAllUsers();
+      Cursor<User> second = mapper.getAllUsers();
+      Iterator<User> firstIterator = first.iterator();
+      Iterator<User> secondIterator = second.iterator();
+      Assert.assertEquals("User1", firstIterator.next().getName());
+      Assert.assertEquals("User1", secondIterator.next().getName());
+      Assert.assertEquals("User2", firstIterator.next().getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.mapper_snapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.builder.MapperLoadTime;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MapperSnapshotTest {
+
+  private File snapshot;
+  private File otherMapper;
+
+  @Before
+  public void setUp() throws Exception {
+    snapshot = File.createTempFile("mybatis-snapshot-", ".bin");
+    snapshot.delete();
+    otherMapper = File.createTempFile("mybatis-other-mapper-", ".xml");
+    writeOtherMapper("select count(*) from users");
+
+    SqlSession session = build().openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/mapper_snapshot/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @After
+  public void tearDown() {
+    snapshot.delete();
+    otherMapper.delete();
+  }
+
+  @Test
+  public void shouldRestoreMappersFromTheSnapshot() throws Exception {
+    Assert.assertTrue(snapshot.isFile());
+    SqlSessionFactory sqlSessionFactory = build();
+    assertFromSnapshot(sqlSessionFactory.getConfiguration(), true, true);
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsers(null, 3);
+      Assert.assertEquals(2, users.size());
+      Assert.assertEquals("User2", users.get(1).getName());
+      Assert.assertEquals(1, mapper.getUsers("User3", null).size());
+      Assert.assertEquals(Integer.valueOf(3), sqlSession.selectOne("org.apache.ibatis.submitted.mapper_snapshot.Other.count"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldParseChangedMappersAgain() throws Exception {
+    writeOtherMapper("select count(*) from users where id > 1");
+    SqlSessionFactory sqlSessionFactory = build();
+    assertFromSnapshot(sqlSessionFactory.getConfiguration(), true, false);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Assert.assertEquals(Integer.valueOf(2), sqlSession.selectOne("org.apache.ibatis.submitted.mapper_snapshot.Other.count"));
+    } finally {
+      sqlSession.close();
+    }
+    // the snapshot has been rewritten with the new version
+    assertFromSnapshot(build().getConfiguration(), true, true);
+  }
+
+  @Test
+  public void shouldIgnoreACorruptedSnapshot() throws Exception {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(snapshot), "UTF-8");
+    writer.write("not a snapshot");
+    writer.close();
+    assertFromSnapshot(build().getConfiguration(), false, false);
+    assertFromSnapshot(build().getConfiguration(), true, true);
+  }
+
+  private void assertFromSnapshot(Configuration configuration, boolean mapper, boolean otherMapper) {
+    List<MapperLoadTime> mapperLoadTimes = configuration.getMapperLoadTimes();
+    Assert.assertEquals(2, mapperLoadTimes.size());
+    Assert.assertEquals(mapper, mapperLoadTimes.get(0).isFromSnapshot());
+    Assert.assertEquals(otherMapper, mapperLoadTimes.get(1).isFromSnapshot());
+  }
+
+  private SqlSessionFactory build() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("snapshot", snapshot.getAbsolutePath());
+    properties.setProperty("otherMapper", otherMapper.toURI().toString());
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/mapper_snapshot/mybatis-config.xml");
+    try {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void writeOtherMapper(String sql) throws Exception {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(otherMapper), "UTF-8");
+    writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+        + "<mapper namespace=\"org.apache.ibatis.submitted.mapper_snapshot.Other\">\n"
+        + "  <select id=\"count\" resultType=\"int\">" + sql + "</select>\n"
+        + "</mapper>\n");
+    writer.close();
+  }
+
+}
@@ -17,8 +17,10 @@ package org.apache.ibatis.submitted.nestedresulthandler;
 
 import java.io.Reader;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
@@ -99,6 +101,42 @@ public class NestedResultHandlerTest {
     }
   }
 
+  @Test
+  public void testGetPersonWithCursor() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Cursor<Person> cursor = sqlSession.selectCursor("getPersons");
+      Iterator<Person> iterator = cursor.iterator();
+
+      Person person = iterator.next();
+      Assert.assertEquals("grandma", person.getName());
+      Assert.assertEquals(2, person.getItems().size());
+
+      person = iterator.next();
+      Assert.assertEquals("sister", person.getName());
+      Assert.assertEquals(2, person.getItems().size());
+
+      person = iterator.next();
+      Assert.assertEquals("brother", person.getName());
+      Assert.assertEquals(1, person.getItems().size());
+
+      Assert.assertFalse(iterator.hasNext());
+      Assert.assertTrue(cursor.isConsumed());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test(expected=PersistenceException.class)
+  public void testUnorderedGetPersonWithCursor() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.selectCursor("getPersonsWithItemsOrdered");
+    } finally {
+      sqlSession.close();
+    }
+  }
+
   @Test(expected=PersistenceException.class)
   public void testUnorderedGetPersonWithHandler() {
     SqlSession sqlSession = sqlSessionFactory.openSession();
@@ -0,0 +1,111 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapper_parsing;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.builder.MapperLoadTime;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelMapperParsingTest {
+
+  private static final String PACKAGE = "org/apache/ibatis/submitted/parallel_mapper_parsing/";
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("mybatis-config.xml", 0);
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader(PACKAGE + "CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldBuildTheSameConfigurationAsSequentialParsing() throws Exception {
+    SqlSessionFactory sequential = build("mybatis-config.xml", 0);
+    SqlSessionFactory parallel = build("mybatis-config.xml", 4);
+    Assert.assertEquals(4, parallel.getConfiguration().getMapperParsingThreads());
+    Assert.assertEquals(sequential.getConfiguration().getMappedStatementNames(),
+        parallel.getConfiguration().getMappedStatementNames());
+    Assert.assertEquals(sequential.getConfiguration().getResultMapNames(),
+        parallel.getConfiguration().getResultMapNames());
+
+    SqlSession sqlSession = parallel.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("User2", mapper.getUser(2).getName());
+      Assert.assertEquals(3, mapper.getUsers().size());
+      Assert.assertEquals(3, sqlSession.getMapper(AnnotatedMapper.class).countUsers());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReportLoadTimesInDeclarationOrder() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("mybatis-config.xml", 4);
+    List<String> mappers = new ArrayList<String>();
+    for (MapperLoadTime mapperLoadTime : sqlSessionFactory.getConfiguration().getMapperLoadTimes()) {
+      mappers.add(mapperLoadTime.getMapper());
+      Assert.assertTrue(mapperLoadTime.getBuildTime() > 0);
+    }
+    Assert.assertEquals(3, mappers.size());
+    Assert.assertEquals(PACKAGE + "Mapper.xml", mappers.get(0));
+    Assert.assertEquals(AnnotatedMapper.class.getName(), mappers.get(1));
+    Assert.assertEquals(PACKAGE + "Base.xml", mappers.get(2));
+    Assert.assertTrue(sqlSessionFactory.getConfiguration().getMapperLoadTimes().get(0).getParseTime() > 0);
+  }
+
+  @Test
+  public void shouldReportTheMapperThatFailedToParse() throws Exception {
+    try {
+      build("mybatis-config-broken.xml", 4);
+      Assert.fail();
+    } catch (PersistenceException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains(PACKAGE + "Broken.xml"));
+    }
+  }
+
+  private static SqlSessionFactory build(String config, int threads) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("threads", String.valueOf(threads));
+    Reader reader = Resources.getResourceAsReader(PACKAGE + config);
+    try {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    } finally {
+      reader.close();
+    }
+  }
+
+}
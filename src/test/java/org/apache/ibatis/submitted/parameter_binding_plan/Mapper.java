@@ -0,0 +1,44 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parameter_binding_plan;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  void insertUser(User user);
+
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  void insertUserWithParams(@Param("id") Integer id, @Param("name") String name);
+
+  @Select("select * from users where id = #{id}")
+  User getUser(Integer id);
+
+  @Select("select * from users where name = #{user.name}")
+  User getUserByNestedName(@Param("user") User user);
+
+  @Select("<script>select * from users where id in <foreach item='id' collection='list' open='(' separator=',' close=')'>#{id}</foreach> order by id</script>")
+  List<User> getUsers(List<Integer> ids);
+
+  @Select("select * from users where name = #{nickname}")
+  User getUserByMissingProperty(User user);
+
+}
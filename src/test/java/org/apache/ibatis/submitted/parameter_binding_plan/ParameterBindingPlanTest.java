@@ -0,0 +1,120 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parameter_binding_plan;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParameterBindingPlanTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parameter_binding_plan/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parameter_binding_plan/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldBindBeanMapAndSimpleParameters() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(10);
+      user.setName("User10");
+      mapper.insertUser(user);
+      mapper.insertUserWithParams(11, "User11");
+      mapper.insertUserWithParams(12, null);
+      Assert.assertEquals("User10", mapper.getUser(10).getName());
+      Assert.assertEquals("User11", mapper.getUser(11).getName());
+      Assert.assertNull(mapper.getUser(12).getName());
+      Assert.assertEquals(Integer.valueOf(11), mapper.getUserByNestedName(mapper.getUser(11)).getId());
+      List<User> users = mapper.getUsers(Arrays.asList(1, 3));
+      Assert.assertEquals("User1", users.get(0).getName());
+      Assert.assertEquals("User3", users.get(1).getName());
+      Assert.assertEquals(2, mapper.getUsers(Arrays.asList(2, 4)).size());
+      Assert.assertEquals(3, mapper.getUsers(Arrays.asList(2, 4, 5)).size());
+    } finally {
+      sqlSession.close();
+    }
+    Assert.assertTrue(sqlSessionFactory.getConfiguration().getParameterBindingPlanCache().getSize() > 0);
+  }
+
+  @Test
+  public void shouldBindBatchInserts() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int id = 100; id < 150; id++) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User" + id);
+        mapper.insertUser(user);
+      }
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("User100", mapper.getUser(100).getName());
+      Assert.assertEquals("User149", mapper.getUser(149).getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReportMissingGetterAsBefore() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).getUserByMissingProperty(new User());
+      Assert.fail();
+    } catch (PersistenceException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("There is no getter for property named 'nickname'"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
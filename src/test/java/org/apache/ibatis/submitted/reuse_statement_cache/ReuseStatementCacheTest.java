@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reuse_statement_cache;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ReuseStatementCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reuse_statement_cache/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlSessionFactory.getConfiguration().addMapper(Mapper.class);
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reuse_statement_cache/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReuseStatementsAcrossSessions() throws Exception {
+    Statement first = getUser(1);
+    Statement second = getUser(2);
+    Assert.assertSame(first, second);
+    Assert.assertFalse(second.isClosed());
+  }
+
+  @Test
+  public void shouldCloseLeastRecentlyUsedStatements() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("User1", mapper.getUser(1).getName());
+      Statement byId = StatementRecorder.lastStatement;
+      Assert.assertEquals("User2", mapper.getUserByName("User2").getName());
+      Assert.assertEquals(5, mapper.countUsers());
+      Assert.assertTrue(byId.isClosed());
+      Assert.assertEquals("User3", mapper.getUser(3).getName());
+      Assert.assertNotSame(byId, StatementRecorder.lastStatement);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotShareStatementsBetweenStatementsWithTheSameSql() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("User1", mapper.getUser(1).getName());
+      Statement byId = StatementRecorder.lastStatement;
+      Assert.assertEquals("User1", mapper.getUserWithFetchSize(1).getName());
+      Assert.assertNotSame(byId, StatementRecorder.lastStatement);
+      Assert.assertEquals(10, StatementRecorder.lastStatement.getFetchSize());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotShareStatementsBetweenFactoriesOnOneDataSource() throws Exception {
+    Configuration configuration = new Configuration(sqlSessionFactory.getConfiguration().getEnvironment());
+    configuration.setDefaultExecutorType(ExecutorType.REUSE);
+    configuration.setReuseStatementCacheSize(2);
+    configuration.addInterceptor(new StatementRecorder());
+    configuration.addMapper(Mapper.class);
+    SqlSessionFactory otherFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+    Statement first = getUser(1);
+    SqlSession sqlSession = otherFactory.openSession();
+    try {
+      Assert.assertEquals("User2", sqlSession.getMapper(Mapper.class).getUser(2).getName());
+      Assert.assertNotSame(first, StatementRecorder.lastStatement);
+    } finally {
+      sqlSession.close();
+    }
+    Statement again = getUser(3);
+    Assert.assertSame(first, again);
+    Assert.assertFalse(again.isClosed());
+  }
+
+  private Statement getUser(int id) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("User" + id, mapper.getUser(id).getName());
+      return StatementRecorder.lastStatement;
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
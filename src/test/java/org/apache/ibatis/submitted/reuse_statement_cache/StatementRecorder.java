@@ -0,0 +1,45 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reuse_statement_cache;
+
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+
+@Intercepts({ @Signature(type = StatementHandler.class, method = "parameterize", args = { Statement.class }) })
+public class StatementRecorder implements Interceptor {
+
+  static Statement lastStatement;
+
+  public Object intercept(Invocation invocation) throws Throwable {
+    lastStatement = (Statement) invocation.getArgs()[0];
+    return invocation.proceed();
+  }
+
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  public void setProperties(Properties properties) {
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.Blob;
+
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+public class BlobChannelTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<ReadableByteChannel> TYPE_HANDLER = new BlobChannelTypeHandler();
+
+  @Mock
+  protected Blob blob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    TYPE_HANDLER.setParameter(ps, 1, channel, null);
+    verify(ps).setBinaryStream(Mockito.eq(1), Mockito.any(InputStream.class));
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, read(TYPE_HANDLER.getResult(rs, "column")));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, read(TYPE_HANDLER.getResult(cs, 1)));
+  }
+
+  private byte[] read(ReadableByteChannel channel) throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    while (channel.read(buffer) >= 0) {
+    }
+    buffer.flip();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    assertEquals(3, bytes.length);
+    return bytes;
+  }
+
+}
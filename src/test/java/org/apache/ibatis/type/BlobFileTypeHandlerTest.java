@@ -0,0 +1,95 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.sql.Blob;
+
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+public class BlobFileTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<File> TYPE_HANDLER = new BlobFileTypeHandler();
+
+  @Mock
+  protected Blob blob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    File file = File.createTempFile("mybatis-test-", ".tmp");
+    try {
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(new byte[] { 1, 2, 3 });
+      out.close();
+      TYPE_HANDLER.setParameter(ps, 1, file, null);
+      verify(ps).setBinaryStream(Mockito.eq(1), Mockito.any(InputStream.class), Mockito.eq(3L));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    assertContent(TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    assertContent(TYPE_HANDLER.getResult(cs, 1));
+  }
+
+  @Test
+  public void shouldReturnNullForNullBlob() throws Exception {
+    when(rs.getBlob("column")).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertNull(TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  private void assertContent(File file) throws Exception {
+    try {
+      assertEquals(3, file.length());
+      InputStream in = new FileInputStream(file);
+      try {
+        assertEquals(1, in.read());
+        assertEquals(2, in.read());
+        assertEquals(3, in.read());
+        assertEquals(-1, in.read());
+      } finally {
+        in.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+}
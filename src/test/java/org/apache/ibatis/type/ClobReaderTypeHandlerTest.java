@@ -0,0 +1,61 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Clob;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ClobReaderTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<Reader> TYPE_HANDLER = new ClobReaderTypeHandler();
+
+  @Mock
+  protected Clob clob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    Reader reader = new StringReader("Hello");
+    TYPE_HANDLER.setParameter(ps, 1, reader, null);
+    verify(ps).setCharacterStream(1, reader);
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(rs.getClob("column")).thenReturn(clob);
+    when(rs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader);
+    assertSame(reader, TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(cs.getClob(1)).thenReturn(clob);
+    when(cs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader);
+    assertSame(reader, TYPE_HANDLER.getResult(cs, 1));
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+public class EnumCodeTypeHandlerTest extends BaseTypeHandlerTest {
+
+  enum MyEnum {
+    @EnumCode("1")
+    ONE,
+    @EnumCode("2")
+    TWO
+  }
+
+  enum BodyEnum {
+    @EnumCode("1")
+    ONE {
+      @Override
+      String label() {
+        return "one";
+      }
+    },
+    @EnumCode("2")
+    TWO;
+
+    String label() {
+      return name();
+    }
+  }
+
+  enum MissingCodeEnum {
+    @EnumCode("1")
+    ONE,
+    TWO
+  }
+
+  enum DuplicateCodeEnum {
+    @EnumCode("1")
+    ONE,
+    @EnumCode("1")
+    TWO
+  }
+
+  private static final TypeHandler<MyEnum> TYPE_HANDLER = new EnumCodeTypeHandler<MyEnum>(MyEnum.class);
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    TYPE_HANDLER.setParameter(ps, 1, MyEnum.TWO, null);
+    verify(ps).setString(1, "2");
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    when(rs.getString("column")).thenReturn("1");
+    when(rs.wasNull()).thenReturn(false);
+    assertEquals(MyEnum.ONE, TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getString(1)).thenReturn("2");
+    when(cs.wasNull()).thenReturn(false);
+    assertEquals(MyEnum.TWO, TYPE_HANDLER.getResult(cs, 1));
+  }
+
+  @Test
+  public void shouldFailOnUnknownCode() throws Exception {
+    when(rs.getString("column")).thenReturn("3");
+    try {
+      TYPE_HANDLER.getResult(rs, "column");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot convert '3' to MyEnum by code.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldRejectMissingAndDuplicateCodes() {
+    try {
+      new EnumCodeTypeHandler<MissingCodeEnum>(MissingCodeEnum.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("MissingCodeEnum.TWO has no @EnumCode"));
+    }
+    try {
+      new EnumCodeTypeHandler<DuplicateCodeEnum>(DuplicateCodeEnum.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("have the same code '1'"));
+    }
+  }
+
+  @Test
+  public void shouldBeTheDefaultForEnumsWithCodes() {
+    TypeHandlerRegistry registry = new TypeHandlerRegistry();
+    TypeHandler<MyEnum> handler = registry.getTypeHandler(MyEnum.class);
+    assertTrue(handler instanceof EnumCodeTypeHandler);
+    assertSame(handler, registry.getTypeHandler(MyEnum.class));
+  }
+
+  @Test
+  public void shouldHandleConstantsWithABody() throws Exception {
+    TypeHandlerRegistry registry = new TypeHandlerRegistry();
+    assertTrue(registry.hasTypeHandler(BodyEnum.ONE.getClass()));
+    TypeHandler<?> handler = registry.getTypeHandler(BodyEnum.ONE.getClass());
+    assertTrue(handler instanceof EnumCodeTypeHandler);
+    assertSame(registry.getTypeHandler(BodyEnum.class), handler);
+    @SuppressWarnings("unchecked")
+    TypeHandler<BodyEnum> bodyHandler = new EnumCodeTypeHandler<BodyEnum>((Class<BodyEnum>) BodyEnum.ONE.getClass());
+    bodyHandler.setParameter(ps, 1, BodyEnum.ONE, null);
+    verify(ps).setString(1, "1");
+  }
+
+}
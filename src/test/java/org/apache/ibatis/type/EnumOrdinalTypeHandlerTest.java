@@ -16,6 +16,7 @@
 package org.apache.ibatis.type;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -69,4 +70,16 @@ public class EnumOrdinalTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(null, TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  public void shouldFailOnOrdinalOutOfRange() throws Exception {
+    when(rs.getInt("column")).thenReturn(2);
+    when(rs.wasNull()).thenReturn(false);
+    try {
+      TYPE_HANDLER.getResult(rs, "column");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot convert 2 to MyEnum by ordinal value.", e.getMessage());
+    }
+  }
+
 }
@@ -16,6 +16,8 @@
 package org.apache.ibatis.type;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,6 +29,20 @@ public class EnumTypeHandlerTest extends BaseTypeHandlerTest {
     ONE, TWO
   }
 
+  enum BodyEnum {
+    ONE {
+      @Override
+      String label() {
+        return "one";
+      }
+    },
+    TWO;
+
+    String label() {
+      return name();
+    }
+  }
+
   private static final TypeHandler<MyEnum> TYPE_HANDLER = new EnumTypeHandler<MyEnum>(MyEnum.class);
 
   @Test
@@ -69,4 +85,17 @@ public class EnumTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(null, TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  public void shouldHandleConstantsWithABody() throws Exception {
+    TypeHandlerRegistry registry = new TypeHandlerRegistry();
+    assertTrue(registry.hasTypeHandler(BodyEnum.ONE.getClass()));
+    @SuppressWarnings("unchecked")
+    TypeHandler<BodyEnum> handler = (TypeHandler<BodyEnum>) registry.getTypeHandler(BodyEnum.ONE.getClass());
+    assertSame(registry.getTypeHandler(BodyEnum.class), handler);
+    handler.setParameter(ps, 1, BodyEnum.ONE, null);
+    verify(ps).setString(1, "ONE");
+    when(rs.getString("column")).thenReturn("ONE");
+    assertSame(BodyEnum.ONE, handler.getResult(rs, "column"));
+  }
+
 }